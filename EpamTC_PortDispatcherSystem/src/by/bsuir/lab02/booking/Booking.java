@@ -0,0 +1,112 @@
+package by.bsuir.lab02.booking;
+
+/**
+ * Booking is the entity class that describes the time slot a ship has reserved at a berth
+ *
+ * @version 1.0
+ * @author Sytau
+ */
+public class Booking {
+
+	/** id of the booking, unique within its office */
+	private long id;
+
+	/** name of the ship the slot is reserved for */
+	private String shipName;
+
+	/** id of the reserved berth */
+	private int berthId;
+
+	/** start of the slot in milliseconds */
+	private long from;
+
+	/** end of the slot in milliseconds, brought forward when the ship leaves early */
+	private volatile long to;
+
+	/** Flag that indicates that the ship has berthed by this booking */
+	private volatile boolean honoured;
+
+	/**
+	 * Constructor builds a new instance of Booking with preset values
+	 * @param id the id of the booking
+	 * @param shipName the name of the ship
+	 * @param berthId the id of the berth
+	 * @param from the start of the slot in milliseconds
+	 * @param to the end of the slot in milliseconds
+	 */
+	Booking(long id, String shipName, int berthId, long from, long to) {
+		this.id = id;
+		this.shipName = shipName;
+		this.berthId = berthId;
+		this.from = from;
+		this.to = to;
+	}
+
+	/**
+	 * Getter for the field {@link Booking#id}
+	 * @return the booking <b>id</b>
+	 */
+	public long getId() {
+		return id;
+	}
+
+	/**
+	 * Getter for the field {@link Booking#shipName}
+	 * @return the ship <b>name</b>
+	 */
+	public String getShipName() {
+		return shipName;
+	}
+
+	/**
+	 * Getter for the field {@link Booking#berthId}
+	 * @return the berth <b>id</b>
+	 */
+	public int getBerthId() {
+		return berthId;
+	}
+
+	/**
+	 * Getter for the field {@link Booking#from}
+	 * @return the start of the slot in milliseconds
+	 */
+	public long getFrom() {
+		return from;
+	}
+
+	/**
+	 * Getter for the field {@link Booking#to}
+	 * @return the end of the slot in milliseconds
+	 */
+	public long getTo() {
+		return to;
+	}
+
+	/**
+	 * Getter for the field {@link Booking#honoured}
+	 * @return <b>true</b> if the ship has berthed by this booking
+	 */
+	public boolean isHonoured() {
+		return honoured;
+	}
+
+	/**
+	 * Setter for the field {@link Booking#to}
+	 * @param to the end of the slot in milliseconds
+	 */
+	void setTo(long to) {
+		this.to = to;
+	}
+
+	/**
+	 * Marks the booking as honoured by the berthed ship
+	 */
+	void honour() {
+		honoured = true;
+	}
+
+	@Override
+	public String toString() {
+		return shipName + "@" + berthId + "[" + from + ", " + to + ")";
+	}
+}
@@ -0,0 +1,341 @@
+package by.bsuir.lab02.booking;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.log4j.Logger;
+
+import by.bsuir.lab02.port.Berth;
+import by.bsuir.lab02.simulation.Clock;
+
+/**
+ * BookingOffice keeps the booking calendar of every berth of the port.
+ * Ships on scheduled services reserve time slots in advance, a booked ship is given
+ *  its berth when it arrives within its slot. A ship without a booking takes a berth
+ *  only if no other ship has booked it for the time the ship is expected to stay, so
+ *  walk-in ships fill the gaps between bookings. A booking whose ship hasn't berthed
+ *  within the grace period stops holding the berth for others.
+ * Calendars are interval trees, so slot and conflict lookups take O(log n) however
+ *  many bookings are made ahead. Lookups share a read lock, bookings take the write lock.
+ *
+ * @version 1.0
+ * @author Sytau
+ */
+public class BookingOffice {
+	private final static Logger logger = Logger.getRootLogger();
+
+	/** Time a booked ship may be late and still berth on time in milliseconds */
+	public static final long GRACE_PERIOD = 1000;
+
+	/** Time a booked ship may arrive before its slot and claim its berth in milliseconds */
+	public static final long EARLY_ARRIVAL = 1000;
+
+	/** Berths in the order they are offered: smaller berths first */
+	private List<Berth> berths;
+
+	/** A map of berth id - calendar of its bookings */
+	private Map<Integer, IntervalTree<Booking>> calendars = new HashMap<Integer, IntervalTree<Booking>>();
+
+	/** A map of ship name - its bookings by their start */
+	private Map<String, TreeMap<Long, Booking>> shipBookings = new HashMap<String, TreeMap<Long, Booking>>();
+
+	private ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	/** Clock the slots are measured by */
+	private Clock clock;
+
+	private long nextId;
+
+	/** Quantity of bookings made */
+	private LongAdder bookedCount = new LongAdder();
+
+	/** Quantity of bookings the ships have berthed by */
+	private LongAdder honouredCount = new LongAdder();
+
+	/** Quantity of bookings the ships have berthed by within the grace period */
+	private LongAdder onTimeCount = new LongAdder();
+
+	/** Quantity of bookings ended without their ships */
+	private LongAdder lapsedCount = new LongAdder();
+
+	/**
+	 * Constructor builds a new instance of BookingOffice with empty calendars
+	 * @param berths the berths of the port
+	 * @param clock the clock of the port
+	 */
+	public BookingOffice(List<Berth> berths, Clock clock) {
+		this.berths = new ArrayList<Berth>(berths);
+		Collections.sort(this.berths, new Comparator<Berth>() {
+			@Override
+			public int compare(Berth a, Berth b) {
+				if (a.getCapacity() != b.getCapacity()) {
+					return a.getCapacity() < b.getCapacity() ? -1 : 1;
+				}
+				return a.getId() - b.getId();
+			}
+		});
+		for (Berth berth : berths) {
+			calendars.put(berth.getId(), new IntervalTree<Booking>());
+		}
+		this.clock = clock;
+	}
+
+	/**
+	 * Reserves the earliest slot of the smallest berth fitting the ship
+	 * @param shipName the name of the ship
+	 * @param shipSize the capacity of the ship
+	 * @param after the earliest start of the slot in milliseconds
+	 * @param duration the duration of the slot in milliseconds
+	 * @return the instance of Booking class or <b>null</b> if no berth fits the ship
+	 */
+	public Booking book(String shipName, int shipSize, long after, long duration) {
+		if (duration <= 0) {
+			throw new IllegalArgumentException("Slot must have positive duration: " + duration);
+		}
+		Lock writeLock = lock.writeLock();
+		writeLock.lock();
+		try {
+			prune(clock.currentTimeMillis());
+			TreeMap<Long, Booking> own = shipBookings.get(shipName);
+			if (own != null && !own.isEmpty()) {
+				// a ship can't be at two berths at once
+				after = Math.max(after, own.lastEntry().getValue().getTo());
+			}
+			Berth chosen = null;
+			long start = Long.MAX_VALUE;
+			for (Berth berth : berths) {
+				if (berth.getCapacity() < shipSize) {
+					continue;
+				}
+				long gap = calendars.get(berth.getId()).nextGap(after, duration);
+				if (gap < start) {
+					start = gap;
+					chosen = berth;
+				}
+			}
+			if (chosen == null) {
+				return null;
+			}
+			Booking booking = new Booking(nextId++, shipName, chosen.getId(), start, start + duration);
+			add(booking);
+			bookedCount.increment();
+			logger.debug("Корабль " + shipName + " забронировал причал " + chosen.getId()
+					+ " с " + booking.getFrom() + " до " + booking.getTo() + "мс.");
+			return booking;
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	/**
+	 * Cancels the booking, its slot becomes free for others
+	 * @param booking the instance of Booking class
+	 * @return <b>true</b> if the booking has been cancelled and <b>false</b> if it has ended before
+	 */
+	public boolean cancel(Booking booking) {
+		Lock writeLock = lock.writeLock();
+		writeLock.lock();
+		try {
+			return remove(booking);
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	/**
+	 * Finds the booking the arriving ship berths by: its slot hasn't ended and
+	 * 	starts within {@link BookingOffice#EARLY_ARRIVAL}
+	 * @param shipName the name of the ship
+	 * @param now the current time in milliseconds
+	 * @return the instance of Booking class or <b>null</b> if the ship has no such booking
+	 */
+	public Booking getBooking(String shipName, long now) {
+		Lock readLock = lock.readLock();
+		readLock.lock();
+		try {
+			TreeMap<Long, Booking> own = shipBookings.get(shipName);
+			if (own == null) {
+				return null;
+			}
+			Map.Entry<Long, Booking> entry = own.floorEntry(now + EARLY_ARRIVAL);
+			return entry != null && entry.getValue().getTo() > now ? entry.getValue() : null;
+		} finally {
+			readLock.unlock();
+		}
+	}
+
+	/**
+	 * Checks whether the ship may occupy the berth for the time without taking
+	 * 	the slot of another ship. Bookings past their grace period whose ships
+	 * 	haven't come don't hold the berth.
+	 * @param berth the instance of Berth class
+	 * @param shipName the name of the ship
+	 * @param from the start of the stay in milliseconds
+	 * @param to the end of the stay in milliseconds
+	 * @return <b>true</b> if the berth is open to the ship for the time
+	 */
+	public boolean isOpen(Berth berth, String shipName, long from, long to) {
+		Lock readLock = lock.readLock();
+		readLock.lock();
+		try {
+			IntervalTree<Booking> calendar = calendars.get(berth.getId());
+			Booking first = calendar.firstOverlap(from, Math.max(to, from + 1));
+			if (first == null) {
+				return true; // the common case: a gap
+			}
+			for (Booking booking : calendar.overlaps(from, Math.max(to, from + 1))) {
+				if (!booking.getShipName().equals(shipName)
+						&& (booking.isHonoured() || booking.getFrom() + GRACE_PERIOD > from)) {
+					return false;
+				}
+			}
+			return true;
+		} finally {
+			readLock.unlock();
+		}
+	}
+
+	/**
+	 * Lists the bookings of the berth overlapping the time
+	 * @param berth the instance of Berth class
+	 * @param from the start of the time in milliseconds
+	 * @param to the end of the time in milliseconds
+	 * @return the list of bookings in the order of their start
+	 */
+	public List<Booking> getBookings(Berth berth, long from, long to) {
+		Lock readLock = lock.readLock();
+		readLock.lock();
+		try {
+			return calendars.get(berth.getId()).overlaps(from, to);
+		} finally {
+			readLock.unlock();
+		}
+	}
+
+	/**
+	 * Records that the ship has berthed by the booking
+	 * @param booking the instance of Booking class
+	 * @param at the time of the berthing in milliseconds
+	 */
+	public void berthed(Booking booking, long at) {
+		booking.honour();
+		honouredCount.increment();
+		if (at <= booking.getFrom() + GRACE_PERIOD) {
+			onTimeCount.increment();
+		}
+	}
+
+	/**
+	 * Ends the slot when its ship leaves the berth, the rest of the slot becomes free for others
+	 * @param booking the instance of Booking class
+	 * @param at the time the ship has left in milliseconds
+	 */
+	public void released(Booking booking, long at) {
+		Lock writeLock = lock.writeLock();
+		writeLock.lock();
+		try {
+			if (at < booking.getTo() && remove(booking)) {
+				if (at > booking.getFrom()) {
+					booking.setTo(at);
+					add(booking);
+				}
+			}
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	/**
+	 * Gets the quantity of bookings made
+	 * @return the quantity of bookings
+	 */
+	public long getBookedCount() {
+		return bookedCount.sum();
+	}
+
+	/**
+	 * Gets the quantity of bookings the ships have berthed by
+	 * @return the quantity of honoured bookings
+	 */
+	public long getHonouredCount() {
+		return honouredCount.sum();
+	}
+
+	/**
+	 * Gets the quantity of bookings the ships have berthed by within the grace period
+	 * @return the quantity of on-time berthings
+	 */
+	public long getOnTimeCount() {
+		return onTimeCount.sum();
+	}
+
+	/**
+	 * Gets the quantity of bookings ended without their ships
+	 * @return the quantity of lapsed bookings
+	 */
+	public long getLapsedCount() {
+		return lapsedCount.sum();
+	}
+
+	/**
+	 * Adds the booking to the calendar of its berth and to its ship bookings.
+	 * 	Must be called under the write lock.
+	 * @param booking the instance of Booking class
+	 */
+	private void add(Booking booking) {
+		calendars.get(booking.getBerthId()).add(booking.getFrom(), booking.getTo(), booking.getId(), booking);
+		TreeMap<Long, Booking> own = shipBookings.get(booking.getShipName());
+		if (own == null) {
+			own = new TreeMap<Long, Booking>();
+			shipBookings.put(booking.getShipName(), own);
+		}
+		own.put(booking.getFrom(), booking);
+	}
+
+	/**
+	 * Removes the booking from the calendar of its berth and from its ship bookings.
+	 * 	Must be called under the write lock.
+	 * @param booking the instance of Booking class
+	 * @return <b>true</b> if the booking has been removed
+	 */
+	private boolean remove(Booking booking) {
+		if (!calendars.get(booking.getBerthId()).remove(booking.getFrom(), booking.getId())) {
+			return false;
+		}
+		TreeMap<Long, Booking> own = shipBookings.get(booking.getShipName());
+		own.remove(booking.getFrom());
+		if (own.isEmpty()) {
+			shipBookings.remove(booking.getShipName());
+		}
+		return true;
+	}
+
+	/**
+	 * Drops the bookings ended by this time, so calendars hold only the coming slots.
+	 * 	Must be called under the write lock.
+	 * @param now the current time in milliseconds
+	 */
+	private void prune(long now) {
+		for (IntervalTree<Booking> calendar : calendars.values()) {
+			for (Booking booking : calendar.removeEndedBy(now)) {
+				TreeMap<Long, Booking> own = shipBookings.get(booking.getShipName());
+				own.remove(booking.getFrom());
+				if (own.isEmpty()) {
+					shipBookings.remove(booking.getShipName());
+				}
+				if (!booking.isHonoured()) {
+					lapsedCount.increment();
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,338 @@
+package by.bsuir.lab02.booking;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * IntervalTree is the set of half-open time intervals <code>[start, end)</code>.
+ * It is an AVL tree ordered by the interval start and the interval id, each node
+ *  also keeps the latest end in its subtree, so a subtree that ends before a query
+ *  is skipped. Adding, removing and finding the first interval overlapping a query
+ *  take O(log n), listing all k overlapping intervals takes O(log n + k).
+ * It isn't thread-safe, the booking office guards it.
+ *
+ * @version 1.0
+ * @author Sytau
+ *
+ * @param <T> the type of the values of the intervals
+ */
+public class IntervalTree<T> {
+
+	private Node<T> root;
+	private int size;
+
+	/**
+	 * Adds the interval
+	 * @param start the start of the interval
+	 * @param end the end of the interval, after its start
+	 * @param id the id that tells apart intervals with the same start
+	 * @param value the value of the interval
+	 */
+	public void add(long start, long end, long id, T value) {
+		if (end <= start) {
+			throw new IllegalArgumentException("Interval ends before it starts: [" + start + ", " + end + ")");
+		}
+		root = insert(root, new Node<T>(start, end, id, value));
+		size++;
+	}
+
+	/**
+	 * Removes the interval
+	 * @param start the start of the interval
+	 * @param id the id of the interval
+	 * @return <b>true</b> if the interval has been removed and <b>false</b> if there is no such interval
+	 */
+	public boolean remove(long start, long id) {
+		int before = size;
+		root = delete(root, start, id);
+		return size < before;
+	}
+
+	/**
+	 * Finds the interval that starts first of the intervals overlapping the query
+	 * @param from the start of the query
+	 * @param to the end of the query
+	 * @return the value of the interval or <b>null</b> if no interval overlaps the query
+	 */
+	public T firstOverlap(long from, long to) {
+		Node<T> node = firstNode(from, to);
+		return node != null ? node.value : null;
+	}
+
+	/**
+	 * Lists the intervals overlapping the query in the order of their start
+	 * @param from the start of the query
+	 * @param to the end of the query
+	 * @return the list of the values of the intervals
+	 */
+	public List<T> overlaps(long from, long to) {
+		List<T> result = new ArrayList<T>();
+		collect(root, from, to, result);
+		return result;
+	}
+
+	/**
+	 * Finds the earliest time from which a gap of this duration is free of intervals
+	 * @param after the earliest start of the gap
+	 * @param duration the duration of the gap
+	 * @return the start of the gap
+	 */
+	public long nextGap(long after, long duration) {
+		long start = after;
+		Node<T> overlap;
+		while ((overlap = firstNode(start, start + duration)) != null) {
+			start = overlap.end;
+		}
+		return start;
+	}
+
+	/**
+	 * Removes the intervals ending at this time or earlier
+	 * @param time the time
+	 * @return the list of the values of the removed intervals
+	 */
+	public List<T> removeEndedBy(long time) {
+		List<Node<T>> ended = new ArrayList<Node<T>>();
+		collectEnded(root, time, ended);
+		List<T> result = new ArrayList<T>(ended.size());
+		for (Node<T> node : ended) {
+			root = delete(root, node.start, node.id);
+			result.add(node.value);
+		}
+		return result;
+	}
+
+	/**
+	 * Gets the quantity of intervals
+	 * @return the quantity of intervals
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Finds the node of the first interval overlapping the query, see {@link IntervalTree#firstOverlap(long, long)}
+	 * @param from the start of the query
+	 * @param to the end of the query
+	 * @return the node or <b>null</b>
+	 */
+	private Node<T> firstNode(long from, long to) {
+		Node<T> node = root;
+		while (node != null) {
+			if (node.left != null && node.left.maxEnd > from) {
+				// an overlap on the left starts earlier; if there is none, nothing on the right starts before the query end
+				node = node.left;
+			} else if (node.start < to && node.end > from) {
+				return node;
+			} else if (node.start < to) {
+				node = node.right;
+			} else {
+				return null;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Adds the values of the subtree intervals overlapping the query
+	 * @param node the subtree root
+	 * @param from the start of the query
+	 * @param to the end of the query
+	 * @param result the list to add to
+	 */
+	private void collect(Node<T> node, long from, long to, List<T> result) {
+		if (node == null || node.maxEnd <= from) {
+			return;
+		}
+		collect(node.left, from, to, result);
+		if (node.start < to) {
+			if (node.end > from) {
+				result.add(node.value);
+			}
+			collect(node.right, from, to, result);
+		}
+	}
+
+	/**
+	 * Adds the subtree nodes of the intervals ending at this time or earlier
+	 * @param node the subtree root
+	 * @param time the time
+	 * @param result the list to add to
+	 */
+	private void collectEnded(Node<T> node, long time, List<Node<T>> result) {
+		if (node == null) {
+			return;
+		}
+		collectEnded(node.left, time, result);
+		if (node.start < time) {
+			if (node.end <= time) {
+				result.add(node);
+			}
+			collectEnded(node.right, time, result);
+		}
+	}
+
+	/**
+	 * Inserts the node into the subtree
+	 * @param node the subtree root
+	 * @param added the node to insert
+	 * @return the new subtree root
+	 */
+	private Node<T> insert(Node<T> node, Node<T> added) {
+		if (node == null) {
+			return added;
+		}
+		if (compare(added.start, added.id, node) < 0) {
+			node.left = insert(node.left, added);
+		} else {
+			node.right = insert(node.right, added);
+		}
+		return balance(node);
+	}
+
+	/**
+	 * Deletes the node of the interval from the subtree
+	 * @param node the subtree root
+	 * @param start the start of the interval
+	 * @param id the id of the interval
+	 * @return the new subtree root
+	 */
+	private Node<T> delete(Node<T> node, long start, long id) {
+		if (node == null) {
+			return null;
+		}
+		int order = compare(start, id, node);
+		if (order < 0) {
+			node.left = delete(node.left, start, id);
+		} else if (order > 0) {
+			node.right = delete(node.right, start, id);
+		} else {
+			size--;
+			if (node.left == null) {
+				return node.right;
+			}
+			if (node.right == null) {
+				return node.left;
+			}
+			Node<T> successor = node.right;
+			while (successor.left != null) {
+				successor = successor.left;
+			}
+			successor.right = deleteFirst(node.right);
+			successor.left = node.left;
+			node = successor;
+		}
+		return balance(node);
+	}
+
+	/**
+	 * Deletes the node of the earliest interval from the subtree
+	 * @param node the subtree root
+	 * @return the new subtree root
+	 */
+	private Node<T> deleteFirst(Node<T> node) {
+		if (node.left == null) {
+			return node.right;
+		}
+		node.left = deleteFirst(node.left);
+		return balance(node);
+	}
+
+	/**
+	 * Restores the balance of the subtree after one of its children has changed height by one
+	 * @param node the subtree root
+	 * @return the new subtree root
+	 */
+	private Node<T> balance(Node<T> node) {
+		update(node);
+		int skew = height(node.left) - height(node.right);
+		if (skew > 1) {
+			if (height(node.left.left) < height(node.left.right)) {
+				node.left = rotateLeft(node.left);
+			}
+			return rotateRight(node);
+		}
+		if (skew < -1) {
+			if (height(node.right.right) < height(node.right.left)) {
+				node.right = rotateRight(node.right);
+			}
+			return rotateLeft(node);
+		}
+		return node;
+	}
+
+	private Node<T> rotateLeft(Node<T> node) {
+		Node<T> right = node.right;
+		node.right = right.left;
+		right.left = node;
+		update(node);
+		update(right);
+		return right;
+	}
+
+	private Node<T> rotateRight(Node<T> node) {
+		Node<T> left = node.left;
+		node.left = left.right;
+		left.right = node;
+		update(node);
+		update(left);
+		return left;
+	}
+
+	/**
+	 * Recalculates the height and the latest end of the node from its children
+	 * @param node the node
+	 */
+	private void update(Node<T> node) {
+		node.height = Math.max(height(node.left), height(node.right)) + 1;
+		node.maxEnd = node.end;
+		if (node.left != null && node.left.maxEnd > node.maxEnd) {
+			node.maxEnd = node.left.maxEnd;
+		}
+		if (node.right != null && node.right.maxEnd > node.maxEnd) {
+			node.maxEnd = node.right.maxEnd;
+		}
+	}
+
+	private static int height(Node<?> node) {
+		return node != null ? node.height : 0;
+	}
+
+	/**
+	 * Compares the interval with the interval of the node
+	 * @param start the start of the interval
+	 * @param id the id of the interval
+	 * @param node the node
+	 * @return a negative number, zero or a positive number if the interval goes before, is or goes after the node
+	 */
+	private static int compare(long start, long id, Node<?> node) {
+		if (start != node.start) {
+			return start < node.start ? -1 : 1;
+		}
+		return id < node.id ? -1 : id == node.id ? 0 : 1;
+	}
+
+	/**
+	 * Node is the interval in the tree
+	 */
+	private static class Node<T> {
+		long start;
+		long end;
+		long id;
+		T value;
+
+		/** The latest end of the intervals of the subtree */
+		long maxEnd;
+		int height = 1;
+		Node<T> left;
+		Node<T> right;
+
+		Node(long start, long end, long id, T value) {
+			this.start = start;
+			this.end = end;
+			this.id = id;
+			this.value = value;
+			maxEnd = end;
+		}
+	}
+}
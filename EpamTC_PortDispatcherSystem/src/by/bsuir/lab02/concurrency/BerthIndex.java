@@ -0,0 +1,99 @@
+package by.bsuir.lab02.concurrency;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+
+import by.bsuir.lab02.port.Berth;
+
+/**
+ * BerthIndex is the set of free berths ordered by their capacity, so the smallest
+ *  berth fitting a ship is found in O(log n). It isn't thread-safe, pools guard it.
+ *
+ * @version 1.0
+ * @author Sytau
+ */
+class BerthIndex {
+
+	/** A map of capacity - free berths of this capacity */
+	private TreeMap<Integer, ArrayDeque<Berth>> freeBerths = new TreeMap<Integer, ArrayDeque<Berth>>();
+
+	private int size;
+
+	/**
+	 * Constructor builds a new instance of BerthIndex
+	 * @param berths the free berths
+	 */
+	BerthIndex(Collection<Berth> berths) {
+		for (Berth berth : berths) {
+			add(berth);
+		}
+	}
+
+	/**
+	 * Adds the free berth
+	 * @param berth the instance of Berth class
+	 */
+	void add(Berth berth) {
+		ArrayDeque<Berth> berths = freeBerths.get(berth.getCapacity());
+		if (berths == null) {
+			berths = new ArrayDeque<Berth>();
+			freeBerths.put(berth.getCapacity(), berths);
+		}
+		berths.offer(berth);
+		size++;
+	}
+
+	/**
+	 * Takes the smallest free berth fitting the ship
+	 * @param shipSize the capacity of the ship
+	 * @return the instance of Berth class or <b>null</b> if no free berth fits
+	 */
+	Berth poll(int shipSize) {
+		Map.Entry<Integer, ArrayDeque<Berth>> entry = freeBerths.ceilingEntry(shipSize);
+		if (entry == null) {
+			return null;
+		}
+		Berth berth = entry.getValue().poll();
+		if (entry.getValue().isEmpty()) {
+			freeBerths.remove(entry.getKey());
+		}
+		size--;
+		return berth;
+	}
+
+	/**
+	 * Takes the smallest free berth fitting the ship that the filter accepts
+	 * @param shipSize the capacity of the ship
+	 * @param filter the test of berths the ship may take
+	 * @return the instance of Berth class or <b>null</b> if no such berth is free
+	 */
+	Berth poll(int shipSize, Predicate<Berth> filter) {
+		for (Map.Entry<Integer, ArrayDeque<Berth>> entry : freeBerths.tailMap(shipSize).entrySet()) {
+			Iterator<Berth> iterator = entry.getValue().iterator();
+			while (iterator.hasNext()) {
+				Berth berth = iterator.next();
+				if (filter.test(berth)) {
+					iterator.remove();
+					if (entry.getValue().isEmpty()) {
+						freeBerths.remove(entry.getKey());
+					}
+					size--;
+					return berth;
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Gets the quantity of free berths
+	 * @return the quantity of free berths
+	 */
+	int size() {
+		return size;
+	}
+}
@@ -0,0 +1,62 @@
+package by.bsuir.lab02.concurrency;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import by.bsuir.lab02.port.Berth;
+
+/**
+ * BerthPool is the interface of the collection of free berths ships take berths from.
+ *  A ship gets the smallest free berth whose capacity fits the ship.
+ *
+ * @version 1.0
+ * @author Sytau
+ */
+public interface BerthPool {
+
+	/**
+	 * Takes the smallest free berth fitting the ship, waits while no such berth is free
+	 * @param shipSize the capacity of the ship
+	 * @return the instance of Berth class
+	 * @throws InterruptedException If the thread is interrupted while waiting
+	 */
+	Berth acquire(int shipSize) throws InterruptedException;
+
+	/**
+	 * Takes the smallest free berth fitting the ship, waits while no such berth is free
+	 *  but not longer than the timeout
+	 * @param shipSize the capacity of the ship
+	 * @param timeout the longest time to wait
+	 * @param unit the unit of the timeout
+	 * @return the instance of Berth class or <b>null</b> if no fitting berth has become free
+	 * @throws InterruptedException If the thread is interrupted while waiting
+	 */
+	Berth acquire(int shipSize, long timeout, TimeUnit unit) throws InterruptedException;
+
+	/**
+	 * Takes the smallest free berth fitting the ship without waiting
+	 * @param shipSize the capacity of the ship
+	 * @return the instance of Berth class or <b>null</b> if no fitting berth is free
+	 */
+	Berth tryAcquire(int shipSize);
+
+	/**
+	 * Takes the smallest free berth fitting the ship that the filter accepts, without waiting
+	 * @param shipSize the capacity of the ship
+	 * @param filter the test of berths the ship may take
+	 * @return the instance of Berth class or <b>null</b> if no such berth is free
+	 */
+	Berth tryAcquire(int shipSize, Predicate<Berth> filter);
+
+	/**
+	 * Returns the berth to the pool
+	 * @param berth the berth taken from this pool
+	 */
+	void release(Berth berth);
+
+	/**
+	 * Gets the quantity of free berths
+	 * @return the quantity of free berths
+	 */
+	int getFreeCount();
+}
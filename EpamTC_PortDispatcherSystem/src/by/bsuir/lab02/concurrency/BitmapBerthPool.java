@@ -0,0 +1,230 @@
+package by.bsuir.lab02.concurrency;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Predicate;
+
+import by.bsuir.lab02.port.Berth;
+
+/**
+ * BitmapBerthPool is the berth pool which free berths are the set bits of an atomic bitmap.
+ * Berths get slots in the order of their capacity, so the berths fitting a ship are
+ *  the slots from the first one of its size on. A berth is taken by clearing its bit
+ *  with compare-and-set and returned by setting it, so ships contend only for the
+ *  64 berths of the same word and nothing is locked. Ships of a size start looking
+ *  from different slots of the smallest fitting capacity, so they don't all race
+ *  for the same first free berth. Ships wait for a release in a parking lot
+ *  only when no fitting berth is free.
+ *
+ * @version 1.0
+ * @author Sytau
+ */
+class BitmapBerthPool implements BerthPool {
+
+	private static final Predicate<Berth> ANY_BERTH = new Predicate<Berth>() {
+		@Override
+		public boolean test(Berth berth) {
+			return true;
+		}
+	};
+
+	/** Berths in the order of their capacity and id */
+	private Berth[] slots;
+
+	/** Capacities of the slots */
+	private int[] capacities;
+
+	/** End of the run of slots with the same capacity, for every slot */
+	private int[] capacityEnds;
+
+	/** A map of berth id - its slot */
+	private Map<Integer, Integer> slotIds = new HashMap<Integer, Integer>();
+
+	/** Set bits are the slots of free berths */
+	private AtomicLongArray freeSlots;
+
+	private ParkingLot parkingLot = new ParkingLot();
+
+	/**
+	 * Constructor builds a new instance of BitmapBerthPool
+	 * @param berths the free berths
+	 */
+	BitmapBerthPool(List<Berth> berths) {
+		List<Berth> ordered = new ArrayList<Berth>(berths);
+		Collections.sort(ordered, new Comparator<Berth>() {
+			@Override
+			public int compare(Berth a, Berth b) {
+				if (a.getCapacity() != b.getCapacity()) {
+					return a.getCapacity() < b.getCapacity() ? -1 : 1;
+				}
+				return a.getId() - b.getId();
+			}
+		});
+		slots = ordered.toArray(new Berth[ordered.size()]);
+		capacities = new int[slots.length];
+		capacityEnds = new int[slots.length];
+		for (int slot = 0; slot < slots.length; slot++) {
+			capacities[slot] = slots[slot].getCapacity();
+			slotIds.put(slots[slot].getId(), slot);
+		}
+		for (int slot = slots.length - 1; slot >= 0; slot--) {
+			boolean last = slot == slots.length - 1 || capacities[slot + 1] != capacities[slot];
+			capacityEnds[slot] = last ? slot + 1 : capacityEnds[slot + 1];
+		}
+		freeSlots = new AtomicLongArray((slots.length + 63) >>> 6);
+		for (int slot = 0; slot < slots.length; slot++) {
+			freeSlots.set(slot >>> 6, freeSlots.get(slot >>> 6) | 1L << slot);
+		}
+	}
+
+	@Override
+	public Berth acquire(int shipSize) throws InterruptedException {
+		while (true) {
+			long version = parkingLot.version();
+			Berth berth = tryAcquire(shipSize);
+			if (berth != null) {
+				return berth;
+			}
+			parkingLot.await(version);
+		}
+	}
+
+	@Override
+	public Berth acquire(int shipSize, long timeout, TimeUnit unit) throws InterruptedException {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		while (true) {
+			long version = parkingLot.version();
+			Berth berth = tryAcquire(shipSize);
+			if (berth != null || !parkingLot.await(version, deadline)) {
+				return berth;
+			}
+		}
+	}
+
+	@Override
+	public Berth tryAcquire(int shipSize) {
+		return tryAcquire(shipSize, ANY_BERTH);
+	}
+
+	@Override
+	public Berth tryAcquire(int shipSize, Predicate<Berth> filter) {
+		int first = firstFitting(shipSize);
+		if (first == slots.length) {
+			return null;
+		}
+		// the smallest fitting capacity from a slot of this thread, then the larger capacities
+		int end = capacityEnds[first];
+		int probe = first + spread(end - first);
+		Berth berth = claim(probe, end, filter);
+		if (berth == null) {
+			berth = claim(first, probe, filter);
+		}
+		if (berth == null) {
+			berth = claim(end, slots.length, filter);
+		}
+		return berth;
+	}
+
+	@Override
+	public void release(Berth berth) {
+		int slot = slotIds.get(berth.getId());
+		int word = slot >>> 6;
+		long mask = 1L << slot;
+		while (true) {
+			long bits = freeSlots.get(word);
+			if ((bits & mask) != 0) {
+				throw new IllegalStateException("Berth " + berth.getId() + " is released twice.");
+			}
+			if (freeSlots.compareAndSet(word, bits, bits | mask)) {
+				break;
+			}
+		}
+		parkingLot.signalAll();
+	}
+
+	@Override
+	public int getFreeCount() {
+		int count = 0;
+		for (int word = 0; word < freeSlots.length(); word++) {
+			count += Long.bitCount(freeSlots.get(word));
+		}
+		return count;
+	}
+
+	/**
+	 * Takes the first free berth of the slots the filter accepts
+	 * @param from the first slot
+	 * @param to the slot after the last one
+	 * @param filter the test of berths the ship may take
+	 * @return the instance of Berth class or <b>null</b> if no such berth is free
+	 */
+	private Berth claim(int from, int to, Predicate<Berth> filter) {
+		if (from >= to) {
+			return null;
+		}
+		int lastWord = (to - 1) >>> 6;
+		for (int word = from >>> 6; word <= lastWord; word++) {
+			long range = -1L;
+			if (word == from >>> 6) {
+				range &= -1L << from;
+			}
+			if (word == lastWord && (to & 63) != 0) {
+				range &= -1L >>> (64 - (to & 63));
+			}
+			long bits = freeSlots.get(word) & range;
+			while (bits != 0) {
+				long mask = Long.lowestOneBit(bits);
+				Berth berth = slots[word << 6 | Long.numberOfTrailingZeros(mask)];
+				if (!filter.test(berth)) {
+					bits &= ~mask;
+					continue;
+				}
+				long current = freeSlots.get(word);
+				if ((current & mask) != 0 && freeSlots.compareAndSet(word, current, current & ~mask)) {
+					return berth;
+				}
+				// the word has changed: look again at the free slots from this one on
+				bits = freeSlots.get(word) & range & -mask;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Finds the first slot which berth fits the ship
+	 * @param shipSize the capacity of the ship
+	 * @return the slot or the quantity of slots if no berth fits
+	 */
+	private int firstFitting(int shipSize) {
+		int low = 0;
+		int high = slots.length;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (capacities[middle] < shipSize) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Chooses the offset the current thread starts looking from, the same for every call
+	 * @param length the quantity of slots to choose from
+	 * @return the offset from 0 to the length
+	 */
+	private static int spread(int length) {
+		if (length <= 1) {
+			return 0;
+		}
+		long hash = Thread.currentThread().getId() * 0x9E3779B97F4A7C15L;
+		return (int) ((hash >>> 33) % length);
+	}
+}
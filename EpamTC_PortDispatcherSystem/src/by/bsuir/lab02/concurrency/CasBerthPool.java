@@ -0,0 +1,108 @@
+package by.bsuir.lab02.concurrency;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import by.bsuir.lab02.port.Berth;
+
+/**
+ * CasBerthPool is the berth pool which free berths are kept in a lock-free skip list
+ *  ordered by capacity and id. A berth is taken by removing it from the list, so of
+ *  two ships wanting the same berth one gets it and the other tries the next fitting one.
+ *  Ships wait for a release in a parking lot.
+ *
+ * @version 1.0
+ * @author Sytau
+ */
+class CasBerthPool implements BerthPool {
+
+	/** A map of capacity and id - free berth */
+	private ConcurrentNavigableMap<Long, Berth> freeBerths = new ConcurrentSkipListMap<Long, Berth>();
+
+	private AtomicInteger freeCount = new AtomicInteger();
+	private ParkingLot parkingLot = new ParkingLot();
+
+	/**
+	 * Constructor builds a new instance of CasBerthPool
+	 * @param berths the free berths
+	 */
+	CasBerthPool(List<Berth> berths) {
+		for (Berth berth : berths) {
+			freeBerths.put(key(berth.getCapacity(), berth.getId()), berth);
+		}
+		freeCount.set(berths.size());
+	}
+
+	@Override
+	public Berth acquire(int shipSize) throws InterruptedException {
+		while (true) {
+			long version = parkingLot.version();
+			Berth berth = tryAcquire(shipSize);
+			if (berth != null) {
+				return berth;
+			}
+			parkingLot.await(version);
+		}
+	}
+
+	@Override
+	public Berth acquire(int shipSize, long timeout, TimeUnit unit) throws InterruptedException {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		while (true) {
+			long version = parkingLot.version();
+			Berth berth = tryAcquire(shipSize);
+			if (berth != null || !parkingLot.await(version, deadline)) {
+				return berth;
+			}
+		}
+	}
+
+	@Override
+	public Berth tryAcquire(int shipSize) {
+		for (Map.Entry<Long, Berth> entry : freeBerths.tailMap(key(shipSize, 0)).entrySet()) {
+			if (freeBerths.remove(entry.getKey(), entry.getValue())) {
+				freeCount.decrementAndGet();
+				return entry.getValue();
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public Berth tryAcquire(int shipSize, Predicate<Berth> filter) {
+		for (Map.Entry<Long, Berth> entry : freeBerths.tailMap(key(shipSize, 0)).entrySet()) {
+			if (filter.test(entry.getValue()) && freeBerths.remove(entry.getKey(), entry.getValue())) {
+				freeCount.decrementAndGet();
+				return entry.getValue();
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public void release(Berth berth) {
+		freeBerths.put(key(berth.getCapacity(), berth.getId()), berth);
+		freeCount.incrementAndGet();
+		parkingLot.signalAll();
+	}
+
+	@Override
+	public int getFreeCount() {
+		return freeCount.get();
+	}
+
+	/**
+	 * Builds the skip list key ordering berths by capacity, then by id
+	 * @param capacity the berth capacity
+	 * @param id the berth id
+	 * @return the key
+	 */
+	private static long key(int capacity, int id) {
+		return ((long) capacity << 32) | (id & 0xFFFFFFFFL);
+	}
+}
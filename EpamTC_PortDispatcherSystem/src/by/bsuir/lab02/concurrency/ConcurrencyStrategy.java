@@ -0,0 +1,29 @@
+package by.bsuir.lab02.concurrency;
+
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+
+import by.bsuir.lab02.port.Berth;
+
+/**
+ * ConcurrencyStrategy is the interface of the synchronization the port is built with:
+ *  how free berths are allocated to ships and how warehouses are locked for transfers
+ *
+ * @version 1.0
+ * @author Sytau
+ */
+public interface ConcurrencyStrategy {
+
+	/**
+	 * Creates the pool of free berths
+	 * @param berths the berths of the port, all free
+	 * @return the instance of BerthPool class
+	 */
+	BerthPool newBerthPool(List<Berth> berths);
+
+	/**
+	 * Creates the lock a warehouse is held with during transfers
+	 * @return the exclusive lock
+	 */
+	Lock newWarehouseLock();
+}
@@ -0,0 +1,106 @@
+package by.bsuir.lab02.concurrency;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import by.bsuir.lab02.port.Berth;
+
+/**
+ * LockBerthPool is the berth pool guarded by a ReentrantLock,
+ *  ships wait for a berth on its condition
+ *
+ * @version 1.0
+ * @author Sytau
+ */
+class LockBerthPool implements BerthPool {
+
+	/** Free berths */
+	private BerthIndex freeBerths;
+
+	private ReentrantLock lock = new ReentrantLock();
+	private Condition released = lock.newCondition();
+
+	/**
+	 * Constructor builds a new instance of LockBerthPool
+	 * @param berths the free berths
+	 */
+	LockBerthPool(List<Berth> berths) {
+		freeBerths = new BerthIndex(berths);
+	}
+
+	@Override
+	public Berth acquire(int shipSize) throws InterruptedException {
+		lock.lockInterruptibly();
+		try {
+			Berth berth;
+			while ((berth = freeBerths.poll(shipSize)) == null) {
+				released.await();
+			}
+			return berth;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public Berth acquire(int shipSize, long timeout, TimeUnit unit) throws InterruptedException {
+		long remaining = unit.toNanos(timeout);
+		lock.lockInterruptibly();
+		try {
+			Berth berth;
+			while ((berth = freeBerths.poll(shipSize)) == null) {
+				if (remaining <= 0) {
+					return null;
+				}
+				remaining = released.awaitNanos(remaining);
+			}
+			return berth;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public Berth tryAcquire(int shipSize) {
+		lock.lock();
+		try {
+			return freeBerths.poll(shipSize);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public Berth tryAcquire(int shipSize, Predicate<Berth> filter) {
+		lock.lock();
+		try {
+			return freeBerths.poll(shipSize, filter);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void release(Berth berth) {
+		lock.lock();
+		try {
+			freeBerths.add(berth);
+			released.signalAll(); // waiting ships of any size may fit the berth
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public int getFreeCount() {
+		lock.lock();
+		try {
+			return freeBerths.size();
+		} finally {
+			lock.unlock();
+		}
+	}
+}
@@ -0,0 +1,159 @@
+package by.bsuir.lab02.concurrency;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import by.bsuir.lab02.port.Berth;
+
+/**
+ * MonitorBerthPool is the berth pool guarded by its intrinsic monitor.
+ * A ship that finds no fitting berth queues a wait node and waits on the node's own
+ *  monitor. A released berth is handed to the first queued ship it fits and only that
+ *  ship is notified, so a release wakes one thread however many ships wait.
+ *
+ * @version 1.0
+ * @author Sytau
+ */
+class MonitorBerthPool implements BerthPool {
+
+	/** Free berths */
+	private BerthIndex freeBerths;
+
+	/** Ships waiting for a berth in the order of their arrival */
+	private LinkedList<WaitNode> waiters = new LinkedList<WaitNode>();
+
+	/**
+	 * Constructor builds a new instance of MonitorBerthPool
+	 * @param berths the free berths
+	 */
+	MonitorBerthPool(List<Berth> berths) {
+		freeBerths = new BerthIndex(berths);
+	}
+
+	@Override
+	public Berth acquire(int shipSize) throws InterruptedException {
+		WaitNode node;
+		synchronized (this) {
+			Berth berth = freeBerths.poll(shipSize);
+			if (berth != null) {
+				return berth;
+			}
+			node = new WaitNode(shipSize);
+			waiters.add(node);
+		}
+		try {
+			synchronized (node) {
+				while (node.berth == null) {
+					node.wait();
+				}
+			}
+		} catch (InterruptedException e) {
+			Berth handed = leave(node);
+			if (handed != null) {
+				release(handed); // the berth has come too late for this ship
+			}
+			throw e;
+		}
+		return node.berth;
+	}
+
+	@Override
+	public Berth acquire(int shipSize, long timeout, TimeUnit unit) throws InterruptedException {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		WaitNode node;
+		synchronized (this) {
+			Berth berth = freeBerths.poll(shipSize);
+			if (berth != null) {
+				return berth;
+			}
+			node = new WaitNode(shipSize);
+			waiters.add(node);
+		}
+		try {
+			synchronized (node) {
+				while (node.berth == null) {
+					long remaining = deadline - System.nanoTime();
+					if (remaining <= 0) {
+						break;
+					}
+					TimeUnit.NANOSECONDS.timedWait(node, remaining);
+				}
+			}
+		} catch (InterruptedException e) {
+			Berth handed = leave(node);
+			if (handed != null) {
+				release(handed); // the berth has come too late for this ship
+			}
+			throw e;
+		}
+		return leave(node); // the berth may have been handed just after the timeout
+	}
+
+	@Override
+	public synchronized Berth tryAcquire(int shipSize) {
+		return freeBerths.poll(shipSize);
+	}
+
+	@Override
+	public synchronized Berth tryAcquire(int shipSize, Predicate<Berth> filter) {
+		return freeBerths.poll(shipSize, filter);
+	}
+
+	@Override
+	public void release(Berth berth) {
+		WaitNode chosen = null;
+		synchronized (this) {
+			Iterator<WaitNode> iterator = waiters.iterator();
+			while (iterator.hasNext()) {
+				WaitNode node = iterator.next();
+				if (node.shipSize <= berth.getCapacity()) {
+					iterator.remove();
+					node.berth = berth; // handed over under the pool monitor, so a leaving ship sees it
+					chosen = node;
+					break;
+				}
+			}
+			if (chosen == null) {
+				freeBerths.add(berth);
+				return;
+			}
+		}
+		synchronized (chosen) {
+			chosen.notify();
+		}
+	}
+
+	@Override
+	public synchronized int getFreeCount() {
+		return freeBerths.size();
+	}
+
+	/**
+	 * Removes the node of the ship that stops waiting unless a berth has been handed to it
+	 * @param node the wait node of the ship
+	 * @return the handed berth or <b>null</b>
+	 */
+	private synchronized Berth leave(WaitNode node) {
+		if (node.berth == null) {
+			waiters.remove(node);
+		}
+		return node.berth;
+	}
+
+	/**
+	 * WaitNode is the place of a waiting ship in the queue
+	 */
+	private static class WaitNode {
+		int shipSize;
+
+		/** The berth handed to the ship, set under the pool monitor */
+		volatile Berth berth;
+
+		WaitNode(int shipSize) {
+			this.shipSize = shipSize;
+		}
+	}
+}
@@ -0,0 +1,98 @@
+package by.bsuir.lab02.concurrency;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * MonitorLock is the reentrant lock built on the intrinsic monitor of the object:
+ *  the owner is changed in <code>synchronized</code> blocks and waiting threads
+ *  sleep in <code>wait()</code>. Unlike a bare <code>synchronized</code> block
+ *  it can be taken with a timeout and held across methods.
+ *
+ * @version 1.0
+ * @author Sytau
+ */
+class MonitorLock implements Lock {
+
+	/** The thread holding the lock */
+	private Thread owner;
+
+	/** Quantity of nested holds of the owner */
+	private int holds;
+
+	@Override
+	public synchronized void lock() {
+		boolean interrupted = false;
+		while (!tryTake()) {
+			try {
+				wait();
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	@Override
+	public synchronized void lockInterruptibly() throws InterruptedException {
+		while (!tryTake()) {
+			wait();
+		}
+	}
+
+	@Override
+	public synchronized boolean tryLock() {
+		return tryTake();
+	}
+
+	@Override
+	public synchronized boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+		long deadline = System.nanoTime() + unit.toNanos(time);
+		while (!tryTake()) {
+			long remaining = deadline - System.nanoTime();
+			if (remaining <= 0) {
+				return false;
+			}
+			TimeUnit.NANOSECONDS.timedWait(this, remaining);
+		}
+		return true;
+	}
+
+	@Override
+	public synchronized void unlock() {
+		if (owner != Thread.currentThread()) {
+			throw new IllegalMonitorStateException();
+		}
+		if (--holds == 0) {
+			owner = null;
+			notify();
+		}
+	}
+
+	/**
+	 * Transfers need no conditions on warehouse locks
+	 * @throws UnsupportedOperationException always
+	 */
+	@Override
+	public Condition newCondition() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Takes the lock if it is free or held by the current thread. Must be called in a synchronized method.
+	 * @return <b>true</b> if the lock is taken
+	 */
+	private boolean tryTake() {
+		Thread current = Thread.currentThread();
+		if (owner == null) {
+			owner = current;
+		} else if (owner != current) {
+			return false;
+		}
+		holds++;
+		return true;
+	}
+}
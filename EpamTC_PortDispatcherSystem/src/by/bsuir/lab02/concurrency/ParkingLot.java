@@ -0,0 +1,87 @@
+package by.bsuir.lab02.concurrency;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * ParkingLot is the place where threads of pools without conditions wait for a release.
+ *  A thread reads the version, tries to take a berth and parks only if no release
+ *  has changed the version since, so no release is missed.
+ *
+ * @version 1.0
+ * @author Sytau
+ */
+class ParkingLot {
+
+	private Queue<Thread> parked = new ConcurrentLinkedQueue<Thread>();
+
+	/** Quantity of releases */
+	private AtomicLong version = new AtomicLong();
+
+	/**
+	 * Gets the version to pass to {@link ParkingLot#await(long)}
+	 * @return the quantity of releases
+	 */
+	long version() {
+		return version.get();
+	}
+
+	/**
+	 * Parks the current thread until the version changes
+	 * @param seenVersion the version read before the failed attempt
+	 * @throws InterruptedException If the thread is interrupted while waiting
+	 */
+	void await(long seenVersion) throws InterruptedException {
+		Thread current = Thread.currentThread();
+		parked.add(current);
+		try {
+			while (version.get() == seenVersion) {
+				if (Thread.interrupted()) {
+					throw new InterruptedException();
+				}
+				LockSupport.park(this);
+			}
+		} finally {
+			parked.remove(current);
+		}
+	}
+
+	/**
+	 * Parks the current thread until the version changes or the deadline comes
+	 * @param seenVersion the version read before the failed attempt
+	 * @param deadline the {@link System#nanoTime()} to stop waiting at
+	 * @return <b>false</b> if the deadline has come
+	 * @throws InterruptedException If the thread is interrupted while waiting
+	 */
+	boolean await(long seenVersion, long deadline) throws InterruptedException {
+		Thread current = Thread.currentThread();
+		parked.add(current);
+		try {
+			while (version.get() == seenVersion) {
+				if (Thread.interrupted()) {
+					throw new InterruptedException();
+				}
+				long remaining = deadline - System.nanoTime();
+				if (remaining <= 0) {
+					return false;
+				}
+				LockSupport.parkNanos(this, remaining);
+			}
+			return true;
+		} finally {
+			parked.remove(current);
+		}
+	}
+
+	/**
+	 * Changes the version and wakes all parked threads to try again
+	 */
+	void signalAll() {
+		version.incrementAndGet();
+		for (Thread thread : parked) {
+			LockSupport.unpark(thread);
+		}
+	}
+}
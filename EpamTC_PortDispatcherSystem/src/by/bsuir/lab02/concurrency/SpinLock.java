@@ -0,0 +1,111 @@
+package by.bsuir.lab02.concurrency;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * SpinLock is the reentrant lock taken by compare-and-set of its owner.
+ *  A waiting thread spins a few times, then yields, then parks for short periods,
+ *  so short transfers never put a thread to sleep.
+ *
+ * @version 1.0
+ * @author Sytau
+ */
+class SpinLock implements Lock {
+
+	private static final int SPINS = 64;
+	private static final int YIELDS = 16;
+
+	/** Longest park of a waiting thread in nanoseconds */
+	private static final long PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+	private AtomicReference<Thread> owner = new AtomicReference<Thread>();
+
+	/** Quantity of nested holds, changed by the owner only */
+	private int holds;
+
+	@Override
+	public void lock() {
+		for (int attempt = 0; !tryLock(); attempt++) {
+			backOff(attempt, PARK_NANOS);
+		}
+	}
+
+	@Override
+	public void lockInterruptibly() throws InterruptedException {
+		for (int attempt = 0; !tryLock(); attempt++) {
+			if (Thread.interrupted()) {
+				throw new InterruptedException();
+			}
+			backOff(attempt, PARK_NANOS);
+		}
+	}
+
+	@Override
+	public boolean tryLock() {
+		Thread current = Thread.currentThread();
+		if (owner.get() == current) {
+			holds++;
+			return true;
+		}
+		if (owner.compareAndSet(null, current)) {
+			holds = 1;
+			return true;
+		}
+		return false;
+	}
+
+	@Override
+	public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+		long deadline = System.nanoTime() + unit.toNanos(time);
+		for (int attempt = 0; !tryLock(); attempt++) {
+			if (Thread.interrupted()) {
+				throw new InterruptedException();
+			}
+			long remaining = deadline - System.nanoTime();
+			if (remaining <= 0) {
+				return false;
+			}
+			backOff(attempt, Math.min(remaining, PARK_NANOS));
+		}
+		return true;
+	}
+
+	@Override
+	public void unlock() {
+		if (owner.get() != Thread.currentThread()) {
+			throw new IllegalMonitorStateException();
+		}
+		if (--holds == 0) {
+			owner.set(null);
+		}
+	}
+
+	/**
+	 * Transfers need no conditions on warehouse locks
+	 * @throws UnsupportedOperationException always
+	 */
+	@Override
+	public Condition newCondition() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Waits before the next attempt to take the lock
+	 * @param attempt the number of the failed attempt
+	 * @param parkNanos the longest time to park
+	 */
+	private static void backOff(int attempt, long parkNanos) {
+		if (attempt < SPINS) {
+			return;
+		}
+		if (attempt < SPINS + YIELDS) {
+			Thread.yield();
+		} else {
+			LockSupport.parkNanos(parkNanos);
+		}
+	}
+}
@@ -0,0 +1,103 @@
+package by.bsuir.lab02.concurrency;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.concurrent.locks.StampedLock;
+
+import by.bsuir.lab02.port.Berth;
+
+/**
+ * StampedBerthPool is the berth pool which index is guarded by write stamps
+ *  of a StampedLock. StampedLock has no conditions, so ships wait for a release
+ *  in a parking lot.
+ *
+ * @version 1.0
+ * @author Sytau
+ */
+class StampedBerthPool implements BerthPool {
+
+	/** Free berths */
+	private BerthIndex freeBerths;
+
+	private StampedLock lock = new StampedLock();
+	private ParkingLot parkingLot = new ParkingLot();
+
+	/**
+	 * Constructor builds a new instance of StampedBerthPool
+	 * @param berths the free berths
+	 */
+	StampedBerthPool(List<Berth> berths) {
+		freeBerths = new BerthIndex(berths);
+	}
+
+	@Override
+	public Berth acquire(int shipSize) throws InterruptedException {
+		while (true) {
+			long version = parkingLot.version();
+			Berth berth = tryAcquire(shipSize);
+			if (berth != null) {
+				return berth;
+			}
+			parkingLot.await(version);
+		}
+	}
+
+	@Override
+	public Berth acquire(int shipSize, long timeout, TimeUnit unit) throws InterruptedException {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		while (true) {
+			long version = parkingLot.version();
+			Berth berth = tryAcquire(shipSize);
+			if (berth != null || !parkingLot.await(version, deadline)) {
+				return berth;
+			}
+		}
+	}
+
+	@Override
+	public Berth tryAcquire(int shipSize) {
+		long stamp = lock.writeLock();
+		try {
+			return freeBerths.poll(shipSize);
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	@Override
+	public Berth tryAcquire(int shipSize, Predicate<Berth> filter) {
+		long stamp = lock.writeLock();
+		try {
+			return freeBerths.poll(shipSize, filter);
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	@Override
+	public void release(Berth berth) {
+		long stamp = lock.writeLock();
+		try {
+			freeBerths.add(berth);
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+		parkingLot.signalAll();
+	}
+
+	@Override
+	public int getFreeCount() {
+		long stamp = lock.tryOptimisticRead();
+		int count = freeBerths.size();
+		if (!lock.validate(stamp)) {
+			stamp = lock.readLock();
+			try {
+				count = freeBerths.size();
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		return count;
+	}
+}
@@ -0,0 +1,82 @@
+package by.bsuir.lab02.concurrency;
+
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
+
+import by.bsuir.lab02.port.Berth;
+
+/**
+ * StandardStrategy is the enumeration of the concurrency strategies the port can be started with
+ *
+ * @version 1.0
+ * @author Sytau
+ */
+public enum StandardStrategy implements ConcurrencyStrategy {
+
+	/** Intrinsic monitors: synchronized, wait and notify */
+	MONITOR {
+		@Override
+		public BerthPool newBerthPool(List<Berth> berths) {
+			return new MonitorBerthPool(berths);
+		}
+
+		@Override
+		public Lock newWarehouseLock() {
+			return new MonitorLock();
+		}
+	},
+
+	/** ReentrantLock and its conditions */
+	REENTRANT_LOCK {
+		@Override
+		public BerthPool newBerthPool(List<Berth> berths) {
+			return new LockBerthPool(berths);
+		}
+
+		@Override
+		public Lock newWarehouseLock() {
+			return new ReentrantLock();
+		}
+	},
+
+	/** StampedLock write stamps, waiting for a berth in a parking lot */
+	STAMPED_LOCK {
+		@Override
+		public BerthPool newBerthPool(List<Berth> berths) {
+			return new StampedBerthPool(berths);
+		}
+
+		@Override
+		public Lock newWarehouseLock() {
+			return new StampedLock().asWriteLock();
+		}
+	},
+
+	/** Compare-and-set without locks, waiting for a berth in a parking lot */
+	CAS {
+		@Override
+		public BerthPool newBerthPool(List<Berth> berths) {
+			return new CasBerthPool(berths);
+		}
+
+		@Override
+		public Lock newWarehouseLock() {
+			return new SpinLock();
+		}
+	},
+
+	/** Atomic bitmap of free berths, waiting for a berth in a parking lot */
+	BITMAP {
+		@Override
+		public BerthPool newBerthPool(List<Berth> berths) {
+			return new BitmapBerthPool(berths);
+		}
+
+		@Override
+		public Lock newWarehouseLock() {
+			return new ReentrantLock();
+		}
+	}
+}
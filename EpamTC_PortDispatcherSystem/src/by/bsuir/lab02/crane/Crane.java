@@ -0,0 +1,165 @@
+package by.bsuir.lab02.crane;
+
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Crane is the worker of the port crane pool. It moves the containers of its own deque
+ *  from the head, and when the deque is empty it steals a batch from the tail of the
+ *  fullest deque of the pool. A crane moving containers at another berth travels there first.
+ *
+ * @version 1.0
+ * @author Sytau
+ */
+public class Crane implements Runnable {
+
+	private CranePool pool;
+	private String name;
+
+	/** Id of the berth the crane stands at when the pool starts */
+	private int homeBerthId;
+
+	/** Id of the berth the crane stands at now */
+	private int position;
+
+	/** Container moves of this crane, others take them from the tail */
+	ConcurrentLinkedDeque<CranePool.Move> deque = new ConcurrentLinkedDeque<CranePool.Move>();
+
+	/** Quantity of moves in the deque, the deque itself isn't counted in constant time */
+	AtomicInteger queued = new AtomicInteger();
+
+	private LongAdder busyTime = new LongAdder();
+	private LongAdder travelTime = new LongAdder();
+	private LongAdder movedContainers = new LongAdder();
+	private LongAdder stolenMoves = new LongAdder();
+
+	/**
+	 * Constructor builds a new instance of Crane standing at the berth
+	 * @param pool the pool of the crane
+	 * @param name the name of the crane
+	 * @param homeBerthId the id of the berth of the crane
+	 */
+	Crane(CranePool pool, String name, int homeBerthId) {
+		this.pool = pool;
+		this.name = name;
+		this.homeBerthId = homeBerthId;
+		this.position = homeBerthId;
+	}
+
+	/**
+	 * Getter for the field {@link Crane#name}
+	 * @return the crane <b>name</b>
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Getter for the field {@link Crane#homeBerthId}
+	 * @return the id of the berth of the crane
+	 */
+	public int getHomeBerthId() {
+		return homeBerthId;
+	}
+
+	/**
+	 * Gets the time the crane has been moving containers
+	 * @return the busy time in milliseconds
+	 */
+	public long getBusyTime() {
+		return busyTime.sum();
+	}
+
+	/**
+	 * Gets the time the crane has been travelling between berths
+	 * @return the travel time in milliseconds
+	 */
+	public long getTravelTime() {
+		return travelTime.sum();
+	}
+
+	/**
+	 * Gets the quantity of containers the crane has moved
+	 * @return the quantity of containers
+	 */
+	public long getMovedContainers() {
+		return movedContainers.sum();
+	}
+
+	/**
+	 * Gets the quantity of moves the crane has stolen from other cranes
+	 * @return the quantity of moves
+	 */
+	public long getStolenMoves() {
+		return stolenMoves.sum();
+	}
+
+	/**
+	 * Runs the crane until the pool is closed or the thread is interrupted
+	 */
+	@Override
+	public void run() {
+		try {
+			while (!pool.isClosed()) {
+				CranePool.Move move = deque.pollFirst();
+				if (move != null) {
+					queued.decrementAndGet();
+					execute(move);
+				} else if (!steal()) {
+					pool.awaitWork(this);
+				}
+			}
+		} catch (InterruptedException e) {
+			// the pool is closed
+		}
+	}
+
+	/**
+	 * Moves the container, travelling to its berth first
+	 * @param move the container move
+	 * @throws InterruptedException If the thread is interrupted
+	 */
+	private void execute(CranePool.Move move) throws InterruptedException {
+		if (move.isCancelled()) {
+			pool.completed(move, 0);
+			return;
+		}
+		if (move.getBerthId() != position) {
+			long travel = pool.getTravelTime();
+			pool.getClock().sleep(travel);
+			travelTime.add(travel);
+			position = move.getBerthId();
+		}
+		pool.getClock().sleep(move.getDuration());
+		busyTime.add(move.getDuration());
+		movedContainers.increment();
+		pool.completed(move, move.getDuration());
+	}
+
+	/**
+	 * Takes half of the moves of the fullest deque to this crane deque,
+	 * 	the victim keeps at least one move
+	 * @return <b>true</b> if some moves are stolen
+	 */
+	private boolean steal() {
+		Crane victim = pool.fullest(this);
+		if (victim == null) {
+			return false;
+		}
+		int batch = victim.queued.get() / 2;
+		int stolen = 0;
+		for (int i = 0; i < batch; i++) {
+			CranePool.Move move = victim.deque.pollLast();
+			if (move == null) {
+				break;
+			}
+			victim.queued.decrementAndGet();
+			deque.addFirst(move); // the tail of the victim comes last
+			queued.incrementAndGet();
+			stolen++;
+		}
+		stolenMoves.add(stolen);
+		return stolen > 0;
+	}
+}
@@ -0,0 +1,352 @@
+package by.bsuir.lab02.crane;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+
+import by.bsuir.lab02.port.Berth;
+import by.bsuir.lab02.simulation.Clock;
+import by.bsuir.lab02.simulation.DeterministicScheduler;
+
+/**
+ * CranePool is the port-wide pool of cranes. The containers of a transfer are split
+ *  into moves dealt to the cranes of the berth, and a crane out of work steals moves
+ *  of other cranes, travelling to their berth. So idle cranes of a quiet berth help
+ *  a busy one, and a berth is served by more cranes than it has.
+ * The pool runs in the time of the port clock. Cranes of a deterministic run are
+ *  threads of its scheduler and wait for work by the scheduler, so the run is repeatable.
+ *
+ * @version 1.0
+ * @author Sytau
+ */
+public class CranePool {
+
+	/** Time a crane travels between berths by default, in milliseconds */
+	public static final long DEFAULT_TRAVEL_TIME = 200;
+
+	private static final BooleanSupplier ALWAYS_HELD = new BooleanSupplier() {
+		@Override
+		public boolean getAsBoolean() {
+			return true;
+		}
+	};
+
+	private List<Crane> cranes = new ArrayList<Crane>();
+
+	/** Cranes of each berth, indexed by the berth id */
+	private List<List<Crane>> berthCranes = new ArrayList<List<Crane>>();
+
+	/** Time cranes have moved containers of each berth, indexed by the berth id */
+	private LongAdder[] berthBusyTime;
+
+	private Clock clock;
+
+	/** Scheduler of the deterministic run, <b>null</b> if cranes run in real time */
+	private DeterministicScheduler scheduler;
+
+	private double craneSpeed;
+	private long travelTime;
+
+	private Lock lock = new ReentrantLock();
+	private Condition workAdded = lock.newCondition();
+	private Condition moveCompleted = lock.newCondition();
+
+	private List<Thread> threads = new ArrayList<Thread>();
+	private volatile boolean closed;
+	private long startedAt;
+
+	/**
+	 * Constructor builds a new instance of CranePool with the cranes of the berths
+	 * @param berths the berths of the port, each has its quantity of cranes
+	 * @param clock the port clock, the scheduler of a deterministic run
+	 * @param craneSpeed the speed of the cranes relative to the standard one
+	 * @param travelTime the time a crane travels between berths in milliseconds
+	 */
+	public CranePool(List<Berth> berths, Clock clock, double craneSpeed, long travelTime) {
+		this.clock = clock;
+		this.scheduler = clock instanceof DeterministicScheduler ? (DeterministicScheduler) clock : null;
+		this.craneSpeed = craneSpeed;
+		this.travelTime = travelTime;
+		berthBusyTime = new LongAdder[berths.size()];
+		for (Berth berth : berths) {
+			if (berth.getId() != berthCranes.size()) {
+				throw new IllegalArgumentException("Berths must be ordered by id.");
+			}
+			List<Crane> own = new ArrayList<Crane>(berth.getCraneCount());
+			for (int i = 0; i < berth.getCraneCount(); i++) {
+				Crane crane = new Crane(this, "Crane-" + berth.getId() + "-" + (i + 1), berth.getId());
+				own.add(crane);
+				cranes.add(crane);
+			}
+			berthCranes.add(own);
+			berthBusyTime[berth.getId()] = new LongAdder();
+		}
+	}
+
+	/**
+	 * Starts the crane threads. Cranes of a deterministic run must be started before the run.
+	 */
+	public void start() {
+		startedAt = clock.currentTimeMillis();
+		for (Crane crane : cranes) {
+			Thread thread;
+			if (scheduler != null) {
+				thread = scheduler.newThread(crane, crane.getName());
+			} else {
+				thread = new Thread(crane, crane.getName());
+				thread.setDaemon(true);
+			}
+			threads.add(thread);
+			thread.start();
+		}
+	}
+
+	/**
+	 * Moves the containers of the transfer at the berth and waits until all of them are moved.
+	 * 	The move times are taken from the random stream of the ship.
+	 * @param berth the berth of the ship
+	 * @param containers the quantity of containers
+	 * @param random the random stream of the ship
+	 * @throws InterruptedException If the thread is interrupted, the moves left are dropped
+	 */
+	public void move(Berth berth, int containers, SplittableRandom random) throws InterruptedException {
+		move(berth, containers, random, ALWAYS_HELD);
+	}
+
+	/**
+	 * Moves the containers of the transfer while the ship holds the berth. Cranes check
+	 * 	the hold before every container and drop the moves left once it is lost.
+	 * @param berth the berth of the ship
+	 * @param containers the quantity of containers
+	 * @param random the random stream of the ship
+	 * @param held tells whether the ship still holds the berth
+	 * @throws InterruptedException If the thread is interrupted, the moves left are dropped
+	 */
+	public void move(Berth berth, int containers, SplittableRandom random, BooleanSupplier held)
+			throws InterruptedException {
+		List<Crane> own = berthCranes.get(berth.getId());
+		Job job = new Job(containers, held);
+		for (int i = 0; i < containers; i++) {
+			long duration = (long) ((random.nextInt(120) + 240) / craneSpeed);
+			Crane crane = own.isEmpty() ? cranes.get(i % cranes.size()) : own.get(i % own.size());
+			crane.queued.incrementAndGet();
+			crane.deque.addLast(new Move(job, berth.getId(), duration));
+		}
+		signalWork();
+		try {
+			if (scheduler != null) {
+				while (job.remaining.get() > 0) {
+					scheduler.await(job);
+				}
+			} else {
+				lock.lock();
+				try {
+					while (job.remaining.get() > 0) {
+						moveCompleted.await();
+					}
+				} finally {
+					lock.unlock();
+				}
+			}
+		} catch (InterruptedException e) {
+			job.cancelled = true;
+			throw e;
+		}
+	}
+
+	/**
+	 * Stops the cranes, moves in their deques are dropped
+	 */
+	public void close() {
+		closed = true;
+		for (Thread thread : threads) {
+			thread.interrupt();
+		}
+	}
+
+	/**
+	 * Gets the cranes of the pool
+	 * @return the unmodifiable list of cranes ordered by berth
+	 */
+	public List<Crane> getCranes() {
+		return Collections.unmodifiableList(cranes);
+	}
+
+	/**
+	 * Gets the share of the time the crane has been moving containers since the pool started
+	 * @param crane the crane of the pool
+	 * @return the utilization from 0 to 1
+	 */
+	public double getUtilization(Crane crane) {
+		return crane.getBusyTime() / (double) elapsed();
+	}
+
+	/**
+	 * Gets the crane time spent at the berth per crane of the berth since the pool started,
+	 * 	it is over 1 if cranes of other berths have helped
+	 * @param berth the berth of the port
+	 * @return the utilization of the berth cranes
+	 */
+	public double getUtilization(Berth berth) {
+		int craneCount = Math.max(1, berthCranes.get(berth.getId()).size());
+		return berthBusyTime[berth.getId()].sum() / (double) elapsed() / craneCount;
+	}
+
+	Clock getClock() {
+		return clock;
+	}
+
+	long getTravelTime() {
+		return travelTime;
+	}
+
+	boolean isClosed() {
+		return closed;
+	}
+
+	/**
+	 * Finds the crane with the most moves to steal from
+	 * @param thief the crane out of work
+	 * @return the crane with at least two moves or <b>null</b> if there is none
+	 */
+	Crane fullest(Crane thief) {
+		Crane fullest = null;
+		int most = 1;
+		for (Crane crane : cranes) {
+			int count = crane.queued.get();
+			if (crane != thief && count > most) {
+				fullest = crane;
+				most = count;
+			}
+		}
+		return fullest;
+	}
+
+	/**
+	 * Waits until there is a move the crane can take: one of its own or one to steal
+	 * @param crane the crane out of work
+	 * @throws InterruptedException If the thread is interrupted
+	 */
+	void awaitWork(Crane crane) throws InterruptedException {
+		if (scheduler != null) {
+			// only one thread runs at a time, so no work can be added after the check
+			if (!hasWork(crane)) {
+				scheduler.await(this);
+			}
+			return;
+		}
+		lock.lock();
+		try {
+			while (!hasWork(crane) && !closed) {
+				workAdded.await();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Checks whether the crane can take a move
+	 * @param crane the crane
+	 * @return <b>true</b> if it has moves or there are moves to steal
+	 */
+	private boolean hasWork(Crane crane) {
+		return crane.queued.get() > 0 || fullest(crane) != null;
+	}
+
+	/**
+	 * Counts the finished move and wakes the ship when its transfer is over
+	 * @param move the container move
+	 * @param duration the time the move has taken, 0 if it was dropped
+	 */
+	void completed(Move move, long duration) {
+		berthBusyTime[move.berthId].add(duration);
+		if (move.job.remaining.decrementAndGet() > 0) {
+			return;
+		}
+		if (scheduler != null) {
+			scheduler.signalAll(move.job);
+		} else {
+			lock.lock();
+			try {
+				moveCompleted.signalAll();
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * Wakes the cranes waiting for work
+	 */
+	private void signalWork() {
+		if (scheduler != null) {
+			scheduler.signalAll(this);
+			return;
+		}
+		lock.lock();
+		try {
+			workAdded.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Gets the time since the pool started
+	 * @return the time in milliseconds, at least 1
+	 */
+	private long elapsed() {
+		return Math.max(1, clock.currentTimeMillis() - startedAt);
+	}
+
+	/**
+	 * Job is the transfer of a ship waiting for its moves
+	 */
+	private static class Job {
+		private AtomicInteger remaining;
+		private volatile boolean cancelled;
+
+		/** Tells whether the ship still holds its berth */
+		private BooleanSupplier held;
+
+		Job(int containers, BooleanSupplier held) {
+			remaining = new AtomicInteger(containers);
+			this.held = held;
+		}
+	}
+
+	/**
+	 * Move is the move of one container by a crane
+	 */
+	static class Move {
+		private Job job;
+		private int berthId;
+		private long duration;
+
+		Move(Job job, int berthId, long duration) {
+			this.job = job;
+			this.berthId = berthId;
+			this.duration = duration;
+		}
+
+		int getBerthId() {
+			return berthId;
+		}
+
+		long getDuration() {
+			return duration;
+		}
+
+		boolean isCancelled() {
+			return job.cancelled || !job.held.getAsBoolean();
+		}
+	}
+}
@@ -0,0 +1,79 @@
+package by.bsuir.lab02.event;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.apache.log4j.Logger;
+
+/**
+ * EventCounter is the subscriber counting port events of each type.
+ *  It requests events in batches and asks for the next batch when half of it has come.
+ *
+ * @version 1.0
+ * @author Sytau
+ */
+public class EventCounter implements Flow.Subscriber<PortEvent> {
+	private final Logger eventLogger = Logger.getLogger(EventCounter.class);
+
+	private static final int BATCH = 256;
+
+	/** Quantity of events of each type, indexed by the type ordinal */
+	private AtomicLongArray counts = new AtomicLongArray(PortEvent.Type.values().length);
+
+	/** Quantity of containers of completed transfers */
+	private volatile long containers;
+
+	private Flow.Subscription subscription;
+
+	/** Events received from the current batch request */
+	private int received;
+
+	@Override
+	public void onSubscribe(Flow.Subscription subscription) {
+		this.subscription = subscription;
+		subscription.request(BATCH);
+	}
+
+	@Override
+	public void onNext(PortEvent event) {
+		counts.incrementAndGet(event.getType().ordinal());
+		if (event.getType() == PortEvent.Type.TRANSFER_COMPLETED) {
+			containers += event.getContainerCount();
+		}
+		if (++received == BATCH / 2) {
+			received = 0;
+			subscription.request(BATCH / 2);
+		}
+	}
+
+	@Override
+	public void onError(Throwable throwable) {
+		eventLogger.error("Port event stream has failed.", throwable);
+	}
+
+	@Override
+	public void onComplete() {
+		eventLogger.info(report());
+	}
+
+	/**
+	 * Gets the quantity of received events of this type
+	 * @param type the event type
+	 * @return the quantity of events
+	 */
+	public long getCount(PortEvent.Type type) {
+		return counts.get(type.ordinal());
+	}
+
+	/**
+	 * Builds the report of received events
+	 * @return the report text
+	 */
+	public String report() {
+		StringBuilder report = new StringBuilder("Port events:");
+		for (PortEvent.Type type : PortEvent.Type.values()) {
+			report.append("\n  ").append(type).append(": ").append(getCount(type));
+		}
+		report.append("\n  containers transferred: ").append(containers);
+		return report.toString();
+	}
+}
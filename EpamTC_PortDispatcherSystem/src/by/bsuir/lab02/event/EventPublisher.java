@@ -0,0 +1,287 @@
+package by.bsuir.lab02.event;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.log4j.Logger;
+
+/**
+ * EventPublisher is the publisher that gives every subscriber its own bounded buffer.
+ * {@link EventPublisher#publish(Object)} never waits: the item is put into the buffer
+ *  of each subscriber, or dropped for the subscriber whose buffer is full. Buffers are
+ *  drained by tasks of the executor, each subscriber gets no more items than it has
+ *  requested, so a slow subscriber only loses its own items.
+ *
+ * @version 1.0
+ * @author Sytau
+ * @param <T> the type of published items
+ */
+public class EventPublisher<T> implements Flow.Publisher<T> {
+	private final static Logger logger = Logger.getRootLogger();
+
+	/** Default capacity of a subscriber buffer */
+	public static final int DEFAULT_BUFFER_CAPACITY = 1024;
+
+	private Executor executor;
+	private int bufferCapacity;
+
+	/** Active subscriptions */
+	private List<BufferedSubscription> subscriptions = new CopyOnWriteArrayList<BufferedSubscription>();
+
+	/** Quantity of items dropped because of full buffers */
+	private LongAdder dropped = new LongAdder();
+
+	/** Flag that indicates that nothing will be published */
+	private volatile boolean closed;
+
+	/**
+	 * Constructor builds a new instance of EventPublisher delivering in the common pool
+	 */
+	public EventPublisher() {
+		this(ForkJoinPool.commonPool(), DEFAULT_BUFFER_CAPACITY);
+	}
+
+	/**
+	 * Constructor builds a new instance of EventPublisher with preset values
+	 * @param executor the executor running the deliveries
+	 * @param bufferCapacity the capacity of each subscriber buffer
+	 */
+	public EventPublisher(Executor executor, int bufferCapacity) {
+		if (bufferCapacity <= 0) {
+			throw new IllegalArgumentException("Buffer capacity must be positive: " + bufferCapacity);
+		}
+		this.executor = executor;
+		this.bufferCapacity = bufferCapacity;
+	}
+
+	@Override
+	public void subscribe(Flow.Subscriber<? super T> subscriber) {
+		if (subscriber == null) {
+			throw new NullPointerException();
+		}
+		BufferedSubscription subscription = new BufferedSubscription(subscriber);
+		subscriber.onSubscribe(subscription);
+		subscriptions.add(subscription);
+		if (closed) {
+			subscription.complete();
+		}
+	}
+
+	/**
+	 * Puts the item into the buffers of all subscribers without waiting
+	 * @param item the published item
+	 */
+	public void publish(T item) {
+		if (closed) {
+			return;
+		}
+		for (BufferedSubscription subscription : subscriptions) {
+			subscription.offer(item);
+		}
+	}
+
+	/**
+	 * Completes all subscriptions after their buffered items are delivered
+	 */
+	public void close() {
+		closed = true;
+		for (BufferedSubscription subscription : subscriptions) {
+			subscription.complete();
+		}
+	}
+
+	/**
+	 * Closes the publisher and waits until every subscriber has got its last signal.
+	 *  Deliveries run in the executor threads, which may be daemons, so the caller
+	 *  has to wait for them before the application exits.
+	 * @param timeout the longest time to wait
+	 * @param unit the unit of the timeout
+	 * @return <b>true</b> if all subscribers have been completed and <b>false</b> if the time has run out
+	 * @throws InterruptedException If the thread is interrupted while waiting
+	 */
+	public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+		List<BufferedSubscription> closing = new ArrayList<BufferedSubscription>(subscriptions);
+		close();
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		for (BufferedSubscription subscription : closing) {
+			if (!subscription.terminated.await(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Gets the quantity of items dropped for subscribers with full buffers
+	 * @return the quantity of dropped items
+	 */
+	public long getDroppedCount() {
+		return dropped.sum();
+	}
+
+	/**
+	 * Gets the quantity of active subscribers
+	 * @return the quantity of subscribers
+	 */
+	public int getSubscriberCount() {
+		return subscriptions.size();
+	}
+
+	/**
+	 * BufferedSubscription is the subscription with its buffer and demand.
+	 *  Only one delivery task runs at a time, so the subscriber is called serially.
+	 */
+	private class BufferedSubscription implements Flow.Subscription, Runnable {
+		private Flow.Subscriber<? super T> subscriber;
+		private BlockingQueue<T> buffer = new ArrayBlockingQueue<T>(bufferCapacity);
+
+		/** Quantity of items requested and not delivered yet */
+		private AtomicLong demand = new AtomicLong();
+
+		/** Quantity of signals since the delivery task was started, the task runs while it isn't 0 */
+		private AtomicInteger signals = new AtomicInteger();
+
+		private volatile boolean cancelled;
+		private volatile boolean completed;
+
+		/** Released when the subscriber has got its last signal or cancelled */
+		private CountDownLatch terminated = new CountDownLatch(1);
+
+		/** Failure to pass to the subscriber */
+		private volatile Throwable error;
+
+		BufferedSubscription(Flow.Subscriber<? super T> subscriber) {
+			this.subscriber = subscriber;
+		}
+
+		@Override
+		public void request(long n) {
+			if (n <= 0) {
+				error = new IllegalArgumentException("Requested quantity must be positive: " + n);
+			} else {
+				long current;
+				long next;
+				do {
+					current = demand.get();
+					next = current + n < 0 ? Long.MAX_VALUE : current + n;
+				} while (!demand.compareAndSet(current, next));
+			}
+			signal();
+		}
+
+		@Override
+		public void cancel() {
+			detach();
+			terminated.countDown();
+		}
+
+		/**
+		 * Stops the deliveries and removes the subscription from the publisher
+		 */
+		private void detach() {
+			cancelled = true;
+			subscriptions.remove(this);
+			buffer.clear();
+		}
+
+		/**
+		 * Buffers the item, drops it if the buffer is full
+		 * @param item the published item
+		 */
+		void offer(T item) {
+			if (!buffer.offer(item)) {
+				dropped.increment();
+				return;
+			}
+			signal();
+		}
+
+		/**
+		 * Delivers onComplete after the buffered items
+		 */
+		void complete() {
+			completed = true;
+			signal();
+		}
+
+		/**
+		 * Starts the delivery task unless it is running
+		 */
+		private void signal() {
+			if (signals.getAndIncrement() == 0) {
+				try {
+					executor.execute(this);
+				} catch (RejectedExecutionException e) {
+					detach();
+					try {
+						subscriber.onError(e);
+					} finally {
+						terminated.countDown();
+					}
+				}
+			}
+		}
+
+		/**
+		 * Delivers the buffered items up to the demand
+		 */
+		@Override
+		public void run() {
+			int missed = signals.get();
+			while (true) {
+				if (cancelled) {
+					return;
+				}
+				if (error != null) {
+					detach();
+					try {
+						subscriber.onError(error);
+					} finally {
+						terminated.countDown();
+					}
+					return;
+				}
+				long requested = demand.get();
+				long emitted = 0;
+				T item;
+				while (emitted < requested && !cancelled && (item = buffer.poll()) != null) {
+					try {
+						subscriber.onNext(item);
+					} catch (Throwable e) {
+						logger.error("Subscriber has failed, its subscription is cancelled.", e);
+						cancel();
+						return;
+					}
+					emitted++;
+				}
+				if (emitted > 0 && requested != Long.MAX_VALUE) {
+					demand.addAndGet(-emitted);
+				}
+				if (completed && buffer.isEmpty() && !cancelled) {
+					detach();
+					try {
+						subscriber.onComplete();
+					} finally {
+						terminated.countDown();
+					}
+					return;
+				}
+				missed = signals.addAndGet(-missed);
+				if (missed == 0) {
+					return;
+				}
+			}
+		}
+	}
+}
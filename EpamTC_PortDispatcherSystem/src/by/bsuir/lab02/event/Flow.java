@@ -0,0 +1,77 @@
+package by.bsuir.lab02.event;
+
+/**
+ * Flow holds the interfaces of the reactive stream contract with the same methods
+ *  and rules as <code>java.util.concurrent.Flow</code> of Java 9, which the port
+ *  can't use on Java 8. A publisher emits to a subscriber no more items than the
+ *  subscriber has requested through its subscription.
+ *
+ * @version 1.0
+ * @author Sytau
+ */
+public final class Flow {
+
+	private Flow() {
+	}
+
+	/**
+	 * Publisher is the producer of items received by subscribers
+	 * @param <T> the type of published items
+	 */
+	public interface Publisher<T> {
+
+		/**
+		 * Adds the subscriber, which gets {@link Subscriber#onSubscribe(Subscription)} first
+		 * @param subscriber the subscriber
+		 */
+		void subscribe(Subscriber<? super T> subscriber);
+	}
+
+	/**
+	 * Subscriber is the receiver of items. Its methods are called one at a time
+	 *  for each subscription.
+	 * @param <T> the type of received items
+	 */
+	public interface Subscriber<T> {
+
+		/**
+		 * Called before any other method of the subscription
+		 * @param subscription the new subscription
+		 */
+		void onSubscribe(Subscription subscription);
+
+		/**
+		 * Called with the next item if it has been requested
+		 * @param item the item
+		 */
+		void onNext(T item);
+
+		/**
+		 * Called when the subscription fails, no other method is called after it
+		 * @param throwable the failure
+		 */
+		void onError(Throwable throwable);
+
+		/**
+		 * Called when no more items will be published, no other method is called after it
+		 */
+		void onComplete();
+	}
+
+	/**
+	 * Subscription is the link of a publisher and a subscriber
+	 */
+	public interface Subscription {
+
+		/**
+		 * Adds the quantity of items the subscriber is ready to receive
+		 * @param n the positive quantity of items
+		 */
+		void request(long n);
+
+		/**
+		 * Stops receiving items, some items may be received after it
+		 */
+		void cancel();
+	}
+}
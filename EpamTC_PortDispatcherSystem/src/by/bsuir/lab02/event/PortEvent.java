@@ -0,0 +1,149 @@
+package by.bsuir.lab02.event;
+
+/**
+ * PortEvent is the entity class that describes one step of the port activity
+ *
+ * @version 1.0
+ * @author Sytau
+ */
+public class PortEvent {
+
+	/** type of the event */
+	private Type type;
+
+	/** time of the event in milliseconds of the port clock */
+	private long time;
+
+	/** name of the ship */
+	private String shipName;
+
+	/** id of the berth, -1 if the ship isn't berthed */
+	private int berthId;
+
+	/** quantity of containers of the transfer, 0 for other events */
+	private int containerCount;
+
+	/** duration of the transfer in milliseconds, 0 for other events */
+	private long duration;
+
+	/** quantity of containers moved aside in the yard to dig out the cargo */
+	private int rehandleCount;
+
+	/**
+	 * Constructor builds a new instance of PortEvent with preset values
+	 * @param type the type of the event
+	 * @param time the time of the event
+	 * @param shipName the name of the ship
+	 * @param berthId the id of the berth or -1
+	 * @param containerCount the quantity of containers of the transfer
+	 * @param duration the duration of the transfer
+	 */
+	public PortEvent(Type type, long time, String shipName, int berthId, int containerCount, long duration) {
+		this(type, time, shipName, berthId, containerCount, duration, 0);
+	}
+
+	/**
+	 * Constructor builds a new instance of PortEvent of the transfer that rehandled containers
+	 * @param type the type of the event
+	 * @param time the time of the event
+	 * @param shipName the name of the ship
+	 * @param berthId the id of the berth or -1
+	 * @param containerCount the quantity of containers of the transfer
+	 * @param duration the duration of the transfer
+	 * @param rehandleCount the quantity of rehandled containers
+	 */
+	public PortEvent(Type type, long time, String shipName, int berthId, int containerCount, long duration,
+			int rehandleCount) {
+		this.type = type;
+		this.time = time;
+		this.shipName = shipName;
+		this.berthId = berthId;
+		this.containerCount = containerCount;
+		this.duration = duration;
+		this.rehandleCount = rehandleCount;
+	}
+
+	/**
+	 * Constructor builds a new instance of PortEvent which isn't a transfer
+	 * @param type the type of the event
+	 * @param time the time of the event
+	 * @param shipName the name of the ship
+	 * @param berthId the id of the berth or -1
+	 */
+	public PortEvent(Type type, long time, String shipName, int berthId) {
+		this(type, time, shipName, berthId, 0, 0);
+	}
+
+	/**
+	 * Getter for the field {@link PortEvent#type}
+	 * @return the event <b>type</b>
+	 */
+	public Type getType() {
+		return type;
+	}
+
+	/**
+	 * Getter for the field {@link PortEvent#time}
+	 * @return the event <b>time</b> in milliseconds
+	 */
+	public long getTime() {
+		return time;
+	}
+
+	/**
+	 * Getter for the field {@link PortEvent#shipName}
+	 * @return the ship <b>name</b>
+	 */
+	public String getShipName() {
+		return shipName;
+	}
+
+	/**
+	 * Getter for the field {@link PortEvent#berthId}
+	 * @return the berth <b>id</b> or -1
+	 */
+	public int getBerthId() {
+		return berthId;
+	}
+
+	/**
+	 * Getter for the field {@link PortEvent#containerCount}
+	 * @return the <b>quantity</b> of transferred containers
+	 */
+	public int getContainerCount() {
+		return containerCount;
+	}
+
+	/**
+	 * Getter for the field {@link PortEvent#duration}
+	 * @return the transfer <b>duration</b> in milliseconds
+	 */
+	public long getDuration() {
+		return duration;
+	}
+
+	/**
+	 * Getter for the field {@link PortEvent#rehandleCount}
+	 * @return the <b>quantity</b> of rehandled containers
+	 */
+	public int getRehandleCount() {
+		return rehandleCount;
+	}
+
+	@Override
+	public String toString() {
+		return type + " " + shipName + " at " + time + (berthId >= 0 ? " berth " + berthId : "")
+				+ (type == Type.TRANSFER_COMPLETED || type == Type.TRANSFER_REJECTED
+						? " containers " + containerCount + " in " + duration + "ms"
+								+ (rehandleCount > 0 ? " rehandles " + rehandleCount : "") : "");
+	}
+
+	/**
+	 * Enumeration of event types
+	 * @author Sytau
+	 *
+	 */
+	public enum Type {
+		SHIP_ARRIVED, SHIP_BERTHED, SHIP_UNBERTHED, TRANSFER_COMPLETED, TRANSFER_REJECTED, VIOLATION_RECORDED
+	}
+}
@@ -0,0 +1,366 @@
+package by.bsuir.lab02.journal;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+import org.apache.log4j.Logger;
+
+import by.bsuir.lab02.warehouse.Warehouse;
+
+/**
+ * TransferJournal is the write-ahead log of container transfers.
+ * Records are appended to a memory buffer in the order the transfers are made
+ *  and become durable by {@link TransferJournal#commit(long)}: the first committer
+ *  writes and forces everything appended so far, so concurrent commits from
+ *  many berths share a single <code>force()</code>.
+ *
+ * @version 1.0
+ * @author Sytau
+ */
+public class TransferJournal implements Closeable {
+	private final static Logger logger = Logger.getRootLogger();
+
+	/** Name of the log file in the journal directory */
+	static final String LOG_FILE = "transfer.log";
+
+	/** Name of the inventory snapshot file in the journal directory */
+	static final String SNAPSHOT_FILE = "inventory.snapshot";
+
+	/** Size of the record header: payload length and checksum */
+	private static final int HEADER_SIZE = 8;
+
+	/** Marker of the snapshot file format */
+	private static final int SNAPSHOT_MAGIC = 0x504F5254;
+
+	private Path directory;
+	private FileChannel channel;
+
+	private Lock lock = new ReentrantLock();
+	private Condition flushed = lock.newCondition();
+
+	/** Records appended but not written yet */
+	private ByteBuffer pending = ByteBuffer.allocate(64 * 1024);
+
+	/** Buffer for the next batch, absent while a batch is being written */
+	private ByteBuffer spare = ByteBuffer.allocate(64 * 1024);
+
+	/** Log position after the last appended record */
+	private long appendedLsn;
+
+	/** Log position up to which the records are on disk */
+	private long durableLsn;
+
+	/** Flag that indicates that some committer is writing a batch */
+	private boolean flushing;
+
+	/** Failure of the last batch write, the journal refuses commits after it */
+	private IOException failure;
+
+	private long commitCount;
+	private long forceCount;
+
+	/**
+	 * Constructor builds a new instance of TransferJournal that appends to the log
+	 *  in this directory. The log must be recovered before if it was written before.
+	 * @param directory the journal directory
+	 * @throws IOException If the log can't be opened
+	 */
+	public TransferJournal(Path directory) throws IOException {
+		this.directory = directory;
+		Files.createDirectories(directory);
+		channel = FileChannel.open(directory.resolve(LOG_FILE),
+				StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+		appendedLsn = channel.size();
+		durableLsn = appendedLsn;
+	}
+
+	/**
+	 * Appends the record to the journal buffer. The caller must append records
+	 *  in the same order it changes the warehouses.
+	 * @param record the instance of TransferRecord class
+	 * @return the log position to pass to {@link TransferJournal#commit(long)}
+	 */
+	public long append(TransferRecord record) {
+		int payloadSize = record.encodedSize();
+		lock.lock();
+		try {
+			if (pending.remaining() < HEADER_SIZE + payloadSize) {
+				ByteBuffer larger = ByteBuffer.allocate(Math.max(pending.capacity() * 2,
+						pending.position() + HEADER_SIZE + payloadSize));
+				pending.flip();
+				larger.put(pending);
+				pending = larger;
+			}
+			int start = pending.position();
+			pending.position(start + HEADER_SIZE);
+			record.encode(pending);
+			pending.putInt(start, payloadSize);
+			pending.putInt(start + 4, checksum(pending, start + HEADER_SIZE, payloadSize));
+			appendedLsn += HEADER_SIZE + payloadSize;
+			return appendedLsn;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Waits until all records up to this log position are on disk
+	 * @param lsn the log position returned by {@link TransferJournal#append(TransferRecord)}
+	 * @throws IOException If the journal can't be written
+	 * @throws InterruptedException If the thread is interrupted while waiting
+	 */
+	public void commit(long lsn) throws IOException, InterruptedException {
+		lock.lock();
+		try {
+			commitCount++;
+			while (durableLsn < lsn) {
+				if (failure != null) {
+					throw new IOException("Transfer journal has failed.", failure);
+				}
+				if (flushing) {
+					flushed.await();
+					continue;
+				}
+				flushing = true;
+				ByteBuffer batch = pending;
+				pending = spare;
+				spare = null;
+				long batchLsn = appendedLsn;
+
+				IOException error = null;
+				lock.unlock();
+				try {
+					batch.flip();
+					while (batch.hasRemaining()) {
+						channel.write(batch);
+					}
+					channel.force(false);
+				} catch (IOException e) {
+					error = e;
+				} finally {
+					lock.lock();
+				}
+
+				batch.clear();
+				spare = batch;
+				flushing = false;
+				if (error == null) {
+					durableLsn = batchLsn;
+					forceCount++;
+				} else {
+					failure = error;
+					logger.error("Transfer journal write has failed.", error);
+				}
+				flushed.signalAll();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Writes the snapshot of these warehouses and the log position it corresponds to.
+	 *  The caller must guarantee that no transfer is made while checkpointing.
+	 * @param warehouses the warehouses of the port and all ships
+	 * @throws IOException If the snapshot can't be written
+	 * @throws InterruptedException If the thread is interrupted while waiting for the log
+	 */
+	public void checkpoint(Collection<Warehouse> warehouses) throws IOException, InterruptedException {
+		long lsn;
+		lock.lock();
+		try {
+			lsn = appendedLsn;
+		} finally {
+			lock.unlock();
+		}
+
+		Path temporary = directory.resolve(SNAPSHOT_FILE + ".tmp");
+		try (FileOutputStream file = new FileOutputStream(temporary.toFile());
+				DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+			out.writeInt(SNAPSHOT_MAGIC);
+			out.writeLong(lsn);
+			out.writeInt(warehouses.size());
+			for (Warehouse warehouse : warehouses) {
+				int[] ids = warehouse.getContainerIds();
+				out.writeUTF(warehouse.getName());
+				out.writeInt(ids.length);
+				for (int id : ids) {
+					out.writeInt(id);
+				}
+			}
+			out.flush();
+			file.getFD().sync();
+		}
+		// the snapshot must not get ahead of the log it replaces
+		commit(lsn);
+		Files.move(temporary, directory.resolve(SNAPSHOT_FILE),
+				StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Gets the quantity of commits and forces made, commits per force shows
+	 *  how many transfers share one disk flush
+	 * @return the array of commit count and force count
+	 */
+	public long[] getCommitStatistics() {
+		lock.lock();
+		try {
+			return new long[] {commitCount, forceCount};
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Commits all appended records and closes the log
+	 * @throws IOException If the log can't be written
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			long lsn;
+			lock.lock();
+			try {
+				lsn = appendedLsn;
+			} finally {
+				lock.unlock();
+			}
+			commit(lsn);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * Rebuilds the inventory from the last snapshot in this directory and
+	 *  the log records made after it. A torn record at the log end is cut off.
+	 * @param directory the journal directory
+	 * @return the map of warehouse name - container ids, empty if there is no snapshot
+	 * @throws IOException If the journal can't be read
+	 */
+	public static Map<String, List<Integer>> recover(Path directory) throws IOException {
+		Map<String, Set<Integer>> inventory = new LinkedHashMap<String, Set<Integer>>();
+		Path snapshot = directory.resolve(SNAPSHOT_FILE);
+		Path log = directory.resolve(LOG_FILE);
+		Map<String, List<Integer>> result = new LinkedHashMap<String, List<Integer>>();
+		if (!Files.exists(snapshot)) {
+			return result;
+		}
+
+		long lsn;
+		try (InputStream file = Files.newInputStream(snapshot);
+				DataInputStream in = new DataInputStream(new BufferedInputStream(file))) {
+			if (in.readInt() != SNAPSHOT_MAGIC) {
+				throw new IOException("Unknown snapshot format: " + snapshot);
+			}
+			lsn = in.readLong();
+			int warehouseCount = in.readInt();
+			for (int i = 0; i < warehouseCount; i++) {
+				String name = in.readUTF();
+				int count = in.readInt();
+				Set<Integer> ids = new LinkedHashSet<Integer>(count * 2);
+				for (int j = 0; j < count; j++) {
+					ids.add(in.readInt());
+				}
+				inventory.put(name, ids);
+			}
+		}
+
+		int replayed = 0;
+		if (Files.exists(log)) {
+			try (FileChannel in = FileChannel.open(log, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+				long position = lsn;
+				ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+				while (true) {
+					header.clear();
+					if (in.read(header, position) < HEADER_SIZE) {
+						break;
+					}
+					int payloadSize = header.getInt(0);
+					if (payloadSize <= 0 || position + HEADER_SIZE + payloadSize > in.size()) {
+						break;
+					}
+					ByteBuffer payload = ByteBuffer.allocate(payloadSize);
+					in.read(payload, position + HEADER_SIZE);
+					if (checksum(payload, 0, payloadSize) != header.getInt(4)) {
+						break;
+					}
+					payload.flip();
+					apply(inventory, TransferRecord.decode(payload));
+					position += HEADER_SIZE + payloadSize;
+					replayed++;
+				}
+				if (position < in.size()) {
+					logger.warn("Transfer journal is cut at " + position + " of " + in.size() + " bytes.");
+					in.truncate(position);
+				}
+			}
+		}
+		logger.debug("Transfer journal replayed " + replayed + " records after snapshot.");
+
+		for (Map.Entry<String, Set<Integer>> entry : inventory.entrySet()) {
+			result.put(entry.getKey(), new ArrayList<Integer>(entry.getValue()));
+		}
+		return result;
+	}
+
+	/**
+	 * Repeats the transfer on the recovered inventory
+	 * @param inventory the map of warehouse name - container ids
+	 * @param record the instance of TransferRecord class
+	 * @throws IOException If the record refers to an unknown warehouse
+	 */
+	private static void apply(Map<String, Set<Integer>> inventory, TransferRecord record) throws IOException {
+		Set<Integer> ship = inventory.get(record.getShipName());
+		Set<Integer> port = inventory.get(Warehouse.PORT_WAREHOUSE_NAME);
+		if (ship == null || port == null) {
+			throw new IOException("Transfer journal refers to unknown warehouse " + record.getShipName());
+		}
+		Set<Integer> from = record.getDirection() == TransferRecord.Direction.TO_PORT ? ship : port;
+		Set<Integer> to = record.getDirection() == TransferRecord.Direction.TO_PORT ? port : ship;
+		for (int id : record.getContainerIds()) {
+			from.remove(id);
+			to.add(id);
+		}
+	}
+
+	/**
+	 * Calculates the checksum of the buffer region
+	 * @param buffer the buffer
+	 * @param offset the region start
+	 * @param length the region length
+	 * @return the CRC32 checksum
+	 */
+	private static int checksum(ByteBuffer buffer, int offset, int length) {
+		CRC32 crc = new CRC32();
+		for (int i = offset; i < offset + length; i++) {
+			crc.update(buffer.get(i));
+		}
+		return (int) crc.getValue();
+	}
+}
@@ -0,0 +1,139 @@
+package by.bsuir.lab02.journal;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import by.bsuir.lab02.warehouse.ContainerStore;
+
+/**
+ * TransferRecord is the entity class that describes one container transfer
+ *  between a ship warehouse and the port warehouse
+ *
+ * @version 1.0
+ * @author Sytau
+ */
+public class TransferRecord {
+
+	/** id of the berth the transfer was made at */
+	private int berthId;
+
+	/** name of the ship warehouse */
+	private String shipName;
+
+	/** direction of the transfer */
+	private Direction direction;
+
+	/** ids of the moved containers in the order of their moving */
+	private int[] containerIds;
+
+	/**
+	 * Constructor builds a new instance of TransferRecord with preset values
+	 * @param berthId the id of the berth
+	 * @param shipName the name of the ship warehouse
+	 * @param direction the direction of the transfer
+	 * @param containerIds the ids of the moved containers
+	 */
+	public TransferRecord(int berthId, String shipName, Direction direction, int[] containerIds) {
+		this.berthId = berthId;
+		this.shipName = shipName;
+		this.direction = direction;
+		this.containerIds = containerIds;
+	}
+
+	/**
+	 * Constructor builds a new instance of TransferRecord for the moved containers
+	 * @param berthId the id of the berth
+	 * @param shipName the name of the ship warehouse
+	 * @param direction the direction of the transfer
+	 * @param store the store of the container records
+	 * @param handles the handles of the moved containers
+	 */
+	public TransferRecord(int berthId, String shipName, Direction direction, ContainerStore store, int[] handles) {
+		this(berthId, shipName, direction, new int[handles.length]);
+		for (int i = 0; i < handles.length; i++) {
+			containerIds[i] = store.getId(handles[i]);
+		}
+	}
+
+	/**
+	 * Getter for the field {@link TransferRecord#berthId}
+	 * @return the berth <b>id</b>
+	 */
+	public int getBerthId() {
+		return berthId;
+	}
+
+	/**
+	 * Getter for the field {@link TransferRecord#shipName}
+	 * @return the ship <b>name</b>
+	 */
+	public String getShipName() {
+		return shipName;
+	}
+
+	/**
+	 * Getter for the field {@link TransferRecord#direction}
+	 * @return the transfer <b>direction</b>
+	 */
+	public Direction getDirection() {
+		return direction;
+	}
+
+	/**
+	 * Getter for the field {@link TransferRecord#containerIds}
+	 * @return the container <b>ids</b>
+	 */
+	public int[] getContainerIds() {
+		return containerIds;
+	}
+
+	/**
+	 * Calculates the size of the encoded record payload
+	 * @return the payload size in bytes
+	 */
+	int encodedSize() {
+		return 1 + 4 + 2 + shipName.getBytes(StandardCharsets.UTF_8).length + 4 + 4 * containerIds.length;
+	}
+
+	/**
+	 * Writes the record payload to the buffer
+	 * @param buffer the buffer with enough free space
+	 */
+	void encode(ByteBuffer buffer) {
+		byte[] name = shipName.getBytes(StandardCharsets.UTF_8);
+		buffer.put((byte) direction.ordinal());
+		buffer.putInt(berthId);
+		buffer.putShort((short) name.length);
+		buffer.put(name);
+		buffer.putInt(containerIds.length);
+		for (int id : containerIds) {
+			buffer.putInt(id);
+		}
+	}
+
+	/**
+	 * Reads the record payload from the buffer
+	 * @param buffer the buffer positioned at the payload
+	 * @return the instance of TransferRecord class
+	 */
+	static TransferRecord decode(ByteBuffer buffer) {
+		Direction direction = Direction.values()[buffer.get()];
+		int berthId = buffer.getInt();
+		byte[] name = new byte[buffer.getShort()];
+		buffer.get(name);
+		int[] containerIds = new int[buffer.getInt()];
+		for (int i = 0; i < containerIds.length; i++) {
+			containerIds[i] = buffer.getInt();
+		}
+		return new TransferRecord(berthId, new String(name, StandardCharsets.UTF_8), direction, containerIds);
+	}
+
+	/**
+	 * Enumeration of transfer directions
+	 * @author Sytau
+	 *
+	 */
+	public enum Direction {
+		TO_PORT, FROM_PORT
+	}
+}
@@ -0,0 +1,117 @@
+package by.bsuir.lab02.main;
+
+import java.util.List;
+import java.util.Locale;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+
+import by.bsuir.lab02.planning.CapacityPlanner;
+import by.bsuir.lab02.planning.ScenarioResult;
+
+/**
+ * This class is responsible for start of the port capacity planning: it simulates
+ *  the configurations of the ranges and reports the cheapest one meeting the target wait
+ *
+ * @version 1.0
+ * @author Sytau
+ */
+public class CapacityPlanning {
+	private final static Logger logger = Logger.getLogger("by.bsuir.lab02.planning");
+
+	public static void main(String[] args) throws InterruptedException {
+
+		/** Berth counts to try */
+		int[] berthCounts = parseInts(System.getProperty("plan.berths", "1,2,3,4"));
+		
+		/** Port warehouse capacities to try */
+		int[] warehouseCapacities = parseInts(System.getProperty("plan.warehouse", "60,90,150"));
+		
+		/** Crane speeds to try, 1 is the speed of the demonstration run */
+		double[] craneSpeeds = parseDoubles(System.getProperty("plan.craneSpeed", "1,1.5,2"));
+		
+		/** Fleet sizes to try */
+		int[] fleetSizes = parseInts(System.getProperty("plan.fleet", "5,10,20"));
+		
+		/** The longest allowed 99th percentile of the wait for a berth in milliseconds */
+		long targetWait = Long.getLong("plan.targetWait", 30000);
+		
+		/** Duration of a simulation in virtual milliseconds */
+		long duration = Long.getLong("plan.duration", 600000);
+		
+		/** Master seed of the simulations */
+		long seed = Long.getLong("plan.seed", 1);
+		
+		/** Cost of a berth, a warehouse place and the standard crane speed at one berth */
+		double berthCost = 1000;
+		double warehousePlaceCost = 5;
+		double craneSpeedCost = 400;
+
+		// Simulated ships and berths must not flood the logs of the port
+		Logger.getRootLogger().setLevel(Level.WARN);
+		Logger.getLogger("by.bsuir.lab02.port").setLevel(Level.WARN);
+		Logger.getLogger("by.bsuir.lab02.ship").setLevel(Level.WARN);
+		Logger.getLogger("by.bsuir.lab02.port.overstay").setLevel(Level.WARN);
+		logger.setLevel(Level.INFO);
+
+		CapacityPlanner planner = new CapacityPlanner(duration, seed, berthCost, warehousePlaceCost, craneSpeedCost);
+		long start = System.nanoTime();
+		List<ScenarioResult> results = planner.sweep(berthCounts, warehouseCapacities, craneSpeeds, fleetSizes);
+		logger.info("Промоделировано конфигураций: " + results.size() + " за "
+				+ (System.nanoTime() - start) / 1000000 + " мс");
+
+		logger.info("Суда Причалы Склад Краны Стоимость Конт/мин Ожидание p99 Нарушения");
+		for (ScenarioResult result : results) {
+			logger.info(format(result));
+		}
+		for (int fleetSize : fleetSizes) {
+			ScenarioResult cheapest = CapacityPlanner.cheapest(results, fleetSize, targetWait);
+			if (cheapest == null) {
+				logger.info("Для " + fleetSize + " судов нет конфигурации с ожиданием p99 до " + targetWait + " мс");
+			} else {
+				logger.info("Для " + fleetSize + " судов самая дешёвая конфигурация: " + format(cheapest));
+			}
+		}
+	}
+	
+	/**
+	 * Formats the row of the result matrix
+	 * @param result the instance of ScenarioResult class
+	 * @return the row
+	 */
+	private static String format(ScenarioResult result) {
+		return String.format(Locale.ROOT, "%5d %7d %5d %5.2f %9.0f %8.1f %8d %6d %9d",
+				result.getScenario().getFleetSize(), result.getScenario().getBerthCount(),
+				result.getScenario().getWarehouseCapacity(), result.getScenario().getCraneSpeed(),
+				result.getCost(), result.getContainersPerMinute(), result.getMeanWait(),
+				result.getP99Wait(), result.getViolations());
+	}
+	
+	/**
+	 * Parses the comma separated integers
+	 * @param values the string of values
+	 * @return the array of values
+	 */
+	private static int[] parseInts(String values) {
+		String[] parts = values.split(",");
+		int[] result = new int[parts.length];
+		for (int i = 0; i < parts.length; i++) {
+			result[i] = Integer.parseInt(parts[i].trim());
+		}
+		return result;
+	}
+	
+	/**
+	 * Parses the comma separated numbers
+	 * @param values the string of values
+	 * @return the array of values
+	 */
+	private static double[] parseDoubles(String values) {
+		String[] parts = values.split(",");
+		double[] result = new double[parts.length];
+		for (int i = 0; i < parts.length; i++) {
+			result[i] = Double.parseDouble(parts[i].trim());
+		}
+		return result;
+	}
+}
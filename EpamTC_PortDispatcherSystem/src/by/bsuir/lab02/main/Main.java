@@ -1,13 +1,42 @@
 package by.bsuir.lab02.main;
 
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.Random;
+import java.util.Map;
+import java.util.SplittableRandom;
 import java.util.Timer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
 
+import org.apache.log4j.Logger;
+
+import by.bsuir.lab02.booking.BookingOffice;
+import by.bsuir.lab02.concurrency.StandardStrategy;
+import by.bsuir.lab02.crane.Crane;
+import by.bsuir.lab02.crane.CranePool;
+import by.bsuir.lab02.event.EventCounter;
+import by.bsuir.lab02.event.EventPublisher;
+import by.bsuir.lab02.event.PortEvent;
+import by.bsuir.lab02.journal.TransferJournal;
+import by.bsuir.lab02.port.Berth;
 import by.bsuir.lab02.port.Port;
+import by.bsuir.lab02.port.ShutdownReport;
+import by.bsuir.lab02.profiling.LockProfiler;
 import by.bsuir.lab02.ship.Ship;
+import by.bsuir.lab02.simulation.DeterministicScheduler;
+import by.bsuir.lab02.status.StatusServer;
+import by.bsuir.lab02.stowage.StowagePlanner;
+import by.bsuir.lab02.violation.ViolationHistory;
 import by.bsuir.lab02.warehouse.Container;
+import by.bsuir.lab02.warehouse.OverflowTier;
+import by.bsuir.lab02.warehouse.Warehouse;
+import by.bsuir.lab02.warehouse.Yard;
 /**
  * This class is responsible for start port dispatcher system
  * 
@@ -15,8 +44,9 @@ import by.bsuir.lab02.warehouse.Container;
  * @author Sytau
  */
 public class Main {
+	private final static Logger logger = Logger.getRootLogger();
 
-	public static void main(String[] args) throws InterruptedException {
+	public static void main(String[] args) throws InterruptedException, IOException {
 
 		// Input data of ships and port
 
@@ -29,8 +59,17 @@ public class Main {
 		/** Array of Ship initial loading */
 		int[] shipWarehouseLoad = {15, 25, 40, 30, 5};
 		
-		/** Berth quantity */
-		int berthQuantity = 3;
+		/** Array of Berth capacities: the largest ship each berth fits */
+		int[] berthCapacity = {50, 70, 90};
+		
+		/** Array of Berth crane quantities */
+		int[] berthCranes = {1, 2, 3};
+		
+		/** Destinations of containers and ships, a container id defines its destination */
+		String[] destinations = {"Gdansk", "Riga", "Klaipeda"};
+		
+		/** Line operators owning the containers, a container id defines its owner */
+		String[] owners = {"Maersk", "MSC", "CMA CGM", "Hapag-Lloyd"};
 		
 		/** Port warehouse capacity */
 		int portWarehouseCapacity = 90;
@@ -38,6 +77,78 @@ public class Main {
 		/** Initial loading of the port warehouse */
 		int portWarehouseLoad = 50;
 		
+		/** Directory of the container transfer journal, transfers aren't journalled if it isn't set */
+		String journalDirectory = System.getProperty("port.journal");
+		
+		/** Master seed of the reproducible run in virtual time, ships run in real time if it isn't set */
+		String seed = System.getProperty("port.seed");
+		
+		/** Synchronization of berths and warehouses: MONITOR, REENTRANT_LOCK, STAMPED_LOCK, CAS or BITMAP */
+		StandardStrategy strategy = StandardStrategy.valueOf(System.getProperty("port.concurrency", "REENTRANT_LOCK"));
+		
+		/** The longest wait of a ship for a berth in milliseconds, not limited by default */
+		long berthWaitingTimeLimit = Long.getLong("port.berthWait", 0);
+		
+		/** Flag that indicates that warehouse and berth locks are profiled */
+		boolean profileLocks = Boolean.getBoolean("port.profile");
+		
+		/** Flag that indicates that port events are published and counted */
+		boolean publishEvents = Boolean.getBoolean("port.events");
+		
+		/** Local TCP port of the HTTP status endpoint, the status isn't served if it isn't set */
+		Integer statusPort = Integer.getInteger("port.status");
+		
+		/** Stacked yard of the port warehouse as bays x rows x tiers, the warehouse is flat if it isn't set */
+		String yardDimensions = System.getProperty("port.yard");
+		
+		/** File of the off-dock overflow tier of the port warehouse, the warehouse doesn't overflow if it isn't set */
+		String overflowFile = System.getProperty("port.overflow");
+		
+		/** Container places of the overflow tier */
+		int overflowCapacity = Integer.getInteger("port.overflowCapacity", 1000000);
+		
+		/** Flag that indicates that cranes of all berths form one pool stealing each other's work */
+		boolean shareCranes = Boolean.getBoolean("port.cranePool");
+		
+		/** Time a crane of the pool travels between berths in milliseconds */
+		long craneTravelTime = Long.getLong("port.craneTravel", CranePool.DEFAULT_TRAVEL_TIME);
+		
+		/** Quantity of the first ships on scheduled services booking their calls, berths aren't booked if 0 */
+		int liners = Integer.getInteger("port.liners", 0);
+		
+		/** Berth slot a ship on a scheduled service books in milliseconds */
+		long linerStay = Long.getLong("port.linerStay", 5000);
+		
+		/** Time budget of a ship loading plan in milliseconds, ships take the oldest cargo if it isn't set */
+		Long stowageBudget = Long.getLong("port.stowage");
+		
+		/** The largest difference of the weights on the sides of a ship in kilograms */
+		long maxImbalance = 30000;
+		
+		/** Cargo a ship can carry per container place in kilograms */
+		long deadweightPerPlace = 18000;
+		
+		/** Directory of the ship violation history, violations are forgotten at exit if it isn't set */
+		String violationDirectory = System.getProperty("port.violations");
+		
+		/** Half-life of ship violation scores in milliseconds */
+		long violationHalfLife = Long.getLong("port.violationHalfLife", Port.VIOLATION_HALF_LIFE);
+		
+		/** Term of a berth lease beyond the offered loading duration in milliseconds */
+		long leaseTerm = Long.getLong("port.leaseTerm", Port.DEFAULT_LEASE_TERM);
+		
+		/** Duration of the port work */
+		int workDuration = 25000;
+		
+		/** The longest duration of the port shutdown in milliseconds */
+		long shutdownTimeout = Long.getLong("port.shutdownTimeout", 5000);
+		
+		/** Report of the port shutdown, absent in a deterministic run */
+		ShutdownReport shutdownReport = null;
+		
+		/** Time by System.nanoTime() the whole shutdown has to end by */
+		long shutdownDeadline;
+		
 		/** Array of Ships */
 		Ship[] ship = new Ship[shipQuantity];
 		
@@ -47,15 +158,103 @@ public class Main {
 		/** Collection of containers */
 		List<Container> containerList;
 		
+		/** Ship threads */
+		Thread[] shipThread = new Thread[shipQuantity];
+		
+		/** Random stream for ship priorities, ship streams are split from it */
+		SplittableRandom random = seed != null ? new SplittableRandom(Long.parseLong(seed)) : new SplittableRandom();
+		
+		/** Scheduler of the reproducible run */
+		DeterministicScheduler scheduler = seed != null ? new DeterministicScheduler() : null;
+		
+		/** Journal of container transfers */
+		TransferJournal journal = null;
+		
+		/** Inventory recovered from the journal: warehouse name - container ids */
+		Map<String, List<Integer>> inventory = Collections.emptyMap();
+		
+		if (journalDirectory != null) {
+			inventory = TransferJournal.recover(Paths.get(journalDirectory));
+			journal = new TransferJournal(Paths.get(journalDirectory));
+		}
+		
 		containerList = new ArrayList<Container>(portWarehouseLoad);
 		for (int i=0; i<portWarehouseLoad; i++){
 			// Assign numbers to containers in the port warehouse
-			containerList.add(new Container(i));
+			containerList.add(newContainer(i, destinations, owners));
+		}
+		if (inventory.containsKey(Warehouse.PORT_WAREHOUSE_NAME)) {
+			containerList = toContainers(inventory.get(Warehouse.PORT_WAREHOUSE_NAME), destinations, owners);
 		}
 
-		Port port = new Port(berthQuantity, portWarehouseCapacity);// Port initialization
+		Port port = new Port(berthCapacity, berthCranes, portWarehouseCapacity, strategy, journal);// Port initialization
+		port.setScheduler(scheduler);
+		port.setBerthWaitingTimeLimit(berthWaitingTimeLimit);
+		port.setLeaseTerm(leaseTerm);
+		
+		/** Calendars of berth bookings */
+		BookingOffice bookingOffice = null;
+		if (liners > 0) {
+			bookingOffice = new BookingOffice(port.getBerths(), port.getClock());
+			port.setBookingOffice(bookingOffice);
+		}
+		
+		/** Violation history of ships. A deterministic run keeps it in memory only: its times are
+		 *  virtual, counted from 0, so they don't mix with the times of real runs, and a loaded
+		 *  history would change the ship priorities the seed must reproduce */
+		if (violationDirectory != null && scheduler != null) {
+			logger.warn("Детерминированный запуск не читает и не сохраняет историю нарушений из " + violationDirectory);
+			violationDirectory = null;
+		}
+		ViolationHistory violationHistory = violationDirectory != null
+				? new ViolationHistory(Paths.get(violationDirectory), violationHalfLife)
+				: new ViolationHistory(violationHalfLife);
+		port.setViolationHistory(violationHistory);
+		
+		/** Publisher of port events */
+		EventPublisher<PortEvent> events = null;
+		if (publishEvents) {
+			events = new EventPublisher<PortEvent>();
+			events.subscribe(new EventCounter()); // Event report when the stream is closed
+			port.setEventPublisher(events);
+		}
+		if (profileLocks) {
+			final LockProfiler profiler = new LockProfiler();
+			port.setLockProfiler(profiler);
+			// Contention report at shutdown
+			Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+				@Override
+				public void run() {
+					profiler.dump();
+				}
+			}));
+		}
 		
 
+		/** Port-wide pool of cranes */
+		CranePool cranePool = null;
+		if (shareCranes) {
+			cranePool = new CranePool(port.getBerths(), port.getClock(), port.getCraneSpeed(), craneTravelTime);
+			port.setCranePool(cranePool);
+			cranePool.start(); // cranes wait for work, in a deterministic run they wait for the run
+		}
+		
+		if (stowageBudget != null) {
+			// a deterministic run ignores the time budget, the plans would follow the speed of the host
+			port.setStowagePlanner(scheduler != null
+					? new StowagePlanner(ForkJoinPool.commonPool(), StowagePlanner.REPRODUCIBLE_SEARCHES, maxImbalance, 0)
+					: new StowagePlanner(maxImbalance, stowageBudget));
+		}
+		if (yardDimensions != null) {
+			port.getPortWarehouse().setYard(Yard.parse(yardDimensions));
+		}
+		
+		/** Off-dock overflow tier of the port warehouse */
+		OverflowTier overflow = null;
+		if (overflowFile != null) {
+			overflow = new OverflowTier(Paths.get(overflowFile), overflowCapacity, port.getPortWarehouse().getStore());
+			port.getPortWarehouse().setOverflow(overflow);
+		}
 		port.setContainersToWarehouse(containerList);// Put containers to the port warehouse
 		
 
@@ -64,35 +263,248 @@ public class Main {
 			containerList = new ArrayList<Container>(shipWarehouseLoad[i]);
 			for (int j = 0; j < shipWarehouseLoad[i]; j++){
 				// Assign numbers to containers in ship warehouses
-				containerList.add(new Container(j+k));
+				containerList.add(newContainer(j+k, destinations, owners));
 			}
 			k = k + shipWarehouseLoad[i];
 			shipName = "Ship" + (i+1); // Assign ship names
-			Random priorityRandom = new Random(); //for calculating ship priority
 			// Ships initialization
-			ship[i] = new Ship(shipName, priorityRandom.nextInt(10), port, shipWarehouseCapacity[i]);
+			ship[i] = new Ship(shipName, random.nextInt(10), port, shipWarehouseCapacity[i], random.split());
+			if (inventory.containsKey(shipName)) {
+				containerList = toContainers(inventory.get(shipName), destinations, owners);
+			}
 			ship[i].setContainersToWarehouse(containerList); // Put containers to ships
+			ship[i].setDestination(destinations[i % destinations.length]);
+			ship[i].setRoute(route(destinations, i));
+			ship[i].setDeadweight(shipWarehouseCapacity[i] * deadweightPerPlace);
+			if (i < liners) {
+				ship[i].setLinerService(linerStay);
+			}
+		}
+		port.checkpoint(); // Snapshot of the initial inventory
+		
+		/** HTTP status endpoint */
+		StatusServer statusServer = null;
+		if (statusPort != null) {
+			statusServer = new StatusServer(port, new InetSocketAddress(InetAddress.getLoopbackAddress(), statusPort), 250);
+			statusServer.start();
 		}
 
-		Timer portTimer = new Timer();
+		/** Time the ships have set off by the port clock */
+		long workStartedAt = port.getClock().currentTimeMillis();
+		
+		if (scheduler != null) {
+			// Ships and port status displaying run one at a time in virtual time
+			for (int i = 0; i < shipQuantity; i++) {
+				shipThread[i] = scheduler.newThread(ship[i], ship[i].getName());
+				shipThread[i].start();
+			}
+			scheduler.newThread(statusDisplaying(scheduler, port), "Timer-0").start();
+			scheduler.newThread(overstayWatching(port), "Overstay-timer").start();
+			scheduler.runUntil(workDuration);
+			shutdownDeadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(shutdownTimeout);
+			for (int i = 0; i < shipQuantity; i++) {
+				ship[i].stopThread();	
+			}
+			scheduler.shutdown();
+			for (int i = 0; i < shipQuantity; i++) {
+				shipThread[i].join(); // interrupted ships leave their berths
+			}
+		} else {
+			Timer portTimer = new Timer();
+			Thread overstayTimer = new Thread(overstayWatching(port), "Overstay-timer");
+			overstayTimer.setDaemon(true);
+			overstayTimer.start();
 
-		// Start of ship threads
-		for (int i = 0; i < shipQuantity; i++) {
-			new Thread(ship[i]).start();	
+			// Start of ship threads
+			for (int i = 0; i < shipQuantity; i++) {
+				shipThread[i] = new Thread(ship[i]);
+				shipThread[i].start();	
+			}
+			
+			// Start of timer for port status displaying
+			portTimer.schedule(port, 5000, 5000);
+			try {
+				Thread.sleep(workDuration);
+			} catch (InterruptedException ex) {}
+			portTimer.cancel();
+			
+			// End of ship threads: moored ships finish, waiting ones are interrupted
+			shutdownDeadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(shutdownTimeout);
+			shutdownReport = port.shutdown(shutdownTimeout, Arrays.asList(shipThread));
 		}
 		
-		// Start of timer for port status displaying
-		portTimer.schedule(port, 5000, 5000);
-		try {
-			Thread.sleep(25000);
-		} catch (InterruptedException ex) {}
-		portTimer.cancel();
+		if (journal != null) {
+			// Snapshot of the final inventory, ships left running may hold the port warehouse
+			try {
+				port.checkpoint(remainingMillis(shutdownDeadline));
+			} catch (IOException ex) {
+				logger.warn("Итоговый снимок склада не записан: " + ex.getMessage());
+			}
+			journal.close();
+		}
 		
-		// End of ship threads
-		for (int i = 0; i < shipQuantity; i++) {
-			ship[i].stopThread();	
+		if (bookingOffice != null) {
+			report(bookingOffice, port, port.getClock().currentTimeMillis() - workStartedAt);
+		}
+		if (cranePool != null) {
+			report(cranePool, port);
+			cranePool.close();
+		}
+		violationHistory.close();
+		if (overflow != null) {
+			overflow.close();
+		}
+		if (events != null && !events.awaitTermination(remainingMillis(shutdownDeadline), TimeUnit.MILLISECONDS)) {
+			logger.warn("Не все подписчики событий порта получили завершение потока.");
+		}
+		if (statusServer != null) {
+			statusServer.stop();
+		}
+		if (shutdownReport != null) {
+			report(shutdownReport);
+			if (!shutdownReport.isComplete()) {
+				System.exit(1); // the threads left would keep the process running
+			}
 		}
 
 	}
+	
+	/**
+	 * Gets the time left until the deadline
+	 * @param deadline the time by System.nanoTime()
+	 * @return the time left in milliseconds, 0 if the deadline has passed
+	 */
+	private static long remainingMillis(long deadline) {
+		return Math.max(0, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()));
+	}
+	
+	/**
+	 * Logs how ships have kept their bookings and how long berths have been occupied
+	 * @param bookingOffice the instance of BookingOffice class
+	 * @param port the instance of Port class
+	 * @param workDuration the duration of the port work including the shutdown in milliseconds
+	 */
+	private static void report(BookingOffice bookingOffice, Port port, long workDuration) {
+		logger.info("Бронирований причалов: " + bookingOffice.getBookedCount() + ", швартовок по брони: "
+				+ bookingOffice.getHonouredCount() + ", из них вовремя: " + bookingOffice.getOnTimeCount()
+				+ ", пропущено: " + bookingOffice.getLapsedCount());
+		for (Berth berth : port.getBerths()) {
+			logger.info("Причал " + berth.getId() + ": занят " + Math.round(berth.getOccupiedTime() * 100.0 / workDuration)
+					+ "% времени работы порта");
+		}
+	}
+	
+	/**
+	 * Logs the utilization of the berth cranes and of each crane of the pool
+	 * @param cranePool the instance of CranePool class
+	 * @param port the instance of Port class
+	 */
+	private static void report(CranePool cranePool, Port port) {
+		for (Berth berth : port.getBerths()) {
+			logger.info("Причал " + berth.getId() + ": загрузка кранов "
+					+ Math.round(cranePool.getUtilization(berth) * 100) + "%");
+		}
+		for (Crane crane : cranePool.getCranes()) {
+			logger.info("Кран " + crane.getName() + ": загрузка " + Math.round(cranePool.getUtilization(crane) * 100)
+					+ "%, перемещено " + crane.getMovedContainers() + " контейнеров, взято у других кранов "
+					+ crane.getStolenMoves() + ", в пути " + crane.getTravelTime() + "мс.");
+		}
+	}
+	
+	/**
+	 * Logs what the port shutdown has drained and what it has cut
+	 * @param report the instance of ShutdownReport class
+	 */
+	private static void report(ShutdownReport report) {
+		logger.info("Порт закрыт за " + report.getDuration() + "мс.");
+		logger.info("Завершили погрузку и отошли от причалов: " + report.getDrainedShips());
+		logger.info("Прерваны у причалов: " + report.getCutShips());
+		logger.info("Прерваны в очереди на швартовку: " + report.getRefusedShips());
+		if (!report.isComplete()) {
+			logger.warn("Не завершились потоки: " + report.getRunningThreads());
+		}
+	}
+	
+	/**
+	 * Creates the task displaying port status every 5 seconds of virtual time
+	 * @param scheduler the scheduler of the reproducible run
+	 * @param port the instance of Port class
+	 * @return the task to run by the scheduler
+	 */
+	private static Runnable statusDisplaying(final DeterministicScheduler scheduler, final Port port) {
+		return new Runnable() {
+			@Override
+			public void run() {
+				try {
+					while (true) {
+						scheduler.sleep(5000);
+						port.run();
+					}
+				} catch (InterruptedException e) {
+					// the run is over
+				}
+			}
+		};
+	}
+	
+	/**
+	 * Creates the task turning the port overstay timer
+	 * @param port the instance of Port class
+	 * @return the task to run in its own thread
+	 */
+	private static Runnable overstayWatching(final Port port) {
+		return new Runnable() {
+			@Override
+			public void run() {
+				try {
+					port.watchOverstays();
+				} catch (InterruptedException e) {
+					// the run is over
+				}
+			}
+		};
+	}
+	
+	/**
+	 * Makes the route of the ship: its destination, then the next destinations in turn
+	 * @param destinations the destinations of ships
+	 * @param shipIndex the index of the ship
+	 * @return the list of ports in the order of calling
+	 */
+	private static List<String> route(String[] destinations, int shipIndex) {
+		List<String> route = new ArrayList<String>(destinations.length);
+		for (int i = 0; i < destinations.length; i++) {
+			route.add(destinations[(shipIndex + i) % destinations.length]);
+		}
+		return route;
+	}
+	
+	/**
+	 * Creates containers with recovered ids
+	 * @param ids the list of container ids
+	 * @param destinations the destinations the ids are mapped to
+	 * @param owners the line operators the ids are mapped to
+	 * @return the list of instances of Container class
+	 */
+	private static List<Container> toContainers(List<Integer> ids, String[] destinations, String[] owners) {
+		List<Container> containers = new ArrayList<Container>(ids.size());
+		for (int id : ids) {
+			containers.add(newContainer(id, destinations, owners));
+		}
+		return containers;
+	}
+	
+	/**
+	 * Creates the container described by its id, so a recovered container gets the same cargo
+	 * @param id the id of the container
+	 * @param destinations the destinations the ids are mapped to
+	 * @param owners the line operators the ids are mapped to
+	 * @return the instance of Container class
+	 */
+	private static Container newContainer(int id, String[] destinations, String[] owners) {
+		Container.Type[] types = Container.Type.values();
+		return new Container(id, destinations[id % destinations.length], 2000 + (id * 7919) % 28000,
+				types[id % types.length], id % 13 == 0 ? 3 : 0, owners[id % owners.length], 0);
+	}
 
 }
@@ -0,0 +1,240 @@
+package by.bsuir.lab02.planning;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import by.bsuir.lab02.concurrency.StandardStrategy;
+import by.bsuir.lab02.event.EventPublisher;
+import by.bsuir.lab02.event.PortEvent;
+import by.bsuir.lab02.port.Berth;
+import by.bsuir.lab02.port.Port;
+import by.bsuir.lab02.ship.Ship;
+import by.bsuir.lab02.simulation.DeterministicScheduler;
+import by.bsuir.lab02.warehouse.Container;
+import by.bsuir.lab02.warehouse.ContainerStore;
+
+/**
+ * CapacityPlanner sweeps port configurations: every combination of berth count, warehouse
+ *  capacity, crane speed and fleet size is simulated by the port model in virtual time.
+ *  Each simulation has its own port, ships, container store and scheduler, so the simulations
+ *  run in parallel on all processors and every one repeats the same run for the same seed.
+ *
+ * @version 1.0
+ * @author Sytau
+ */
+public class CapacityPlanner {
+
+	/** Capacities of the ships, ship i takes capacity i modulo the length */
+	private static final int[] SHIP_CAPACITIES = {40, 70, 60, 80, 50};
+
+	/** Destinations of containers and ships */
+	private static final String[] DESTINATIONS = {"Gdansk", "Riga", "Klaipeda"};
+
+	/** Delivers events in the publishing thread */
+	private static final Executor SAME_THREAD = new Executor() {
+		@Override
+		public void execute(Runnable command) {
+			command.run();
+		}
+	};
+
+	/** Duration of a simulation in virtual milliseconds */
+	private long duration;
+
+	/** Master seed, every scenario is run with the same one */
+	private long seed;
+
+	private double berthCost;
+	private double warehousePlaceCost;
+	private double craneSpeedCost;
+
+	/**
+	 * Constructor builds a new instance of CapacityPlanner with preset values
+	 * @param duration the duration of a simulation in virtual milliseconds
+	 * @param seed the master seed of the simulations
+	 * @param berthCost the cost of a berth
+	 * @param warehousePlaceCost the cost of a warehouse place
+	 * @param craneSpeedCost the cost of the standard crane speed at one berth
+	 */
+	public CapacityPlanner(long duration, long seed, double berthCost, double warehousePlaceCost,
+			double craneSpeedCost) {
+		this.duration = duration;
+		this.seed = seed;
+		this.berthCost = berthCost;
+		this.warehousePlaceCost = warehousePlaceCost;
+		this.craneSpeedCost = craneSpeedCost;
+	}
+
+	/**
+	 * Simulates every combination of the values
+	 * @param berthCounts the berth counts to try
+	 * @param warehouseCapacities the warehouse capacities to try
+	 * @param craneSpeeds the crane speeds to try
+	 * @param fleetSizes the fleet sizes to try
+	 * @return the results in the order of the combinations
+	 * @throws InterruptedException If the thread is interrupted while waiting for the simulations
+	 */
+	public List<ScenarioResult> sweep(int[] berthCounts, int[] warehouseCapacities, double[] craneSpeeds,
+			int[] fleetSizes) throws InterruptedException {
+		List<Scenario> scenarios = new ArrayList<Scenario>();
+		for (int fleetSize : fleetSizes) {
+			for (int berthCount : berthCounts) {
+				for (int warehouseCapacity : warehouseCapacities) {
+					for (double craneSpeed : craneSpeeds) {
+						scenarios.add(new Scenario(berthCount, warehouseCapacity, craneSpeed, fleetSize));
+					}
+				}
+			}
+		}
+
+		ExecutorService pool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+		try {
+			List<Future<ScenarioResult>> futures = new ArrayList<Future<ScenarioResult>>(scenarios.size());
+			for (final Scenario scenario : scenarios) {
+				futures.add(pool.submit(new Callable<ScenarioResult>() {
+					@Override
+					public ScenarioResult call() throws InterruptedException {
+						return simulate(scenario);
+					}
+				}));
+			}
+			List<ScenarioResult> results = new ArrayList<ScenarioResult>(scenarios.size());
+			for (Future<ScenarioResult> future : futures) {
+				try {
+					results.add(future.get());
+				} catch (ExecutionException e) {
+					throw new IllegalStateException("Simulation has failed.", e.getCause());
+				}
+			}
+			return results;
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * Finds the cheapest configuration for the fleet that keeps the 99th percentile of waits
+	 * 	within the target
+	 * @param results the results of the sweep
+	 * @param fleetSize the quantity of ships
+	 * @param targetP99Wait the longest allowed 99th percentile of waits in milliseconds
+	 * @return the cheapest result or <b>null</b> if no configuration meets the target
+	 */
+	public static ScenarioResult cheapest(List<ScenarioResult> results, int fleetSize, long targetP99Wait) {
+		ScenarioResult cheapest = null;
+		for (ScenarioResult result : results) {
+			if (result.getScenario().getFleetSize() == fleetSize && result.getP99Wait() <= targetP99Wait
+					&& (cheapest == null || result.getCost() < cheapest.getCost())) {
+				cheapest = result;
+			}
+		}
+		return cheapest;
+	}
+
+	/**
+	 * Calculates the cost of the configuration
+	 * @param scenario the instance of Scenario class
+	 * @return the cost in the units of the planner
+	 */
+	public double cost(Scenario scenario) {
+		return scenario.getBerthCount() * (berthCost + scenario.getCraneSpeed() * craneSpeedCost)
+				+ scenario.getWarehouseCapacity() * warehousePlaceCost;
+	}
+
+	/**
+	 * Runs the port model of the scenario in virtual time: the port warehouse and the ships
+	 * 	are half full at the start, as in the demonstration run
+	 * @param scenario the instance of Scenario class
+	 * @return the instance of ScenarioResult class
+	 * @throws InterruptedException If the thread is interrupted while waiting for the simulation
+	 */
+	ScenarioResult simulate(Scenario scenario) throws InterruptedException {
+		SplittableRandom random = new SplittableRandom(seed);
+		DeterministicScheduler scheduler = new DeterministicScheduler();
+		int[] berthCapacities = new int[scenario.getBerthCount()];
+		int[] berthCranes = new int[scenario.getBerthCount()];
+		Arrays.fill(berthCapacities, Berth.UNLIMITED_CAPACITY);
+		Arrays.fill(berthCranes, 1);
+		final Port port = new Port(berthCapacities, berthCranes, scenario.getWarehouseCapacity(),
+				StandardStrategy.REENTRANT_LOCK, null, new ContainerStore());
+		port.setScheduler(scheduler);
+		port.setCraneSpeed(scenario.getCraneSpeed());
+		EventPublisher<PortEvent> events = new EventPublisher<PortEvent>(SAME_THREAD,
+				EventPublisher.DEFAULT_BUFFER_CAPACITY);
+		WaitRecorder recorder = new WaitRecorder();
+		events.subscribe(recorder);
+		port.setEventPublisher(events);
+
+		int id = 0;
+		List<Container> containers = new ArrayList<Container>();
+		for (; id < scenario.getWarehouseCapacity() / 2; id++) {
+			containers.add(new Container(id, DESTINATIONS[id % DESTINATIONS.length]));
+		}
+		port.setContainersToWarehouse(containers);
+
+		Ship[] ships = new Ship[scenario.getFleetSize()];
+		Thread[] threads = new Thread[ships.length + 1];
+		for (int i = 0; i < ships.length; i++) {
+			int capacity = SHIP_CAPACITIES[i % SHIP_CAPACITIES.length];
+			ships[i] = new Ship("Ship" + (i + 1), random.nextInt(10), port, capacity, random.split());
+			ships[i].setDestination(DESTINATIONS[i % DESTINATIONS.length]);
+			containers = new ArrayList<Container>();
+			for (int j = 0; j < capacity / 2; j++, id++) {
+				containers.add(new Container(id, DESTINATIONS[id % DESTINATIONS.length]));
+			}
+			ships[i].setContainersToWarehouse(containers);
+			threads[i] = scheduler.newThread(ships[i], ships[i].getName());
+		}
+		threads[ships.length] = scheduler.newThread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					port.watchOverstays();
+				} catch (InterruptedException e) {
+					// the run is over
+				}
+			}
+		}, "Overstay-timer");
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		scheduler.runUntil(duration);
+		for (Ship ship : ships) {
+			ship.stopThread();
+		}
+		scheduler.shutdown();
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		events.close();
+
+		long[] waits = recorder.getWaits(duration);
+		long totalWait = 0;
+		for (long wait : waits) {
+			totalWait += wait;
+		}
+		return new ScenarioResult(scenario, cost(scenario), recorder.getContainers() * 60000.0 / duration,
+				waits.length == 0 ? 0 : totalWait / waits.length, percentile(waits, 0.99), recorder.getViolations());
+	}
+
+	/**
+	 * Gets the value the share of the sorted values doesn't exceed
+	 * @param sorted the sorted values
+	 * @param share the share from 0 to 1
+	 * @return the percentile, 0 if there are no values
+	 */
+	private static long percentile(long[] sorted, double share) {
+		if (sorted.length == 0) {
+			return 0;
+		}
+		return sorted[Math.max(0, (int) Math.ceil(share * sorted.length) - 1)];
+	}
+}
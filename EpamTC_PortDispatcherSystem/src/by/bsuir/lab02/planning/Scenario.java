@@ -0,0 +1,74 @@
+package by.bsuir.lab02.planning;
+
+/**
+ * Scenario is the entity class that describes one port configuration of the sweep
+ *
+ * @version 1.0
+ * @author Sytau
+ */
+public class Scenario {
+
+	/** quantity of berths */
+	private int berthCount;
+
+	/** capacity of the port warehouse */
+	private int warehouseCapacity;
+
+	/** speed of the cranes relative to the standard one */
+	private double craneSpeed;
+
+	/** quantity of ships calling at the port */
+	private int fleetSize;
+
+	/**
+	 * Constructor builds a new instance of Scenario with preset values
+	 * @param berthCount the quantity of berths
+	 * @param warehouseCapacity the capacity of the port warehouse
+	 * @param craneSpeed the speed of the cranes relative to the standard one
+	 * @param fleetSize the quantity of ships
+	 */
+	public Scenario(int berthCount, int warehouseCapacity, double craneSpeed, int fleetSize) {
+		this.berthCount = berthCount;
+		this.warehouseCapacity = warehouseCapacity;
+		this.craneSpeed = craneSpeed;
+		this.fleetSize = fleetSize;
+	}
+
+	/**
+	 * Getter for the field {@link Scenario#berthCount}
+	 * @return the quantity of berths
+	 */
+	public int getBerthCount() {
+		return berthCount;
+	}
+
+	/**
+	 * Getter for the field {@link Scenario#warehouseCapacity}
+	 * @return the capacity of the port warehouse
+	 */
+	public int getWarehouseCapacity() {
+		return warehouseCapacity;
+	}
+
+	/**
+	 * Getter for the field {@link Scenario#craneSpeed}
+	 * @return the speed of the cranes relative to the standard one
+	 */
+	public double getCraneSpeed() {
+		return craneSpeed;
+	}
+
+	/**
+	 * Getter for the field {@link Scenario#fleetSize}
+	 * @return the quantity of ships
+	 */
+	public int getFleetSize() {
+		return fleetSize;
+	}
+
+	@Override
+	public String toString() {
+		return "berths=" + berthCount + " warehouse=" + warehouseCapacity + " craneSpeed=" + craneSpeed
+				+ " fleet=" + fleetSize;
+	}
+}
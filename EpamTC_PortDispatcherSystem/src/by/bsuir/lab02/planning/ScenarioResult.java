@@ -0,0 +1,94 @@
+package by.bsuir.lab02.planning;
+
+/**
+ * ScenarioResult is the entity class that describes the outcome of a simulated scenario
+ *
+ * @version 1.0
+ * @author Sytau
+ */
+public class ScenarioResult {
+
+	private Scenario scenario;
+
+	/** cost of the configuration in the units of the planner */
+	private double cost;
+
+	/** containers moved per minute of simulated time */
+	private double containersPerMinute;
+
+	/** mean wait of a ship for a berth in milliseconds */
+	private long meanWait;
+
+	/** wait for a berth 99% of the ships don't exceed in milliseconds */
+	private long p99Wait;
+
+	/** quantity of loading violations */
+	private long violations;
+
+	/**
+	 * Constructor builds a new instance of ScenarioResult with preset values
+	 * @param scenario the simulated scenario
+	 * @param cost the cost of the configuration
+	 * @param containersPerMinute the containers moved per minute
+	 * @param meanWait the mean wait for a berth in milliseconds
+	 * @param p99Wait the 99th percentile of the wait in milliseconds
+	 * @param violations the quantity of loading violations
+	 */
+	public ScenarioResult(Scenario scenario, double cost, double containersPerMinute, long meanWait, long p99Wait,
+			long violations) {
+		this.scenario = scenario;
+		this.cost = cost;
+		this.containersPerMinute = containersPerMinute;
+		this.meanWait = meanWait;
+		this.p99Wait = p99Wait;
+		this.violations = violations;
+	}
+
+	/**
+	 * Getter for the field {@link ScenarioResult#scenario}
+	 * @return the simulated <b>scenario</b>
+	 */
+	public Scenario getScenario() {
+		return scenario;
+	}
+
+	/**
+	 * Getter for the field {@link ScenarioResult#cost}
+	 * @return the <b>cost</b> of the configuration
+	 */
+	public double getCost() {
+		return cost;
+	}
+
+	/**
+	 * Getter for the field {@link ScenarioResult#containersPerMinute}
+	 * @return the containers moved per minute of simulated time
+	 */
+	public double getContainersPerMinute() {
+		return containersPerMinute;
+	}
+
+	/**
+	 * Getter for the field {@link ScenarioResult#meanWait}
+	 * @return the mean wait for a berth in milliseconds
+	 */
+	public long getMeanWait() {
+		return meanWait;
+	}
+
+	/**
+	 * Getter for the field {@link ScenarioResult#p99Wait}
+	 * @return the 99th percentile of the wait for a berth in milliseconds
+	 */
+	public long getP99Wait() {
+		return p99Wait;
+	}
+
+	/**
+	 * Getter for the field {@link ScenarioResult#violations}
+	 * @return the quantity of loading <b>violations</b>
+	 */
+	public long getViolations() {
+		return violations;
+	}
+}
@@ -0,0 +1,90 @@
+package by.bsuir.lab02.planning;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import by.bsuir.lab02.event.Flow;
+import by.bsuir.lab02.event.PortEvent;
+
+/**
+ * WaitRecorder is the subscriber measuring a simulated run: the wait of each ship
+ *  from its arrival to its berthing, moved containers and violations. It is delivered
+ *  in the publishing thread, the scheduler of the run lets one thread publish at a time.
+ *
+ * @version 1.0
+ * @author Sytau
+ */
+class WaitRecorder implements Flow.Subscriber<PortEvent> {
+
+	/** A map of ship name - time it has arrived at, while it waits */
+	private Map<String, Long> arrivals = new HashMap<String, Long>();
+
+	private List<Long> waits = new ArrayList<Long>();
+	private long containers;
+	private long violations;
+
+	@Override
+	public synchronized void onSubscribe(Flow.Subscription subscription) {
+		subscription.request(Long.MAX_VALUE);
+	}
+
+	@Override
+	public synchronized void onNext(PortEvent event) {
+		switch (event.getType()) {
+		case SHIP_ARRIVED:
+			arrivals.put(event.getShipName(), event.getTime());
+			break;
+		case SHIP_BERTHED:
+			Long arrivedAt = arrivals.remove(event.getShipName());
+			if (arrivedAt != null) {
+				waits.add(event.getTime() - arrivedAt);
+			}
+			break;
+		case TRANSFER_COMPLETED:
+			containers += event.getContainerCount();
+			break;
+		case VIOLATION_RECORDED:
+			violations++;
+			break;
+		default:
+			break;
+		}
+	}
+
+	@Override
+	public void onError(Throwable throwable) {
+	}
+
+	@Override
+	public void onComplete() {
+	}
+
+	/**
+	 * Gets the waits of the run, a ship still waiting at the end has waited until the end
+	 * @param end the time the run has ended at
+	 * @return the sorted array of waits in milliseconds
+	 */
+	synchronized long[] getWaits(long end) {
+		long[] all = new long[waits.size() + arrivals.size()];
+		int i = 0;
+		for (long wait : waits) {
+			all[i++] = wait;
+		}
+		for (long arrivedAt : arrivals.values()) {
+			all[i++] = end - arrivedAt;
+		}
+		Arrays.sort(all);
+		return all;
+	}
+
+	synchronized long getContainers() {
+		return containers;
+	}
+
+	synchronized long getViolations() {
+		return violations;
+	}
+}
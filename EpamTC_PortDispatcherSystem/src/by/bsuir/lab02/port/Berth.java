@@ -1,10 +1,24 @@
 package by.bsuir.lab02.port;
 
-import java.util.List;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.Lock;
 
-import by.bsuir.lab02.warehouse.Container;
+import org.apache.log4j.Logger;
+
+import by.bsuir.lab02.booking.Booking;
+import by.bsuir.lab02.event.EventPublisher;
+import by.bsuir.lab02.event.PortEvent;
+import by.bsuir.lab02.journal.TransferJournal;
+import by.bsuir.lab02.journal.TransferRecord;
+import by.bsuir.lab02.profiling.LockProfiler;
+import by.bsuir.lab02.ship.Ship;
+import by.bsuir.lab02.simulation.Clock;
+import by.bsuir.lab02.stowage.StowagePlan;
+import by.bsuir.lab02.warehouse.ContainerStore;
 import by.bsuir.lab02.warehouse.Warehouse;
 
 /**
@@ -14,12 +28,67 @@ import by.bsuir.lab02.warehouse.Warehouse;
  * @author Sytau
  */
 public class Berth {
+	private final static Logger logger = Logger.getRootLogger();
+	
+	/** Capacity of a berth that fits any ship */
+	public static final int UNLIMITED_CAPACITY = Integer.MAX_VALUE;
 	
 	/** A berth id */
 	private int id;
 	
+	/** The capacity of the largest ship the berth fits */
+	private int capacity;
+	
+	/** A quantity of cranes of the berth */
+	private int craneCount;
+	
 	/** A port warehouse */
 	private Warehouse portWarehouse;
+	
+	/** A journal of container transfers, <b>null</b> if transfers aren't journalled */
+	private TransferJournal journal;
+	
+	/** A lock profiler, <b>null</b> if locks aren't profiled */
+	private LockProfiler profiler;
+	
+	/** A map of warehouse - its lock wrapped by the profiler */
+	private ConcurrentMap<Warehouse, Lock> profiledLocks = new ConcurrentHashMap<Warehouse, Lock>();
+	
+	/** Time this berth has been locked by the ship, used by the profiler */
+	long lockedAt;
+	
+	/** Time the moored ship has taken this berth by the port clock */
+	long berthedAt;
+	
+	/** The lease of the moored ship, <b>null</b> if the berth is free */
+	volatile BerthLease lease;
+	
+	/** The booking the moored ship has berthed by, <b>null</b> for a walk-in ship */
+	Booking booking;
+	
+	/** The ship moored to this berth, <b>null</b> if the berth is free */
+	volatile Ship mooredShip;
+	
+	/** Quantity of completed transfers */
+	private LongAdder completedTransfers = new LongAdder();
+	
+	/** Quantity of rejected transfers */
+	private LongAdder rejectedTransfers = new LongAdder();
+	
+	/** Quantity of containers moved by completed transfers */
+	private LongAdder movedContainers = new LongAdder();
+	
+	/** Quantity of port yard containers moved aside to dig out the cargo */
+	private LongAdder rehandledContainers = new LongAdder();
+	
+	/** Total time ships have occupied this berth in milliseconds */
+	private LongAdder occupiedTime = new LongAdder();
+	
+	/** A publisher of transfer events, <b>null</b> if events aren't published */
+	private EventPublisher<PortEvent> events;
+	
+	/** A clock of transfer events and of container arrivals */
+	private Clock clock = Clock.SYSTEM;
 
 	/**
 	 * This constructor builds a new instance of Berth with preset values
@@ -27,8 +96,33 @@ public class Berth {
 	 * @param warehouse the instance of Warehouse class
 	 */
 	public Berth(int id, Warehouse warehouse) {
+		this(id, warehouse, null);
+	}
+
+	/**
+	 * This constructor builds a new instance of Berth that journals its transfers
+	 * @param id the id of this berth
+	 * @param warehouse the instance of Warehouse class
+	 * @param journal the instance of TransferJournal class or <b>null</b>
+	 */
+	public Berth(int id, Warehouse warehouse, TransferJournal journal) {
+		this(id, UNLIMITED_CAPACITY, 1, warehouse, journal);
+	}
+
+	/**
+	 * This constructor builds a new instance of Berth for ships up to this capacity
+	 * @param id the id of this berth
+	 * @param capacity the capacity of the largest ship the berth fits
+	 * @param craneCount the quantity of cranes of the berth
+	 * @param warehouse the instance of Warehouse class
+	 * @param journal the instance of TransferJournal class or <b>null</b>
+	 */
+	public Berth(int id, int capacity, int craneCount, Warehouse warehouse, TransferJournal journal) {
 		this.id = id;
+		this.capacity = capacity;
+		this.craneCount = craneCount;
 		portWarehouse = warehouse;
+		this.journal = journal;
 	}
 	
 	/**
@@ -39,23 +133,165 @@ public class Berth {
 		return id;
 	}
 	
+	/**
+	 * Makes this berth record the waits and holds of warehouse locks
+	 * @param profiler the instance of LockProfiler class
+	 */
+	void setLockProfiler(LockProfiler profiler) {
+		this.profiler = profiler;
+	}
+	
+	/**
+	 * Getter for the field {@link Berth#capacity}
+	 * @return the <b>capacity</b> of the largest ship the berth fits
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+	
+	/**
+	 * Getter for the field {@link Berth#craneCount}
+	 * @return the <b>quantity</b> of cranes
+	 */
+	public int getCraneCount() {
+		return craneCount;
+	}
+	
+	/**
+	 * Gets the ship moored to this berth
+	 * @return the instance of Ship class or <b>null</b> if the berth is free
+	 */
+	public Ship getMooredShip() {
+		return mooredShip;
+	}
+	
+	/**
+	 * Gets the quantity of completed transfers
+	 * @return the quantity of transfers
+	 */
+	public long getCompletedTransfers() {
+		return completedTransfers.sum();
+	}
+	
+	/**
+	 * Gets the total time ships have occupied this berth
+	 * @return the time in milliseconds
+	 */
+	public long getOccupiedTime() {
+		return occupiedTime.sum();
+	}
+	
+	/**
+	 * Adds the stay of the leaving ship to the occupied time
+	 * @param stay the time the ship has occupied this berth in milliseconds
+	 */
+	void addOccupiedTime(long stay) {
+		occupiedTime.add(stay);
+	}
+	
+	/**
+	 * Gets the quantity of transfers rejected for the lack of containers or space
+	 * @return the quantity of transfers
+	 */
+	public long getRejectedTransfers() {
+		return rejectedTransfers.sum();
+	}
+	
+	/**
+	 * Gets the quantity of containers moved at this berth
+	 * @return the quantity of containers
+	 */
+	public long getMovedContainers() {
+		return movedContainers.sum();
+	}
+	
+	/**
+	 * Gets the quantity of port yard containers moved aside to dig out the cargo
+	 * @return the quantity of rehandles
+	 */
+	public long getRehandledContainers() {
+		return rehandledContainers.sum();
+	}
+	
+	/**
+	 * Setter for the field {@link Berth#clock}
+	 * @param clock the clock of the port
+	 */
+	void setClock(Clock clock) {
+		this.clock = clock;
+	}
+	
+	/**
+	 * Makes this berth publish completed and rejected transfers
+	 * @param events the instance of EventPublisher class
+	 * @param clock the clock of the port
+	 */
+	void setEventPublisher(EventPublisher<PortEvent> events, Clock clock) {
+		this.events = events;
+		this.clock = clock;
+	}
+	
+	/**
+	 * Gets the lock of the warehouse, wrapped by the profiler if locks are profiled
+	 * @param warehouse the instance of Warehouse class
+	 * @return the warehouse lock
+	 */
+	private Lock lockOf(Warehouse warehouse) {
+		if (profiler == null) {
+			return warehouse.getLock();
+		}
+		Lock lock = profiledLocks.get(warehouse);
+		if (lock == null) {
+			Lock created = profiler.wrap(warehouse.getLock(), warehouse.getName() + " warehouse",
+					warehouse.getName() + " warehouse at berth " + id);
+			// an old leaseholder and a new ship may both be here, they must share one wrapper
+			lock = profiledLocks.putIfAbsent(warehouse, created);
+			if (lock == null) {
+				lock = created;
+			}
+		}
+		return lock;
+	}
+	
+	/**
+	 * Drops the profiled lock of the ship warehouse when the ship leaves this berth
+	 * @param shipWarehouse the instance of Warehouse class for the ship
+	 */
+	void forgetLock(Warehouse shipWarehouse) {
+		profiledLocks.remove(shipWarehouse);
+	}
+	
 	/**
 	 * Locks port warehouse for unloading containers from this ship
+	 * @param lease the lease of this berth by the ship, checked under the warehouse locks
 	 * @param shipWarehouse the instance of Warehouse class for this ship
 	 * @param numberOfContainers quantity of containers to unload
 	 * @return result <b>true</b> if unloading is fulfilled successfully and <b>false</b> if isn't
 	 * @throws InterruptedException If exception occurred  in the port
+	 * @throws PortException If the lease has ended before the containers are moved
 	 */
-	public boolean add(Warehouse shipWarehouse, int numberOfContainers) throws InterruptedException {
-		boolean result = false;
-		Lock portWarehouseLock = portWarehouse.getLock();	
+	public boolean add(BerthLease lease, Warehouse shipWarehouse, int numberOfContainers)
+			throws InterruptedException, PortException {
+		int[] moved = null;
+		long lsn = 0;
+		Lock portWarehouseLock = lockOf(portWarehouse);	
 		boolean portLock = false;
+		long startedAt = events != null ? clock.currentTimeMillis() : 0;
+		if (numberOfContainers > portWarehouse.getFreeSize()) {
+			// not enough space, no need to queue for the lock
+			return transferred(shipWarehouse, numberOfContainers, null, 0, startedAt);
+		}
 
 		try{
 			portLock = portWarehouseLock.tryLock(30, TimeUnit.SECONDS);
 			if (portLock) {
 				if (numberOfContainers <= portWarehouse.getFreeSize()) {
-					result = doMoveFromShip(shipWarehouse, numberOfContainers);	
+					moved = doMoveFromShip(lease, shipWarehouse, numberOfContainers);	
+				}
+				if (moved != null && journal != null) {
+					// appending under the port lock keeps the journal in the order of transfers
+					lsn = journal.append(new TransferRecord(id, shipWarehouse.getName(), TransferRecord.Direction.TO_PORT,
+							portWarehouse.getStore(), moved));
 				}
 			}
 		} finally{
@@ -64,28 +300,40 @@ public class Berth {
 			}
 		}
 
-		return result;
+		if (moved != null) {
+			commit(lsn);
+		}
+		return transferred(shipWarehouse, numberOfContainers, moved, 0, startedAt);
 	}
 	
 	/**
 	 * Locks ship warehouse for unloading containers from this ship
 	 * 	and move containers to the port warehouse
+	 * @param lease the lease of this berth by the ship
 	 * @param shipWarehouse the instance of Warehouse class for this ship
 	 * @param numberOfContainers quantity of containers to unload
-	 * @return <b>true</b> if unloading is fulfilled successfully and <b>false</b> if isn't
+	 * @return the handles of the moved containers if unloading is fulfilled successfully and <b>null</b> if isn't
 	 * @throws InterruptedException If exception occurred  in the port
+	 * @throws PortException If the lease has ended
 	 */
-	private boolean doMoveFromShip(Warehouse shipWarehouse, int numberOfContainers) throws InterruptedException{
-		Lock shipWarehouseLock = shipWarehouse.getLock();
+	private int[] doMoveFromShip(BerthLease lease, Warehouse shipWarehouse, int numberOfContainers)
+			throws InterruptedException, PortException {
+		Lock shipWarehouseLock = lockOf(shipWarehouse);
 		boolean shipLock = false;
 		
 		try{
 			shipLock = shipWarehouseLock.tryLock(30, TimeUnit.SECONDS);
 			if (shipLock) {
+				checkLease(lease);
 				if(shipWarehouse.getRealSize() >= numberOfContainers){
-					List<Container> containers = shipWarehouse.getContainer(numberOfContainers);
-					portWarehouse.addContainer(containers);
-					return true;
+					int[] containers = shipWarehouse.removeHandles(numberOfContainers);
+					ContainerStore store = portWarehouse.getStore();
+					long now = clock.currentTimeMillis();
+					for (int container : containers) {
+						store.setArrivalTime(container, now);
+					}
+					portWarehouse.addHandles(containers);
+					return containers;
 				}
 			}
 		}finally{
@@ -94,26 +342,89 @@ public class Berth {
 			}
 		}
 		
-		return false;		
+		return null;		
 	}
 	
 	/**
 	 * Locks port warehouse for loading containers to this ship
+	 * @param lease the lease of this berth by the ship, checked under the warehouse locks
+	 * @param shipWarehouse the instance of Warehouse class for this ship
+	 * @param numberOfContainers quantity of containers to load
+	 * @return result <b>true</b> if loading is fulfilled successfully and <b>false</b> if isn't
+	 * @throws InterruptedException If exception occurred  in the port
+	 * @throws PortException If the lease has ended before the containers are moved
+	 */
+	public boolean get(BerthLease lease, Warehouse shipWarehouse, int numberOfContainers)
+			throws InterruptedException, PortException {
+		return get(lease, shipWarehouse, null, numberOfContainers);
+	}
+	
+	/**
+	 * Locks port warehouse for loading containers bound for the destination to this ship
+	 * @param lease the lease of this berth by the ship, checked under the warehouse locks
 	 * @param shipWarehouse the instance of Warehouse class for this ship
+	 * @param destination the port the containers are bound for, <b>null</b> for any containers
 	 * @param numberOfContainers quantity of containers to load
 	 * @return result <b>true</b> if loading is fulfilled successfully and <b>false</b> if isn't
 	 * @throws InterruptedException If exception occurred  in the port
+	 * @throws PortException If the lease has ended before the containers are moved
 	 */
-	public boolean get(Warehouse shipWarehouse, int numberOfContainers) throws InterruptedException {
-		boolean result = false;
-		Lock portWarehouseLock = portWarehouse.getLock();	
+	public boolean get(BerthLease lease, Warehouse shipWarehouse, String destination, int numberOfContainers)
+			throws InterruptedException, PortException {
+		return load(lease, shipWarehouse, destination, null, numberOfContainers);
+	}
+	
+	/**
+	 * Locks port warehouse for loading the planned containers to this ship
+	 * @param lease the lease of this berth by the ship, checked under the warehouse locks
+	 * @param shipWarehouse the instance of Warehouse class for this ship
+	 * @param plan the instance of StowagePlan class made for this ship
+	 * @return result <b>true</b> if loading is fulfilled successfully and <b>false</b> if isn't,
+	 * 	also if some planned container has been taken by another ship
+	 * @throws InterruptedException If exception occurred  in the port
+	 * @throws PortException If the lease has ended before the containers are moved
+	 */
+	public boolean get(BerthLease lease, Warehouse shipWarehouse, StowagePlan plan)
+			throws InterruptedException, PortException {
+		return load(lease, shipWarehouse, null, plan, plan.size());
+	}
+	
+	/**
+	 * Locks port warehouse for loading containers to this ship
+	 * @param lease the lease of this berth by the ship
+	 * @param shipWarehouse the instance of Warehouse class for this ship
+	 * @param destination the port the containers are bound for, <b>null</b> for any containers
+	 * @param plan the planned containers, <b>null</b> if they aren't planned
+	 * @param numberOfContainers quantity of containers to load
+	 * @return result <b>true</b> if loading is fulfilled successfully and <b>false</b> if isn't
+	 * @throws InterruptedException If exception occurred  in the port
+	 * @throws PortException If the lease has ended
+	 */
+	private boolean load(BerthLease lease, Warehouse shipWarehouse, String destination, StowagePlan plan,
+			int numberOfContainers) throws InterruptedException, PortException {
+		int[] moved = null;
+		long lsn = 0;
+		int rehandles = 0;
+		Lock portWarehouseLock = lockOf(portWarehouse);	
 		boolean portLock = false;
+		long startedAt = events != null ? clock.currentTimeMillis() : 0;
+		if (numberOfContainers > availableFor(destination)) {
+			// not enough containers, no need to queue for the lock
+			return transferred(shipWarehouse, numberOfContainers, null, 0, startedAt);
+		}
 
 		try{
 			portLock = portWarehouseLock.tryLock(30, TimeUnit.SECONDS);
 			if (portLock) {
-				if (numberOfContainers <= portWarehouse.getRealSize()) {
-					result = doMoveFromPort(shipWarehouse, numberOfContainers);	
+				if (numberOfContainers <= availableFor(destination)) {
+					long rehandledBefore = portWarehouse.getRehandleCount();
+					moved = doMoveFromPort(lease, shipWarehouse, destination, plan, numberOfContainers);	
+					// the port lock is held, so the yard has been dug for this transfer only
+					rehandles = (int) (portWarehouse.getRehandleCount() - rehandledBefore);
+				}
+				if (moved != null && journal != null) {
+					lsn = journal.append(new TransferRecord(id, shipWarehouse.getName(), TransferRecord.Direction.FROM_PORT,
+							portWarehouse.getStore(), moved));
 				}
 			}
 		} finally{
@@ -122,28 +433,114 @@ public class Berth {
 			}
 		}
 
-		return result;
+		if (moved != null) {
+			commit(lsn);
+		}
+		return transferred(shipWarehouse, numberOfContainers, moved, rehandles, startedAt);
+	}
+	
+	/**
+	 * Gets the quantity of port containers a ship bound for the destination can load
+	 * @param destination the port the containers are bound for, <b>null</b> for any containers
+	 * @return the quantity of containers
+	 */
+	private int availableFor(String destination) {
+		return destination != null ? portWarehouse.getRealSize(destination) : portWarehouse.getRealSize();
+	}
+	
+	/**
+	 * Counts and publishes the result of the transfer
+	 * @param shipWarehouse the instance of Warehouse class for the ship
+	 * @param numberOfContainers quantity of containers to move
+	 * @param moved the handles of the moved containers or <b>null</b> if the transfer is rejected
+	 * @param rehandles the quantity of port yard containers moved aside
+	 * @param startedAt the time the transfer has been started at
+	 * @return <b>true</b> if the transfer is completed
+	 */
+	private boolean transferred(Warehouse shipWarehouse, int numberOfContainers, int[] moved, int rehandles,
+			long startedAt) {
+		if (moved != null) {
+			completedTransfers.increment();
+			movedContainers.add(moved.length);
+			rehandledContainers.add(rehandles);
+		} else {
+			rejectedTransfers.increment();
+		}
+		if (events != null) {
+			events.publish(new PortEvent(moved != null ? PortEvent.Type.TRANSFER_COMPLETED : PortEvent.Type.TRANSFER_REJECTED,
+					clock.currentTimeMillis(), shipWarehouse.getName(), id, numberOfContainers,
+					clock.currentTimeMillis() - startedAt, rehandles));
+		}
+		return moved != null;
+	}
+	
+	/**
+	 * Checks that the ship still holds this berth. Called with both warehouses locked,
+	 * 	so the lease is checked in the critical section the transfer is made and journalled in:
+	 * 	a lease ending meanwhile ends after the transfer, and the next ship of the berth
+	 * 	can't transfer before the port warehouse lock is released
+	 * @param lease the lease of this berth by the ship
+	 * @throws PortException If the lease has ended
+	 */
+	private void checkLease(BerthLease lease) throws PortException {
+		if (lease.getBerth() != this) {
+			throw new IllegalArgumentException("Lease of berth " + lease.getBerthId() + " is used at berth " + id + ".");
+		}
+	}
+	
+	/**
+	 * Waits until the journal record of the transfer is on disk. The port lock is
+	 * 	already released, so the transfers of other berths are flushed together with it
+	 * @param lsn the journal position of the transfer record
+	 * @throws InterruptedException If exception occurred  in the port
+	 */
+	private void commit(long lsn) throws InterruptedException {
+		if (journal == null) {
+			return;
+		}
+		try {
+			journal.commit(lsn);
+		} catch (IOException e) {
+			logger.error("Transfer at berth " + id + " is not journalled.", e);
+		}
 	}
 	
 	/**
 	 * Locks ship warehouse for loading containers to this ship
 	 * 	and move containers from the port warehouse
+	 * @param lease the lease of this berth by the ship
 	 * @param shipWarehouse the instance of Warehouse class for this ship
+	 * @param destination the port the containers are bound for, <b>null</b> for any containers
+	 * @param plan the planned containers, <b>null</b> if they aren't planned
 	 * @param numberOfContainers quantity of containers to load
-	 * @return <b>true</b> if loading is fulfilled successfully and <b>false</b> if isn't
+	 * @return the handles of the moved containers if loading is fulfilled successfully and <b>null</b> if isn't
 	 * @throws InterruptedException If exception occurred  in the port
+	 * @throws PortException If the lease has ended
 	 */
-	private boolean doMoveFromPort(Warehouse shipWarehouse, int numberOfContainers) throws InterruptedException{
-		Lock shipWarehouseLock = shipWarehouse.getLock();
+	private int[] doMoveFromPort(BerthLease lease, Warehouse shipWarehouse, String destination, StowagePlan plan,
+			int numberOfContainers) throws InterruptedException, PortException {
+		Lock shipWarehouseLock = lockOf(shipWarehouse);
 		boolean shipLock = false;
 		
 		try{
 			shipLock = shipWarehouseLock.tryLock(30, TimeUnit.SECONDS);
 			if (shipLock) {
+				checkLease(lease);
 				if(numberOfContainers <= shipWarehouse.getFreeSize()){
-					List<Container> containers = portWarehouse.getContainer(numberOfContainers);
-					shipWarehouse.addContainer(containers);
-					return true;
+					int[] containers;
+					if (plan != null) {
+						containers = portWarehouse.removeHandles(plan.getHandles(), plan.getContainerIds(),
+								plan.getOverflowed());
+					} else {
+						containers = destination != null
+								? portWarehouse.removeHandles(destination, numberOfContainers)
+								: portWarehouse.removeHandles(numberOfContainers);
+					}
+					if (containers == null) {
+						return null;
+					}
+					shipWarehouse.addHandles(containers);
+					return containers;
 				}
 			}
 		}finally{
@@ -152,6 +549,6 @@ public class Berth {
 			}
 		}
 		
-		return false;		
+		return null;		
 	}
 }
@@ -0,0 +1,159 @@
+package by.bsuir.lab02.port;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import by.bsuir.lab02.ship.Ship;
+import by.bsuir.lab02.timer.TimingWheel;
+
+/**
+ * BerthLease is the right of a ship to its berth, given by {@link Port#lockBerth(Ship)}.
+ * The ship uses the berth through the lease and renews the lease before each transfer.
+ *  A lease not renewed in time expires, and the dispatcher may revoke a lease at any time,
+ *  so the berth of a crashed, stuck or overstaying ship returns to the port by itself.
+ *  Whichever of release, expiry and revocation comes first ends the lease and frees
+ *  the berth, the others do nothing.
+ *
+ * @version 1.0
+ * @author Sytau
+ */
+public class BerthLease {
+
+	private Port port;
+
+	/** The ship holding the berth */
+	private Ship ship;
+
+	/** The leased berth */
+	Berth berth;
+
+	/** State of the lease, changed once from {@link State#ACTIVE} */
+	private AtomicReference<State> state = new AtomicReference<State>(State.ACTIVE);
+
+	/** Time the lease expires at by the port clock */
+	volatile long expiresAt;
+
+	/** The scheduled expiry, guarded by the lease monitor */
+	TimingWheel.Timeout expiry;
+
+	/**
+	 * Constructor builds a new instance of BerthLease
+	 * @param port the port that has given the berth
+	 * @param ship the ship holding the berth
+	 * @param berth the leased berth
+	 */
+	BerthLease(Port port, Ship ship, Berth berth) {
+		this.port = port;
+		this.ship = ship;
+		this.berth = berth;
+	}
+
+	/**
+	 * Gets the leased berth for a transfer
+	 * @return the instance of Berth class
+	 * @throws PortException If the lease has ended and the berth may be given to another ship
+	 */
+	public Berth getBerth() throws PortException {
+		State current = state.get();
+		if (current != State.ACTIVE) {
+			throw ended(current);
+		}
+		return berth;
+	}
+
+	/**
+	 * Gets the id of the leased berth, also after the lease has ended
+	 * @return the berth <b>id</b>
+	 */
+	public int getBerthId() {
+		return berth.getId();
+	}
+
+	/**
+	 * Getter for the field {@link BerthLease#ship}
+	 * @return the ship holding the berth
+	 */
+	public Ship getShip() {
+		return ship;
+	}
+
+	/**
+	 * Getter for the field {@link BerthLease#expiresAt}
+	 * @return the time the lease expires at by the port clock in milliseconds
+	 */
+	public long getExpiresAt() {
+		return expiresAt;
+	}
+
+	/**
+	 * Getter for the field {@link BerthLease#state}
+	 * @return the state of the lease
+	 */
+	public State getState() {
+		return state.get();
+	}
+
+	/**
+	 * Checks whether the ship still holds the berth
+	 * @return <b>true</b> if the lease hasn't ended
+	 */
+	public boolean isValid() {
+		return state.get() == State.ACTIVE;
+	}
+
+	/**
+	 * Moves the expiry of the lease to this term from now and gets the leased berth
+	 * @param term the time the lease is valid for in milliseconds
+	 * @return the instance of Berth class, held by the ship for the term
+	 * @throws PortException If the lease has ended and the berth may be given to another ship
+	 */
+	public Berth renew(long term) throws PortException {
+		if (!port.renewLease(this, term)) {
+			throw ended(state.get());
+		}
+		return berth;
+	}
+
+	/**
+	 * Ends the lease by the ship leaving the berth
+	 * @return <b>true</b> if the berth has been released and <b>false</b> if the lease has ended before
+	 */
+	public boolean release() {
+		return port.endLease(this, State.RELEASED);
+	}
+
+	/**
+	 * Ends the lease by the dispatcher, the ship loses the berth
+	 * @return <b>true</b> if the berth has been taken back and <b>false</b> if the lease has ended before
+	 */
+	public boolean revoke() {
+		return port.endLease(this, State.REVOKED);
+	}
+
+	/**
+	 * Changes the state of the active lease
+	 * @param end the state the lease ends in
+	 * @return <b>true</b> if the lease has been active
+	 */
+	boolean end(State end) {
+		return state.compareAndSet(State.ACTIVE, end);
+	}
+
+	/**
+	 * Builds the exception telling that the lease has ended
+	 * @param end the state the lease has ended in
+	 * @return the instance of PortException class
+	 */
+	private PortException ended(State end) {
+		return new PortException("Lease of berth " + berth.getId() + " by " + ship.getName()
+				+ " is " + end.name().toLowerCase() + ".");
+	}
+
+	/**
+	 * Enumeration of lease states
+	 * @author Sytau
+	 *
+	 */
+	public enum State {
+		ACTIVE, RELEASED, EXPIRED, REVOKED
+	}
+}
@@ -1,19 +1,47 @@
 package by.bsuir.lab02.port;
 
-import java.util.HashMap;
-import java.util.HashSet;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
 import java.util.TimerTask;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
 
 import org.apache.log4j.Logger;
 
+import by.bsuir.lab02.booking.Booking;
+import by.bsuir.lab02.booking.BookingOffice;
+import by.bsuir.lab02.concurrency.BerthPool;
+import by.bsuir.lab02.concurrency.ConcurrencyStrategy;
+import by.bsuir.lab02.concurrency.StandardStrategy;
+import by.bsuir.lab02.crane.CranePool;
+import by.bsuir.lab02.event.EventPublisher;
+import by.bsuir.lab02.event.PortEvent;
+import by.bsuir.lab02.journal.TransferJournal;
+import by.bsuir.lab02.profiling.LockProfiler;
 import by.bsuir.lab02.ship.Ship;
+import by.bsuir.lab02.simulation.Clock;
+import by.bsuir.lab02.simulation.DeterministicScheduler;
+import by.bsuir.lab02.stowage.StowagePlanner;
+import by.bsuir.lab02.timer.TimingWheel;
+import by.bsuir.lab02.violation.ViolationCounters;
+import by.bsuir.lab02.violation.ViolationHistory;
 import by.bsuir.lab02.warehouse.Container;
+import by.bsuir.lab02.warehouse.ContainerStore;
 import by.bsuir.lab02.warehouse.Warehouse;
 
 /**
@@ -25,21 +53,108 @@ import by.bsuir.lab02.warehouse.Warehouse;
 public class Port extends TimerTask{
 	private final static Logger logger = Logger.getRootLogger();
 	private final Logger portLogger = Logger.getLogger(Port.class);
+	private final Logger overstayLogger = Logger.getLogger("by.bsuir.lab02.port.overstay");
 	
-	/** A berth queue */
-	private BlockingQueue<Berth> berthList; //  
+	/** Tick of the overstay timer */
+	private static final long OVERSTAY_TICK = 10;
+	
+	/** Half-life of violation scores by default: ten minutes */
+	public static final long VIOLATION_HALF_LIFE = 10 * 60 * 1000;
+	
+	/** Term of a berth lease in milliseconds, also the allowance of a ship over its offered loading duration */
+	public static final long DEFAULT_LEASE_TERM = 5000;
+	
+	/** Period a ship waiting for a booked port rechecks the calendars with in milliseconds */
+	public static final long BOOKING_RECHECK = 100;
+	
+	/** The longest wait of a snapshot for the port warehouse in milliseconds */
+	private static final long CHECKPOINT_TIMEOUT = 30000;
+	
+	/** All berths of the port */
+	private List<Berth> berths;
+	
+	/** A pool of free berths */
+	private BerthPool berthPool; // очередь причалов
+	
+	/** A synchronization the port is built with */
+	private ConcurrencyStrategy strategy;
+	
+	/** The capacity of the largest berth */
+	private int largestBerthCapacity;
+	
+	/** The longest wait for a berth in milliseconds, not limited if not positive */
+	private long berthWaitingTimeLimit;
+	
+	/** Speed of the cranes relative to the standard one, ships load faster at faster cranes */
+	private double craneSpeed = 1;
 	
 	/** A port warehouse */
-	private Warehouse portWarehouse; //  
+	private Warehouse portWarehouse; // хранилище порта
 	
 	/** A map of ship - berth link */
-	private Map<Ship, Berth> usedBerths; //      
+	private Map<Ship, Berth> usedBerths; // какой корабль у какого причала стоит
 	
 	/** A ship list waiting for a berth */
-	private HashSet<Ship> waitingShip; //     
+	private Queue<Ship> waitingShip; // список кораблей в ожидании причала
+	
+	/** A map of ship - its visit and loading duration violation counters */
+	private ConcurrentMap<Ship, ViolationCounters> loadingViolations; //карта нарушений времени загрузки
+	
+	/** Decaying violation scores ship priorities are lowered by */
+	private ViolationHistory violationHistory = new ViolationHistory(VIOLATION_HALF_LIFE);
+	
+	/** A journal of container transfers */
+	private TransferJournal journal;
+	
+	/** A scheduler of the deterministic run, <b>null</b> if ships run in real time */
+	private DeterministicScheduler scheduler;
+	
+	/** A lock profiler, <b>null</b> if locks aren't profiled */
+	private LockProfiler profiler;
+	
+	/** A publisher of port events, <b>null</b> if events aren't published */
+	private EventPublisher<PortEvent> events;
+	
+	/** A port-wide pool of cranes, <b>null</b> if each berth moves the cargo of its ship alone */
+	private CranePool cranePool;
+	
+	/** Calendars of berth bookings, <b>null</b> if berths are given on demand only */
+	private BookingOffice bookingOffice;
 	
-	/** A map of ship - quantity of loading duration violations */
-	private Map<Ship, Integer> loadingViolations; //   
+	/** A planner of ship loading, <b>null</b> if ships take the cargo in the order it has been put */
+	private StowagePlanner stowagePlanner;
+	
+	/** A timer of loading deadlines */
+	private TimingWheel overstayTimer;
+	
+	/** A map of ship - its loading deadline */
+	private Map<Ship, TimingWheel.Timeout> loadingDeadlines = new ConcurrentHashMap<Ship, TimingWheel.Timeout>();
+	
+	/** Ships which have crossed their loading deadline and are still loading */
+	private Set<Ship> overstayingShips = ConcurrentHashMap.<Ship>newKeySet();
+	
+	/** Flag that indicates that the port is shutting down and berths no more ships */
+	private volatile boolean closed;
+	
+	/** Ships refused mooring since the port has been closed */
+	private Set<Ship> refusedShips = ConcurrentHashMap.<Ship>newKeySet();
+	
+	private Lock shutdownLock = new ReentrantLock();
+	
+	/** Signalled when a ship leaves its berth during the shutdown or while berths are booked */
+	private Condition berthReleased = shutdownLock.newCondition();
+	
+	/** Estimator of the wait for a berth */
+	private WaitEstimator waitEstimator;
+	
+	/** Term a berth lease is given and renewed for beyond the offered loading duration */
+	private long leaseTerm = DEFAULT_LEASE_TERM;
+	
+	/** Quantity of leases expired without renewal */
+	private LongAdder expiredLeases = new LongAdder();
+	
+	/** Quantity of leases revoked by the dispatcher */
+	private LongAdder revokedLeases = new LongAdder();
 
 	/**
 	 * This constructor builds a new instance of Port with preset values
@@ -47,17 +162,279 @@ public class Port extends TimerTask{
 	 * @param warehouseSize the capacity of the port warehouse
 	 */
 	public Port(int berthSize, int warehouseSize) {
-		portWarehouse = new Warehouse(warehouseSize); //   
-		berthList = new ArrayBlockingQueue<Berth>(berthSize); //   
-		for (int i = 0; i < berthSize; i++) { //      
-			berthList.add(new Berth(i, portWarehouse));
+		this(berthSize, warehouseSize, null);
+	}
+
+	/**
+	 * This constructor builds a new instance of Port which berths journal container transfers
+	 * @param berthSize the berth quantity
+	 * @param warehouseSize the capacity of the port warehouse
+	 * @param journal the instance of TransferJournal class or <b>null</b>
+	 */
+	public Port(int berthSize, int warehouseSize, TransferJournal journal) {
+		this(berthSize, warehouseSize, StandardStrategy.REENTRANT_LOCK, journal);
+	}
+
+	/**
+	 * This constructor builds a new instance of Port synchronized with this strategy
+	 * @param berthSize the berth quantity
+	 * @param warehouseSize the capacity of the port warehouse
+	 * @param strategy the instance of ConcurrencyStrategy class
+	 * @param journal the instance of TransferJournal class or <b>null</b>
+	 */
+	public Port(int berthSize, int warehouseSize, ConcurrencyStrategy strategy, TransferJournal journal) {
+		this(filled(berthSize, Berth.UNLIMITED_CAPACITY), filled(berthSize, 1), warehouseSize, strategy, journal);
+	}
+
+	/**
+	 * This constructor builds a new instance of Port with berths of different sizes.
+	 * 	A ship is given the smallest free berth it fits.
+	 * @param berthCapacities the capacity of the largest ship each berth fits
+	 * @param berthCranes the quantity of cranes of each berth
+	 * @param warehouseSize the capacity of the port warehouse
+	 * @param strategy the instance of ConcurrencyStrategy class
+	 * @param journal the instance of TransferJournal class or <b>null</b>
+	 */
+	public Port(int[] berthCapacities, int[] berthCranes, int warehouseSize, ConcurrencyStrategy strategy,
+			TransferJournal journal) {
+		this(berthCapacities, berthCranes, warehouseSize, strategy, journal, ContainerStore.getDefault());
+	}
+
+	/**
+	 * This constructor builds a new instance of Port which warehouses keep containers in this store,
+	 * 	so ports of separate simulations share nothing
+	 * @param berthCapacities the capacity of the largest ship each berth fits
+	 * @param berthCranes the quantity of cranes of each berth
+	 * @param warehouseSize the capacity of the port warehouse
+	 * @param strategy the instance of ConcurrencyStrategy class
+	 * @param journal the instance of TransferJournal class or <b>null</b>
+	 * @param store the store of the containers of the port and its ships
+	 */
+	public Port(int[] berthCapacities, int[] berthCranes, int warehouseSize, ConcurrencyStrategy strategy,
+			TransferJournal journal, ContainerStore store) {
+		if (berthCapacities.length != berthCranes.length) {
+			throw new IllegalArgumentException("Berth capacities and crane counts differ in length.");
+		}
+		this.strategy = strategy;
+		this.journal = journal;
+		portWarehouse = new Warehouse(Warehouse.PORT_WAREHOUSE_NAME, warehouseSize,
+				strategy.newWarehouseLock(), store); // создаем пустое хранилище
+		berths = new ArrayList<Berth>(berthCapacities.length);
+		for (int i = 0; i < berthCapacities.length; i++) { // заполняем очередь причалов непосредственно самими причалами
+			berths.add(new Berth(i, berthCapacities[i], berthCranes[i], portWarehouse, journal));
+			largestBerthCapacity = Math.max(largestBerthCapacity, berthCapacities[i]);
 		}
-		usedBerths = new HashMap<Ship, Berth>(); //  ,  
-		//      
-		waitingShip = new HashSet<Ship>();
-		loadingViolations = new HashMap<Ship, Integer>();
+		berthPool = strategy.newBerthPool(berths); // создаем очередь причалов
+		waitEstimator = new WaitEstimator(berths.size());
+		usedBerths = new ConcurrentHashMap<Ship, Berth>(); // создаем объект, который будет
+		// хранить связь между кораблем и причалом
+		waitingShip = new ConcurrentLinkedQueue<Ship>();
+		loadingViolations = new ConcurrentHashMap<Ship, ViolationCounters>();
+		overstayTimer = new TimingWheel(OVERSTAY_TICK, Clock.SYSTEM.currentTimeMillis());
 
-		logger.debug(" .");
+		logger.debug("Порт создан.");
+	}
+	
+	/**
+	 * Makes ships run in the virtual time of this scheduler, so the run is reproducible
+	 * @param scheduler the instance of DeterministicScheduler class
+	 */
+	public void setScheduler(DeterministicScheduler scheduler) {
+		this.scheduler = scheduler;
+		overstayTimer = new TimingWheel(OVERSTAY_TICK, getClock().currentTimeMillis());
+		for (Berth berth : berths) {
+			berth.setClock(getClock());
+		}
+	}
+	
+	/**
+	 * Makes the port record berth waits and moorings, and berths record warehouse lock waits and holds
+	 * @param profiler the instance of LockProfiler class
+	 */
+	public void setLockProfiler(LockProfiler profiler) {
+		this.profiler = profiler;
+		for (Berth berth : berths) {
+			berth.setLockProfiler(profiler);
+		}
+	}
+	
+	/**
+	 * Makes the port and its berths publish their events. Must be set after the scheduler,
+	 * 	events are stamped with the port clock
+	 * @param events the instance of EventPublisher class
+	 */
+	public void setEventPublisher(EventPublisher<PortEvent> events) {
+		this.events = events;
+		for (Berth berth : berths) {
+			berth.setEventPublisher(events, getClock());
+		}
+	}
+	
+	/**
+	 * Makes the port score violations by this history, a persistent history keeps
+	 * 	the scores of ships across restarts
+	 * @param violationHistory the instance of ViolationHistory class
+	 */
+	public void setViolationHistory(ViolationHistory violationHistory) {
+		this.violationHistory = violationHistory;
+	}
+	
+	/**
+	 * Setter for the field {@link Port#craneSpeed}
+	 * @param craneSpeed the speed of the cranes relative to the standard one
+	 */
+	public void setCraneSpeed(double craneSpeed) {
+		if (craneSpeed <= 0) {
+			throw new IllegalArgumentException("Crane speed must be positive: " + craneSpeed);
+		}
+		this.craneSpeed = craneSpeed;
+	}
+	
+	/**
+	 * Getter for the field {@link Port#craneSpeed}
+	 * @return the speed of the cranes relative to the standard one
+	 */
+	public double getCraneSpeed() {
+		return craneSpeed;
+	}
+	
+	/**
+	 * Makes the cargo of all berths be moved by the shared cranes. Must be set after the scheduler,
+	 * 	the pool runs in the port clock
+	 * @param cranePool the instance of CranePool class
+	 */
+	public void setCranePool(CranePool cranePool) {
+		this.cranePool = cranePool;
+	}
+	
+	/**
+	 * Getter for the field {@link Port#cranePool}
+	 * @return the pool of cranes, <b>null</b> if berths move the cargo alone
+	 */
+	public CranePool getCranePool() {
+		return cranePool;
+	}
+	
+	/**
+	 * Makes berths be given by the booking calendars: booked ships get their berths
+	 * 	and other ships fill the gaps between bookings
+	 * @param bookingOffice the instance of BookingOffice class
+	 */
+	public void setBookingOffice(BookingOffice bookingOffice) {
+		this.bookingOffice = bookingOffice;
+	}
+	
+	/**
+	 * Getter for the field {@link Port#bookingOffice}
+	 * @return the calendars of berth bookings, <b>null</b> if berths aren't booked
+	 */
+	public BookingOffice getBookingOffice() {
+		return bookingOffice;
+	}
+	
+	/**
+	 * Reserves the earliest slot of a berth fitting this ship
+	 * @param ship the instance of Ship class
+	 * @param after the earliest start of the slot by the port clock in milliseconds
+	 * @param duration the duration of the slot in milliseconds
+	 * @return the instance of Booking class or <b>null</b> if berths aren't booked or none fits the ship
+	 */
+	public Booking bookBerth(Ship ship, long after, long duration) {
+		if (bookingOffice == null) {
+			return null;
+		}
+		return bookingOffice.book(ship.getName(), ship.getSize(), after, duration);
+	}
+	
+	/**
+	 * Makes ships load the containers chosen by the planner
+	 * @param stowagePlanner the instance of StowagePlanner class
+	 */
+	public void setStowagePlanner(StowagePlanner stowagePlanner) {
+		this.stowagePlanner = stowagePlanner;
+	}
+	
+	/**
+	 * Getter for the field {@link Port#stowagePlanner}
+	 * @return the planner of ship loading, <b>null</b> if loading isn't planned
+	 */
+	public StowagePlanner getStowagePlanner() {
+		return stowagePlanner;
+	}
+	
+	/**
+	 * Limits the time a ship waits for a berth, the ship is refused mooring after it
+	 * @param berthWaitingTimeLimit the limit in milliseconds, not limited if not positive
+	 */
+	public void setBerthWaitingTimeLimit(long berthWaitingTimeLimit) {
+		this.berthWaitingTimeLimit = berthWaitingTimeLimit;
+	}
+	
+	/**
+	 * Setter for the field {@link Port#leaseTerm}
+	 * @param leaseTerm the term of a berth lease in milliseconds
+	 */
+	public void setLeaseTerm(long leaseTerm) {
+		if (leaseTerm <= 0) {
+			throw new IllegalArgumentException("Lease term must be positive: " + leaseTerm);
+		}
+		this.leaseTerm = leaseTerm;
+	}
+	
+	/**
+	 * Getter for the field {@link Port#leaseTerm}
+	 * @return the term of a berth lease in milliseconds
+	 */
+	public long getLeaseTerm() {
+		return leaseTerm;
+	}
+	
+	/**
+	 * Getter for the field {@link Port#strategy}
+	 * @return the synchronization the port is built with
+	 */
+	public ConcurrencyStrategy getConcurrencyStrategy() {
+		return strategy;
+	}
+	
+	/**
+	 * Getter for the field {@link Port#portWarehouse}
+	 * @return the port warehouse
+	 */
+	public Warehouse getPortWarehouse() {
+		return portWarehouse;
+	}
+	
+	/**
+	 * Gets all berths of the port
+	 * @return the unmodifiable list of berths ordered by id
+	 */
+	public List<Berth> getBerths() {
+		return Collections.unmodifiableList(berths);
+	}
+	
+	/**
+	 * Gets the ships registered in the port
+	 * @return the list of ships
+	 */
+	public List<Ship> getShips() {
+		return new ArrayList<Ship>(loadingViolations.keySet());
+	}
+	
+	/**
+	 * Gets the ships waiting for a berth
+	 * @return the list of ships in the order of their arrival
+	 */
+	public List<Ship> getWaitingShips() {
+		return new ArrayList<Ship>(waitingShip);
+	}
+	
+	/**
+	 * Gets the clock ships have to measure and spend their time with
+	 * @return the scheduler of the deterministic run or the system clock
+	 */
+	public Clock getClock() {
+		return scheduler != null ? scheduler : Clock.SYSTEM;
 	}
 	
 	/**
@@ -69,54 +446,469 @@ public class Port extends TimerTask{
 	}
 
 	/**
-	 * Allocates a berth for this ship
+	 * Writes the snapshot of the port and ship warehouses to the transfer journal.
+	 * 	Every transfer holds the port warehouse lock, so no transfer is made meanwhile
+	 * @throws IOException If the snapshot can't be written
+	 * @throws InterruptedException If exception occurred  in the port
+	 */
+	public void checkpoint() throws IOException, InterruptedException {
+		checkpoint(CHECKPOINT_TIMEOUT);
+	}
+
+	/**
+	 * Writes the snapshot of the port and ship warehouses to the transfer journal
+	 * 	if the port warehouse is released within the timeout
+	 * @param timeout the longest wait for the port warehouse in milliseconds
+	 * @throws IOException If the snapshot can't be written or the port warehouse is still busy
+	 * @throws InterruptedException If exception occurred  in the port
+	 */
+	public void checkpoint(long timeout) throws IOException, InterruptedException {
+		if (journal == null) {
+			return;
+		}
+		Lock portWarehouseLock = portWarehouse.getLock();
+		if (!portWarehouseLock.tryLock(timeout, TimeUnit.MILLISECONDS)) {
+			throw new IOException("Port warehouse is busy, snapshot is not written.");
+		}
+		try {
+			List<Warehouse> warehouses = new ArrayList<Warehouse>();
+			warehouses.add(portWarehouse);
+			for (Ship ship : loadingViolations.keySet()) { // every ship is registered by initViolation
+				warehouses.add(ship.getWarehouse());
+			}
+			journal.checkpoint(warehouses);
+		} finally {
+			portWarehouseLock.unlock();
+		}
+	}
+
+	/**
+	 * Allocates a berth for this ship and leases it for {@link Port#getLeaseTerm()}
 	 * @param ship the instance of Ship class
-	 * @return <b>true</b> if this ship has berthed successfully and <b>false</b> if hasn't
+	 * @return the lease of the berth or <b>null</b> if this ship hasn't berthed
 	 */
-	public boolean lockBerth(Ship ship) {
+	public BerthLease lockBerth(Ship ship) {
 		Berth berth;
+		BerthLease lease;
+		long requestedAt = System.nanoTime();
+		int shipSize = ship.getSize();
+		if (closed) {
+			refusedShips.add(ship);
+			logger.debug("Порт закрыт, кораблю " + ship.getName() + " отказано в швартовке.");
+			return null;
+		}
+		if (shipSize > largestBerthCapacity) {
+			logger.debug("Корабль " + ship.getName() + " не помещается ни у одного причала.");
+			return null;
+		}
+		int priority = Thread.currentThread().getPriority();
+		waitEstimator.queued(priority);
 		try {
-			berth = berthList.take();
+			if (bookingOffice != null) {
+				berth = acquireBooked(ship);
+			} else if (scheduler != null) {
+				berth = acquireScheduled(shipSize);
+			} else if (berthWaitingTimeLimit > 0) {
+				berth = berthPool.acquire(shipSize, berthWaitingTimeLimit, TimeUnit.MILLISECONDS);
+			} else {
+				berth = berthPool.acquire(shipSize);
+			}
+			if (berth == null) {
+				if (profiler != null) {
+					profiler.statistics("Berth queue").recordTimeout(System.nanoTime() - requestedAt);
+				}
+				logger.debug("Кораблю " + ship.getName() + " отказано в швартовке.");
+				return null;
+			}
+			if (closed) {
+				// the berth has been freed by a draining ship, it stays free
+				releaseBerth(berth);
+				refusedShips.add(ship);
+				logger.debug("Порт закрыт, кораблю " + ship.getName() + " отказано в швартовке.");
+				return null;
+			}
 			usedBerths.put(ship, berth);
+			berth.mooredShip = ship;
+			berth.berthedAt = getClock().currentTimeMillis();
+			waitEstimator.berthed();
+			if (bookingOffice != null) {
+				Booking booking = bookingOffice.getBooking(ship.getName(), berth.berthedAt);
+				if (booking != null && booking.getBerthId() == berth.getId()) {
+					bookingOffice.berthed(booking, berth.berthedAt);
+					berth.booking = booking;
+				} else if (booking != null) {
+					bookingOffice.cancel(booking); // berthed elsewhere, the slot is free for others
+				}
+			}
+			loadingViolations.get(ship).recordVisit(getClock().currentTimeMillis());
+			publish(PortEvent.Type.SHIP_BERTHED, ship, berth);
+			if (profiler != null) {
+				berth.lockedAt = System.nanoTime();
+				profiler.statistics("Berth queue").recordAcquisition(berth.lockedAt - requestedAt);
+				profiler.statistics("Berth " + berth.getId()).recordAcquisition(berth.lockedAt - requestedAt);
+			}
+			lease = new BerthLease(this, ship, berth);
+			berth.lease = lease;
+			renewLease(lease, leaseTerm);
 		} catch (InterruptedException e) {
-			logger.debug(" " + ship.getName() + "   .");
-			return false;
-		}		
+			if (profiler != null) {
+				profiler.statistics("Berth queue").recordTimeout(System.nanoTime() - requestedAt);
+			}
+			logger.debug("Кораблю " + ship.getName() + " отказано в швартовке.");
+			return null;
+		} finally {
+			waitEstimator.dequeued(priority);
+		}
+		return lease;
+	}
+	
+	/**
+	 * Moves the expiry of the lease to this term from now
+	 * @param lease the instance of BerthLease class
+	 * @param term the time the lease is valid for in milliseconds
+	 * @return <b>true</b> if the lease has been renewed and <b>false</b> if it has ended
+	 */
+	boolean renewLease(final BerthLease lease, long term) {
+		synchronized (lease) {
+			if (!lease.isValid()) {
+				return false;
+			}
+			if (lease.expiry != null) {
+				overstayTimer.cancel(lease.expiry);
+			}
+			lease.expiresAt = getClock().currentTimeMillis() + term;
+			lease.expiry = overstayTimer.schedule(lease.expiresAt, new Runnable() {
+				@Override
+				public void run() {
+					if (getClock().currentTimeMillis() >= lease.getExpiresAt()) {
+						endLease(lease, BerthLease.State.EXPIRED);
+					}
+				}
+			});
+		}
 		return true;
 	}
 	
 	/**
-	 * Releases this berth after this ship loading
-	 * @param ship the instance of Ship class
-	 * @return <b>true</b> if the berth has been released successfully and <b>false</b> if hasn't
+	 * Ends the lease and releases its berth unless the lease has ended before
+	 * @param lease the instance of BerthLease class
+	 * @param end the state the lease ends in
+	 * @return <b>true</b> if the berth has been released and <b>false</b> if the lease has ended before
 	 */
-	public boolean unlockBerth(Ship ship) {
-		Berth berth = usedBerths.get(ship);
-		
-		try {
-			berthList.put(berth);
-			usedBerths.remove(ship);
-		} catch (InterruptedException e) {
-			logger.debug(" " + ship.getName() + "   .");
+	boolean endLease(BerthLease lease, BerthLease.State end) {
+		if (!lease.end(end)) {
 			return false;
 		}
+		synchronized (lease) {
+			if (lease.expiry != null) {
+				overstayTimer.cancel(lease.expiry);
+				lease.expiry = null;
+			}
+		}
+		Ship ship = lease.getShip();
+		Berth berth = lease.berth;
+		if (end == BerthLease.State.EXPIRED) {
+			expiredLeases.increment();
+			logger.warn("Аренда причала " + berth.getId() + " кораблем " + ship.getName()
+					+ " истекла, причал освобожден.");
+		} else if (end == BerthLease.State.REVOKED) {
+			revokedLeases.increment();
+			logger.warn("Аренда причала " + berth.getId() + " кораблем " + ship.getName()
+					+ " отозвана диспетчером, причал освобожден.");
+		}
+		finishLoading(ship);
+		if (profiler != null) {
+			long mooring = System.nanoTime() - berth.lockedAt;
+			profiler.statistics("Berth queue").recordHold(mooring);
+			profiler.statistics("Berth " + berth.getId()).recordHold(mooring);
+		}
+		
+		usedBerths.remove(ship);
+		berth.mooredShip = null;
+		berth.lease = null;
+		berth.forgetLock(ship.getWarehouse());
+		long stay = getClock().currentTimeMillis() - berth.berthedAt;
+		waitEstimator.unberthed(stay);
+		berth.addOccupiedTime(stay);
+		if (berth.booking != null) {
+			bookingOffice.released(berth.booking, getClock().currentTimeMillis());
+			berth.booking = null;
+		}
+		releaseBerth(berth);
+		publish(PortEvent.Type.SHIP_UNBERTHED, ship, berth);
 		
 		return true;
 	}
 	
 	/**
-	 * Gets a berth for this ship
+	 * Takes the berth back from this ship, for example from a ship which doesn't respond
 	 * @param ship the instance of Ship class
-	 * @return the instance of Berth class
-	 * @throws PortException If all berths are engaged exception occurred
+	 * @return <b>true</b> if the berth has been taken back and <b>false</b> if the ship holds no berth
 	 */
-	public Berth getBerth(Ship ship) throws PortException {
-		
-		Berth berth = usedBerths.get(ship);
-		if (berth == null){
-			throw new PortException("Try to use Berth without blocking.");
+	public boolean revokeBerth(Ship ship) {
+		BerthLease lease = getLease(ship);
+		return lease != null && lease.revoke();
+	}
+	
+	/**
+	 * Gets the quantity of leases expired without renewal
+	 * @return the quantity of expired leases
+	 */
+	public long getExpiredLeaseCount() {
+		return expiredLeases.sum();
+	}
+	
+	/**
+	 * Gets the quantity of leases revoked by the dispatcher
+	 * @return the quantity of revoked leases
+	 */
+	public long getRevokedLeaseCount() {
+		return revokedLeases.sum();
+	}
+	
+	/**
+	 * Returns the berth to the pool and wakes the ships waiting for it
+	 * @param berth the instance of Berth class
+	 */
+	private void releaseBerth(Berth berth) {
+		berthPool.release(berth);
+		if (scheduler != null) {
+			scheduler.signalAll(berthPool);
+		}
+		if (closed || bookingOffice != null) {
+			shutdownLock.lock();
+			try {
+				berthReleased.signalAll();
+			} finally {
+				shutdownLock.unlock();
+			}
 		}
-		return berth;		
+	}
+	
+	/**
+	 * Takes a berth for the ship of this size in a deterministic run, waiting by the virtual clock
+	 * 	no longer than the berth waiting time limit like a real-time wait
+	 * @param shipSize the capacity of the ship
+	 * @return the instance of Berth class or <b>null</b> if the waiting time limit has passed
+	 * @throws InterruptedException If the run is over
+	 */
+	private Berth acquireScheduled(int shipSize) throws InterruptedException {
+		long deadline = berthWaitingTimeLimit > 0 ? scheduler.currentTimeMillis() + berthWaitingTimeLimit : Long.MAX_VALUE;
+		Berth berth;
+		while ((berth = berthPool.tryAcquire(shipSize)) == null) {
+			if (deadline == Long.MAX_VALUE) {
+				scheduler.await(berthPool);
+				continue;
+			}
+			long wait = deadline - scheduler.currentTimeMillis();
+			if (wait <= 0) {
+				return null;
+			}
+			scheduler.await(berthPool, wait);
+		}
+		return berth;
+	}
+	
+	/**
+	 * Takes a berth for this ship by the booking calendars: a booked ship takes its booked berth,
+	 * 	any ship takes a free berth nobody else has booked for the time ships stay on average.
+	 * 	Calendars change with time as well as with releases, so the waiting ship rechecks them
+	 * 	every {@link Port#BOOKING_RECHECK}.
+	 * @param ship the instance of Ship class
+	 * @return the instance of Berth class or <b>null</b> if the waiting time limit has passed
+	 * @throws InterruptedException If the thread is interrupted while waiting
+	 */
+	private Berth acquireBooked(final Ship ship) throws InterruptedException {
+		Clock clock = getClock();
+		long deadline = berthWaitingTimeLimit > 0 ? clock.currentTimeMillis() + berthWaitingTimeLimit : Long.MAX_VALUE;
+		while (true) {
+			final long now = clock.currentTimeMillis();
+			final Booking booking = bookingOffice.getBooking(ship.getName(), now);
+			final long stay = Math.max(0, Math.round(waitEstimator.getServiceTime()));
+			Predicate<Berth> filter = new Predicate<Berth>() {
+				@Override
+				public boolean test(Berth berth) {
+					return booking != null && booking.getBerthId() == berth.getId()
+							|| bookingOffice.isOpen(berth, ship.getName(), now, now + stay);
+				}
+			};
+			long wait = Math.min(BOOKING_RECHECK, deadline - now);
+			if (scheduler != null) {
+				Berth berth = berthPool.tryAcquire(ship.getSize(), filter);
+				if (berth != null || wait <= 0) {
+					return berth;
+				}
+				scheduler.sleep(wait);
+				continue;
+			}
+			shutdownLock.lock();
+			try {
+				Berth berth = berthPool.tryAcquire(ship.getSize(), filter);
+				if (berth != null || wait <= 0) {
+					return berth;
+				}
+				berthReleased.await(wait, TimeUnit.MILLISECONDS);
+			} finally {
+				shutdownLock.unlock();
+			}
+		}
+	}
+	
+	/**
+	 * Estimates how long a ship of this priority arriving now waits for a berth.
+	 * 	The estimate takes no lock and may be polled as often as needed.
+	 * @param priority the priority of the ship from {@link Thread#MIN_PRIORITY} to {@link Thread#MAX_PRIORITY}
+	 * @return the expected wait in milliseconds or {@link WaitEstimator#UNKNOWN}
+	 * 	if no ship has left a berth yet
+	 */
+	public long getExpectedWait(int priority) {
+		return waitEstimator.getExpectedWait(priority);
+	}
+	
+	/**
+	 * Getter for the field {@link Port#waitEstimator}
+	 * @return the estimator of the wait for a berth
+	 */
+	public WaitEstimator getWaitEstimator() {
+		return waitEstimator;
+	}
+	
+	/**
+	 * Checks whether the port is shutting down
+	 * @return <b>true</b> if the port berths no more ships
+	 */
+	public boolean isClosed() {
+		return closed;
+	}
+	
+	/**
+	 * Shuts the port down within the timeout: berths no more ships, lets the moored ships
+	 * 	finish their transfers and leave for three quarters of the timeout, then interrupts
+	 * 	the ship threads and waits the rest of the timeout for them to end.
+	 * 	Ships of a deterministic run are stopped by the scheduler instead.
+	 * @param timeout the longest duration of the shutdown in milliseconds
+	 * @param shipThreads the threads of the ships
+	 * @return the instance of ShutdownReport class
+	 * @throws InterruptedException If the thread is interrupted while waiting for the ships
+	 */
+	public ShutdownReport shutdown(long timeout, List<Thread> shipThreads) throws InterruptedException {
+		if (scheduler != null) {
+			throw new IllegalStateException("Ships of a deterministic run are stopped by its scheduler.");
+		}
+		long startedAt = System.nanoTime();
+		long drainDeadline = startedAt + TimeUnit.MILLISECONDS.toNanos(timeout * 3 / 4);
+		long deadline = startedAt + TimeUnit.MILLISECONDS.toNanos(timeout);
+		closed = true;
+		List<String> drainedShips = new ArrayList<String>();
+		for (Ship ship : usedBerths.keySet()) {
+			drainedShips.add(ship.getName());
+		}
+		logger.debug("Порт закрыт, у причалов " + drainedShips.size() + " кораблей.");
+
+		shutdownLock.lock();
+		try {
+			long remaining;
+			while (!usedBerths.isEmpty() && (remaining = drainDeadline - System.nanoTime()) > 0) {
+				berthReleased.awaitNanos(remaining);
+			}
+		} finally {
+			shutdownLock.unlock();
+		}
+
+		List<String> cutShips = new ArrayList<String>();
+		for (Ship ship : usedBerths.keySet()) {
+			cutShips.add(ship.getName());
+		}
+		drainedShips.removeAll(cutShips);
+		Set<Ship> refused = new LinkedHashSet<Ship>(refusedShips);
+		refused.addAll(waitingShip);
+		for (Thread thread : shipThreads) {
+			thread.interrupt();
+		}
+		List<String> refusedShipNames = new ArrayList<String>();
+		for (Ship ship : refused) {
+			refusedShipNames.add(ship.getName());
+		}
+
+		List<String> runningThreads = new ArrayList<String>();
+		for (Thread thread : shipThreads) {
+			thread.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+			if (thread.isAlive()) {
+				runningThreads.add(thread.getName());
+			}
+		}
+		return new ShutdownReport(drainedShips, cutShips, refusedShipNames, runningThreads,
+				TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+	}
+	
+	/**
+	 * Starts watching the loading of this ship: a violation is recorded as soon as
+	 * 	the loading lasts longer than offered
+	 * @param ship the instance of Ship class
+	 * @param loadingDurationLimit the offered loading duration
+	 */
+	public void startLoading(final Ship ship, final long loadingDurationLimit) {
+		final Berth berth = usedBerths.get(ship);
+		TimingWheel.Timeout deadline = overstayTimer.schedule(getClock().currentTimeMillis() + loadingDurationLimit,
+				new Runnable() {
+					@Override
+					public void run() {
+						overstayed(ship, berth, loadingDurationLimit);
+					}
+				});
+		TimingWheel.Timeout previous = loadingDeadlines.put(ship, deadline);
+		if (previous != null) {
+			overstayTimer.cancel(previous);
+		}
+	}
+	
+	/**
+	 * Stops watching the loading of this ship
+	 * @param ship the instance of Ship class
+	 */
+	public void finishLoading(Ship ship) {
+		TimingWheel.Timeout deadline = loadingDeadlines.remove(ship);
+		if (deadline != null && overstayTimer.cancel(deadline)
+				&& getClock().currentTimeMillis() > deadline.getDeadline()) {
+			// the deadline has passed within the last tick
+			deadline.getTask().run();
+		}
+		overstayingShips.remove(ship);
+	}
+	
+	/**
+	 * Records the violation of the ship which is still loading after its deadline
+	 * @param ship the instance of Ship class
+	 * @param berth the berth of the ship
+	 * @param loadingDurationLimit the offered loading duration
+	 */
+	private void overstayed(Ship ship, Berth berth, long loadingDurationLimit) {
+		overstayingShips.add(ship);
+		addViolation(ship); // add violation for this ship in violation collection
+		overstayLogger.info("Корабль " + ship.getName() + " у причала " + berth.getId()
+				+ " не уложился в заявленное время загрузки " + loadingDurationLimit + "мс.");
+	}
+	
+	/**
+	 * Turns the overstay timer every tick until the thread is interrupted
+	 * @throws InterruptedException If the thread is interrupted
+	 */
+	public void watchOverstays() throws InterruptedException {
+		Clock clock = getClock();
+		while (true) {
+			clock.sleep(OVERSTAY_TICK);
+			overstayTimer.advance(clock.currentTimeMillis());
+		}
+	}
+	
+	/**
+	 * Gets the lease of the berth this ship holds
+	 * @param ship the instance of Ship class
+	 * @return the instance of BerthLease class or <b>null</b> if the ship holds no berth
+	 */
+	public BerthLease getLease(Ship ship) {
+		Berth berth = usedBerths.get(ship);
+		return berth != null ? berth.lease : null;
 	}
 
 	/**
@@ -125,19 +917,23 @@ public class Port extends TimerTask{
 	@Override
 	public void run() {
 		portLogger.info("\n");
-		portLogger.info("    : " + portWarehouse.getRealSize() + "\n" + ": ");
-		Set<Map.Entry<Ship, Berth>> setub = usedBerths.entrySet();
-		Iterator<Map.Entry<Ship, Berth>> iub = setub.iterator();
-		while (iub.hasNext()) {
-			Map.Entry<Ship, Berth> me = iub.next();
-			portLogger.info(" " + me.getKey().getName() + "   " + me.getValue().getId());
+		portLogger.info("Количество контейнеров на складе порта: " + portWarehouse.getRealSize() + "\n" + "Швартовка: ");
+		for (Berth berth : berths) {
+			Ship ship = berth.getMooredShip();
+			if (ship != null) {
+				portLogger.info("Корабль " + ship.getName() + " у причала " + berth.getId());
+			}
 		}
 		
 		Iterator<Ship> it = waitingShip.iterator();
 		while (it.hasNext()) {
-			portLogger.info(" " + it.next().getName() + "      ");
+			portLogger.info("Корабль " + it.next().getName() + "  в очереди на швартовку ");
 			
 		}
+		
+		for (Ship ship : overstayingShips) {
+			portLogger.info("Корабль " + ship.getName() + " превышает заявленное время загрузки ");
+		}
 	
 	}
 	
@@ -147,6 +943,7 @@ public class Port extends TimerTask{
 	 */
 	public void shipIsWaiting(Ship ship) {
 		waitingShip.add(ship);
+		publish(PortEvent.Type.SHIP_ARRIVED, ship, null);
 	}
 	
 	/**
@@ -162,8 +959,11 @@ public class Port extends TimerTask{
 	 * @param ship the instance of Ship class
 	 */
 	public void addViolation(Ship ship) {
-		loadingViolations.put(ship, loadingViolations.get(ship) + 1);
-//		System.out.println(" " + ship.getName() + "  " + loadingViolations.get(ship) + " ");
+		long now = getClock().currentTimeMillis();
+		loadingViolations.get(ship).recordViolation(now);
+		violationHistory.record(ship.getName(), now);
+		publish(PortEvent.Type.VIOLATION_RECORDED, ship, usedBerths.get(ship));
+//		System.out.println("Корабль " + ship.getName() + " имеет " + loadingViolations.get(ship) + " нарушений");
 	}
 	
 	/**
@@ -172,7 +972,26 @@ public class Port extends TimerTask{
 	 * @return the quantity of violations for this ship
 	 */
 	public int getViolations(Ship ship) {
-		return loadingViolations.get(ship);
+		return loadingViolations.get(ship).getTotal();
+	}
+	
+	/**
+	 * Gets the violations per berth visit of this ship within the last hour
+	 * @param ship the instance of Ship class
+	 * @return the violation rate, 0 if the ship hasn't berthed within the hour
+	 */
+	public double getViolationRate(Ship ship) {
+		return loadingViolations.get(ship).getRate(getClock().currentTimeMillis());
+	}
+	
+	/**
+	 * Gets the violation score of this ship: recent violations count fully
+	 * 	and older ones less and less
+	 * @param ship the instance of Ship class
+	 * @return the decayed score of violations
+	 */
+	public double getViolationScore(Ship ship) {
+		return violationHistory.getScore(ship.getName(), getClock().currentTimeMillis());
 	}
 	
 	/**
@@ -180,7 +999,32 @@ public class Port extends TimerTask{
 	 * @param ship the instance of Ship class
 	 */
 	public void initViolation(Ship ship) {
-		loadingViolations.put(ship, 0);
+		loadingViolations.put(ship, new ViolationCounters());
+	}
+	
+	/**
+	 * Publishes the event of this ship
+	 * @param type the type of the event
+	 * @param ship the instance of Ship class
+	 * @param berth the berth of the ship or <b>null</b>
+	 */
+	private void publish(PortEvent.Type type, Ship ship, Berth berth) {
+		if (events != null) {
+			events.publish(new PortEvent(type, getClock().currentTimeMillis(), ship.getName(),
+					berth != null ? berth.getId() : -1));
+		}
+	}
+	
+	/**
+	 * Creates the array of equal values
+	 * @param length the array length
+	 * @param value the value of each element
+	 * @return the filled array
+	 */
+	private static int[] filled(int length, int value) {
+		int[] array = new int[length];
+		Arrays.fill(array, value);
+		return array;
 	}
 
 }
@@ -0,0 +1,94 @@
+package by.bsuir.lab02.port;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * ShutdownReport is the entity class that describes what the port shutdown has drained
+ *  and what it has cut
+ *
+ * @version 1.0
+ * @author Sytau
+ */
+public class ShutdownReport {
+
+	/** names of ships that have finished their transfers and left the berths in time */
+	private List<String> drainedShips;
+
+	/** names of ships interrupted at the berths */
+	private List<String> cutShips;
+
+	/** names of ships interrupted while waiting for a berth */
+	private List<String> refusedShips;
+
+	/** names of threads still running when the shutdown has given up */
+	private List<String> runningThreads;
+
+	/** duration of the shutdown in milliseconds */
+	private long duration;
+
+	/**
+	 * Constructor builds a new instance of ShutdownReport with preset values
+	 * @param drainedShips the ships that have left the berths in time
+	 * @param cutShips the ships interrupted at the berths
+	 * @param refusedShips the ships interrupted while waiting for a berth
+	 * @param runningThreads the threads still running
+	 * @param duration the duration of the shutdown in milliseconds
+	 */
+	public ShutdownReport(List<String> drainedShips, List<String> cutShips, List<String> refusedShips,
+			List<String> runningThreads, long duration) {
+		this.drainedShips = Collections.unmodifiableList(drainedShips);
+		this.cutShips = Collections.unmodifiableList(cutShips);
+		this.refusedShips = Collections.unmodifiableList(refusedShips);
+		this.runningThreads = Collections.unmodifiableList(runningThreads);
+		this.duration = duration;
+	}
+
+	/**
+	 * Getter for the field {@link ShutdownReport#drainedShips}
+	 * @return the names of ships that have left the berths in time
+	 */
+	public List<String> getDrainedShips() {
+		return drainedShips;
+	}
+
+	/**
+	 * Getter for the field {@link ShutdownReport#cutShips}
+	 * @return the names of ships interrupted at the berths
+	 */
+	public List<String> getCutShips() {
+		return cutShips;
+	}
+
+	/**
+	 * Getter for the field {@link ShutdownReport#refusedShips}
+	 * @return the names of ships interrupted while waiting for a berth
+	 */
+	public List<String> getRefusedShips() {
+		return refusedShips;
+	}
+
+	/**
+	 * Getter for the field {@link ShutdownReport#runningThreads}
+	 * @return the names of threads still running
+	 */
+	public List<String> getRunningThreads() {
+		return runningThreads;
+	}
+
+	/**
+	 * Getter for the field {@link ShutdownReport#duration}
+	 * @return the <b>duration</b> of the shutdown in milliseconds
+	 */
+	public long getDuration() {
+		return duration;
+	}
+
+	/**
+	 * Checks whether every thread has stopped
+	 * @return <b>true</b> if no thread is running
+	 */
+	public boolean isComplete() {
+		return runningThreads.isEmpty();
+	}
+}
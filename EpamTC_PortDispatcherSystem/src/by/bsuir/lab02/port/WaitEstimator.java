@@ -0,0 +1,140 @@
+package by.bsuir.lab02.port;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * WaitEstimator estimates how long a ship arriving now waits for a berth.
+ * The port keeps counts of the waiting ships by priority, the quantity of occupied
+ *  berths and the smoothed mean berth occupancy up to date as ships come and go,
+ *  so an estimate reads a fixed quantity of counters and takes no lock.
+ * Ships of higher priority are taken to be served first and ships of the same
+ *  priority in the order of arrival. Berths are taken to be alike: a large ship
+ *  waiting for one of few large berths waits longer than estimated.
+ *
+ * @version 1.0
+ * @author Sytau
+ */
+public class WaitEstimator {
+
+	/** Weight of the last berth occupancy in the smoothed mean */
+	public static final double SMOOTHING = 0.2;
+
+	/** Estimate returned until the first ship has left its berth */
+	public static final long UNKNOWN = -1;
+
+	/** Quantity of berths of the port */
+	private int berthCount;
+
+	/** Quantities of waiting ships, indexed by priority */
+	private AtomicIntegerArray waiting = new AtomicIntegerArray(Thread.MAX_PRIORITY + 1);
+
+	/** Quantity of occupied berths */
+	private AtomicInteger occupied = new AtomicInteger();
+
+	/** Bits of the smoothed mean berth occupancy in milliseconds, negative while unknown */
+	private AtomicLong serviceTime = new AtomicLong(Double.doubleToLongBits(-1));
+
+	/**
+	 * Constructor builds a new instance of WaitEstimator
+	 * @param berthCount the quantity of berths of the port
+	 */
+	public WaitEstimator(int berthCount) {
+		if (berthCount <= 0) {
+			throw new IllegalArgumentException("Port must have berths: " + berthCount);
+		}
+		this.berthCount = berthCount;
+	}
+
+	/**
+	 * Gets the expected wait for a berth of a ship of this priority arriving now
+	 * @param priority the priority of the ship from {@link Thread#MIN_PRIORITY} to {@link Thread#MAX_PRIORITY}
+	 * @return the expected wait in milliseconds or {@link WaitEstimator#UNKNOWN}
+	 * 	if no ship has left a berth yet
+	 */
+	public long getExpectedWait(int priority) {
+		int ahead = 0;
+		for (int level = clamp(priority); level <= Thread.MAX_PRIORITY; level++) {
+			ahead += waiting.get(level);
+		}
+		int free = berthCount - occupied.get();
+		if (ahead < free) {
+			return 0;
+		}
+		double service = getServiceTime();
+		if (service < 0) {
+			return UNKNOWN;
+		}
+		// the ship berths after ahead - free + 1 departures, all berths serve at once
+		return Math.round((ahead - free + 1) * service / berthCount);
+	}
+
+	/**
+	 * Gets the smoothed mean time a ship occupies a berth
+	 * @return the time in milliseconds, negative if no ship has left a berth yet
+	 */
+	public double getServiceTime() {
+		return Double.longBitsToDouble(serviceTime.get());
+	}
+
+	/**
+	 * Gets the quantity of waiting ships
+	 * @return the quantity of ships waiting for a berth
+	 */
+	public int getWaitingCount() {
+		int count = 0;
+		for (int level = Thread.MIN_PRIORITY; level <= Thread.MAX_PRIORITY; level++) {
+			count += waiting.get(level);
+		}
+		return count;
+	}
+
+	/**
+	 * Counts the ship that starts waiting for a berth
+	 * @param priority the priority of the ship
+	 */
+	void queued(int priority) {
+		waiting.incrementAndGet(clamp(priority));
+	}
+
+	/**
+	 * Counts off the ship that stops waiting for a berth, berthed or not
+	 * @param priority the priority the ship has been counted with
+	 */
+	void dequeued(int priority) {
+		waiting.decrementAndGet(clamp(priority));
+	}
+
+	/**
+	 * Counts the berth taken by a ship
+	 */
+	void berthed() {
+		occupied.incrementAndGet();
+	}
+
+	/**
+	 * Counts the berth released by a ship and adds its occupancy to the mean
+	 * @param occupancy the time the ship has occupied the berth in milliseconds
+	 */
+	void unberthed(long occupancy) {
+		occupied.decrementAndGet();
+		while (true) {
+			long bits = serviceTime.get();
+			double mean = Double.longBitsToDouble(bits);
+			double updated = mean < 0 ? occupancy : mean + SMOOTHING * (occupancy - mean);
+			if (serviceTime.compareAndSet(bits, Double.doubleToLongBits(updated))) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Brings the priority into the range of thread priorities
+	 * @param priority the priority of a ship
+	 * @return the priority from {@link Thread#MIN_PRIORITY} to {@link Thread#MAX_PRIORITY}
+	 */
+	private static int clamp(int priority) {
+		return Math.max(Thread.MIN_PRIORITY, Math.min(Thread.MAX_PRIORITY, priority));
+	}
+}
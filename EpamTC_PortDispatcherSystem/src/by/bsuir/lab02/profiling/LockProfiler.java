@@ -0,0 +1,93 @@
+package by.bsuir.lab02.profiling;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.Lock;
+
+import org.apache.log4j.Logger;
+
+/**
+ * LockProfiler is the registry of lock statistics. It wraps the profiled locks
+ *  and builds the contention report ranked by the total wait time.
+ *
+ * @version 1.0
+ * @author Sytau
+ */
+public class LockProfiler {
+	private final Logger profilerLogger = Logger.getLogger(LockProfiler.class);
+
+	/** Order of the report: longest total wait first */
+	private static final Comparator<LockStatistics> CONTENTION_ORDER = new Comparator<LockStatistics>() {
+		@Override
+		public int compare(LockStatistics a, LockStatistics b) {
+			return Long.compare(b.getWaitNanos(), a.getWaitNanos());
+		}
+	};
+
+	/** A map of lock name - statistics */
+	private ConcurrentMap<String, LockStatistics> statistics = new ConcurrentHashMap<String, LockStatistics>();
+
+	/**
+	 * Gets the statistics of the lock, creates them on the first use
+	 * @param name the name of the lock
+	 * @return the instance of LockStatistics class
+	 */
+	public LockStatistics statistics(String name) {
+		LockStatistics result = statistics.get(name);
+		if (result == null) {
+			LockStatistics created = new LockStatistics(name);
+			result = statistics.putIfAbsent(name, created);
+			if (result == null) {
+				result = created;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Wraps the lock so its waits and holds are recorded under all these names
+	 * @param lock the profiled lock
+	 * @param names the name of the lock and the names of the sites it's used at
+	 * @return the profiled lock
+	 */
+	public Lock wrap(Lock lock, String... names) {
+		LockStatistics[] recorders = new LockStatistics[names.length];
+		for (int i = 0; i < names.length; i++) {
+			recorders[i] = statistics(names[i]);
+		}
+		return new ProfiledLock(lock, recorders);
+	}
+
+	/**
+	 * Builds the contention report, locks with the longest total wait go first
+	 * @return the report text
+	 */
+	public String report() {
+		List<LockStatistics> ranked = new ArrayList<LockStatistics>(statistics.values());
+		Collections.sort(ranked, CONTENTION_ORDER);
+
+		StringBuilder report = new StringBuilder("Lock contention report\n");
+		report.append(String.format("%-36s %9s %8s %11s %11s %11s %11s %11s %11s%n",
+				"lock", "acquired", "timeouts", "wait ms", "avg wait us", "max wait us",
+				"hold ms", "avg hold us", "max hold us"));
+		for (LockStatistics s : ranked) {
+			long attempts = s.getAcquisitions() + s.getTimeouts();
+			report.append(String.format("%-36s %9d %8d %11.1f %11.1f %11.1f %11.1f %11.1f %11.1f%n",
+					s.getName(), s.getAcquisitions(), s.getTimeouts(),
+					s.getWaitNanos() / 1e6, attempts == 0 ? 0 : s.getWaitNanos() / 1e3 / attempts, s.getMaxWaitNanos() / 1e3,
+					s.getHoldNanos() / 1e6, s.getHolds() == 0 ? 0 : s.getHoldNanos() / 1e3 / s.getHolds(), s.getMaxHoldNanos() / 1e3));
+		}
+		return report.toString();
+	}
+
+	/**
+	 * Writes the contention report to the log
+	 */
+	public void dump() {
+		profilerLogger.info(report());
+	}
+}
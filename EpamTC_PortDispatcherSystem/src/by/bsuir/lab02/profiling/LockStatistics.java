@@ -0,0 +1,136 @@
+package by.bsuir.lab02.profiling;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongBinaryOperator;
+
+/**
+ * LockStatistics is the class that accumulates acquisition wait time, hold time,
+ *  acquisition and timeout counts of one lock. Recording is contention free,
+ *  so many threads can record into the same statistics.
+ *
+ * @version 1.0
+ * @author Sytau
+ */
+public class LockStatistics {
+
+	private static final LongBinaryOperator MAX = new LongBinaryOperator() {
+		@Override
+		public long applyAsLong(long left, long right) {
+			return Math.max(left, right);
+		}
+	};
+
+	/** Name of the lock */
+	private String name;
+
+	private LongAdder acquisitions = new LongAdder();
+	private LongAdder timeouts = new LongAdder();
+	private LongAdder waitNanos = new LongAdder();
+	private LongAccumulator maxWaitNanos = new LongAccumulator(MAX, 0);
+	private LongAdder holds = new LongAdder();
+	private LongAdder holdNanos = new LongAdder();
+	private LongAccumulator maxHoldNanos = new LongAccumulator(MAX, 0);
+
+	/**
+	 * Constructor builds a new instance of LockStatistics
+	 * @param name the name of the lock
+	 */
+	public LockStatistics(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Records the successful acquisition
+	 * @param nanos the time spent waiting for the lock
+	 */
+	public void recordAcquisition(long nanos) {
+		acquisitions.increment();
+		waitNanos.add(nanos);
+		maxWaitNanos.accumulate(nanos);
+	}
+
+	/**
+	 * Records the acquisition which has failed by timeout or interruption
+	 * @param nanos the time spent waiting for the lock
+	 */
+	public void recordTimeout(long nanos) {
+		timeouts.increment();
+		waitNanos.add(nanos);
+		maxWaitNanos.accumulate(nanos);
+	}
+
+	/**
+	 * Records the release
+	 * @param nanos the time the lock has been held
+	 */
+	public void recordHold(long nanos) {
+		holds.increment();
+		holdNanos.add(nanos);
+		maxHoldNanos.accumulate(nanos);
+	}
+
+	/**
+	 * Getter for the field {@link LockStatistics#name}
+	 * @return the lock <b>name</b>
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Gets the quantity of successful acquisitions
+	 * @return the acquisition count
+	 */
+	public long getAcquisitions() {
+		return acquisitions.sum();
+	}
+
+	/**
+	 * Gets the quantity of failed acquisitions
+	 * @return the timeout count
+	 */
+	public long getTimeouts() {
+		return timeouts.sum();
+	}
+
+	/**
+	 * Gets the total time spent waiting for the lock
+	 * @return the wait time in nanoseconds
+	 */
+	public long getWaitNanos() {
+		return waitNanos.sum();
+	}
+
+	/**
+	 * Gets the longest time spent waiting for the lock
+	 * @return the wait time in nanoseconds
+	 */
+	public long getMaxWaitNanos() {
+		return maxWaitNanos.get();
+	}
+
+	/**
+	 * Gets the total time the lock has been held
+	 * @return the hold time in nanoseconds
+	 */
+	public long getHoldNanos() {
+		return holdNanos.sum();
+	}
+
+	/**
+	 * Gets the longest time the lock has been held
+	 * @return the hold time in nanoseconds
+	 */
+	public long getMaxHoldNanos() {
+		return maxHoldNanos.get();
+	}
+
+	/**
+	 * Gets the quantity of releases
+	 * @return the release count
+	 */
+	public long getHolds() {
+		return holds.sum();
+	}
+}
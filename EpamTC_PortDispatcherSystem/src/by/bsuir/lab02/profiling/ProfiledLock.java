@@ -0,0 +1,121 @@
+package by.bsuir.lab02.profiling;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * ProfiledLock is the Lock that records its waits and holds into statistics
+ *  and delegates the locking to the profiled lock
+ *
+ * @version 1.0
+ * @author Sytau
+ */
+class ProfiledLock implements Lock {
+
+	private Lock lock;
+	private LockStatistics[] statistics;
+
+	/** Time of the outermost acquisition, written and read by the holder only */
+	private long acquiredAt;
+
+	/** Quantity of nested acquisitions by the holder */
+	private int depth;
+
+	/**
+	 * Constructor builds a new instance of ProfiledLock
+	 * @param lock the profiled lock
+	 * @param statistics the statistics to record into
+	 */
+	ProfiledLock(Lock lock, LockStatistics... statistics) {
+		this.lock = lock;
+		this.statistics = statistics;
+	}
+
+	@Override
+	public void lock() {
+		long requestedAt = System.nanoTime();
+		lock.lock();
+		acquired(requestedAt);
+	}
+
+	@Override
+	public void lockInterruptibly() throws InterruptedException {
+		long requestedAt = System.nanoTime();
+		try {
+			lock.lockInterruptibly();
+		} catch (InterruptedException e) {
+			failed(requestedAt);
+			throw e;
+		}
+		acquired(requestedAt);
+	}
+
+	@Override
+	public boolean tryLock() {
+		long requestedAt = System.nanoTime();
+		if (lock.tryLock()) {
+			acquired(requestedAt);
+			return true;
+		}
+		failed(requestedAt);
+		return false;
+	}
+
+	@Override
+	public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+		long requestedAt = System.nanoTime();
+		boolean locked = false;
+		try {
+			locked = lock.tryLock(time, unit);
+		} finally {
+			if (locked) {
+				acquired(requestedAt);
+			} else {
+				failed(requestedAt);
+			}
+		}
+		return locked;
+	}
+
+	@Override
+	public void unlock() {
+		if (--depth == 0) {
+			long nanos = System.nanoTime() - acquiredAt;
+			for (LockStatistics s : statistics) {
+				s.recordHold(nanos);
+			}
+		}
+		lock.unlock();
+	}
+
+	@Override
+	public Condition newCondition() {
+		return lock.newCondition();
+	}
+
+	/**
+	 * Records the acquisition, called by the new holder
+	 * @param requestedAt the time the acquisition has started
+	 */
+	private void acquired(long requestedAt) {
+		long now = System.nanoTime();
+		if (depth++ == 0) {
+			acquiredAt = now;
+		}
+		for (LockStatistics s : statistics) {
+			s.recordAcquisition(now - requestedAt);
+		}
+	}
+
+	/**
+	 * Records the failed acquisition
+	 * @param requestedAt the time the acquisition has started
+	 */
+	private void failed(long requestedAt) {
+		long nanos = System.nanoTime() - requestedAt;
+		for (LockStatistics s : statistics) {
+			s.recordTimeout(nanos);
+		}
+	}
+}
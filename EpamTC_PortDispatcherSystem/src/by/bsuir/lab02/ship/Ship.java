@@ -1,14 +1,21 @@
 package by.bsuir.lab02.ship;
 
-import java.util.Date;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.function.BooleanSupplier;
 
 import org.apache.log4j.Logger;
 
+import by.bsuir.lab02.crane.CranePool;
 import by.bsuir.lab02.port.Berth;
+import by.bsuir.lab02.port.BerthLease;
 import by.bsuir.lab02.port.Port;
 import by.bsuir.lab02.port.PortException;
+import by.bsuir.lab02.simulation.Clock;
+import by.bsuir.lab02.stowage.StowagePlan;
+import by.bsuir.lab02.stowage.StowagePlanner;
 import by.bsuir.lab02.warehouse.Container;
 import by.bsuir.lab02.warehouse.Warehouse;
 /**
@@ -25,6 +32,9 @@ public class Ship implements Runnable {
 	/** Time limit for loading one container */
 	static int containerTimeLimit = 300;
 	
+	/** Time of a voyage between two calls at the port in milliseconds */
+	static final long VOYAGE_TIME = 1600;
+	
 	/** Flag that indicate the stop of the ship thread */
 	private volatile boolean stopThread = false;
 	
@@ -37,6 +47,24 @@ public class Ship implements Runnable {
 	private Port port;
 	private Warehouse shipWarehouse;
 	
+	/** The port this ship carries cargo to, <b>null</b> if it takes any cargo */
+	private String destination;
+	
+	/** The ports this ship calls at in order, the planned cargo is bound for them */
+	private List<String> route;
+	
+	/** The weight of cargo this ship can carry in kilograms */
+	private long deadweight = Long.MAX_VALUE;
+	
+	/** Random stream of all decisions of this ship */
+	private SplittableRandom random;
+	
+	/** Clock to measure and spend time with */
+	private Clock clock;
+	
+	/** Berth slot a ship on a scheduled service books for its next call, 0 if it comes unbooked */
+	private long linerStay;
+	
 	/**
 	 * Constructor builds a new instance of Ship with preset values
 	 * @param name the name of this ship
@@ -45,10 +73,25 @@ public class Ship implements Runnable {
 	 * @param shipWarehouseSize the capacity of this ship warehouse
 	 */
 	public Ship(String name, int shipPriority, Port port, int shipWarehouseSize) {
+		this(name, shipPriority, port, shipWarehouseSize, new SplittableRandom());
+	}
+	
+	/**
+	 * Constructor builds a new instance of Ship which decisions are taken from the random stream
+	 * @param name the name of this ship
+	 * @param shipPriority the priority of this ship
+	 * @param port the instance of Port class 
+	 * @param shipWarehouseSize the capacity of this ship warehouse
+	 * @param random the random stream of this ship, split from the master seed for reproducible runs
+	 */
+	public Ship(String name, int shipPriority, Port port, int shipWarehouseSize, SplittableRandom random) {
 		this.name = name;
+		this.random = random;
+		this.clock = port.getClock();
 		this.shipPriority = shipPriority;
 		this.port = port;
-		shipWarehouse = new Warehouse(shipWarehouseSize);
+		shipWarehouse = new Warehouse(name, shipWarehouseSize, port.getConcurrencyStrategy().newWarehouseLock(),
+				port.getPortWarehouse().getStore());
 		
 		port.initViolation(this); // initialization of ship violations
 	}
@@ -61,6 +104,82 @@ public class Ship implements Runnable {
 		shipWarehouse.addContainer(containerList);
 	}
 	
+	/**
+	 * Getter for the field {@link Ship#shipWarehouse}
+	 * @return this ship <b>warehouse</b>
+	 */
+	public Warehouse getWarehouse() {
+		return shipWarehouse;
+	}
+	
+	/**
+	 * Setter for the field {@link Ship#destination}
+	 * @param destination the port this ship carries cargo to, <b>null</b> if it takes any cargo
+	 */
+	public void setDestination(String destination) {
+		this.destination = destination;
+	}
+	
+	/**
+	 * Getter for the field {@link Ship#destination}
+	 * @return the port this ship carries cargo to
+	 */
+	public String getDestination() {
+		return destination;
+	}
+	
+	/**
+	 * Setter for the field {@link Ship#route}
+	 * @param route the ports this ship calls at in order
+	 */
+	public void setRoute(List<String> route) {
+		this.route = new ArrayList<String>(route);
+	}
+	
+	/**
+	 * Gets the ports this ship calls at in order
+	 * @return the route or its destination alone if the route isn't set
+	 */
+	public List<String> getRoute() {
+		if (route != null) {
+			return Collections.unmodifiableList(route);
+		}
+		return destination != null ? Collections.singletonList(destination) : Collections.<String>emptyList();
+	}
+	
+	/**
+	 * Setter for the field {@link Ship#deadweight}
+	 * @param deadweight the weight of cargo this ship can carry in kilograms
+	 */
+	public void setDeadweight(long deadweight) {
+		this.deadweight = deadweight;
+	}
+	
+	/**
+	 * Getter for the field {@link Ship#deadweight}
+	 * @return the weight of cargo this ship can carry in kilograms
+	 */
+	public long getDeadweight() {
+		return deadweight;
+	}
+	
+	/**
+	 * Puts this ship on a scheduled service: before each voyage it books a berth
+	 * 	slot for its next call
+	 * @param linerStay the duration of the booked slot in milliseconds, 0 to come unbooked
+	 */
+	public void setLinerService(long linerStay) {
+		this.linerStay = linerStay;
+	}
+	
+	/**
+	 * Gets the size of this ship berths have to fit
+	 * @return the capacity of this ship warehouse
+	 */
+	public int getSize() {
+		return shipWarehouse.getSize();
+	}
+	
 	/**
 	 * Getter for the field {@link Ship#name}
 	 * @return this ship <b>name</b>
@@ -82,14 +201,23 @@ public class Ship implements Runnable {
 	public void run() {
 		try {
 
-			while (!stopThread) {
+			while (!stopThread && !port.isClosed()) {
+				if (linerStay > 0) {
+					port.bookBerth(this, clock.currentTimeMillis() + VOYAGE_TIME, linerStay); // Booking the next call
+				}
 				atSea(); // Ship at the sea
+				if (port.isClosed()) {
+					break; // no more arrivals
+				}
 				inPort(); // Ship in the port
 			}
 		} catch (InterruptedException e) {
-			logger.error("      .", e);
+			if (stopThread || port.isClosed()) {
+				return; // the run is over while this ship was waiting
+			}
+			logger.error("С кораблем случилась неприятность и он уничтожен.", e);
 		} catch (PortException e) {
-			logger.error("     .", e);
+			logger.error("С кораблем случилась авария в порту.", e);
 		}
 	}
 	
@@ -98,7 +226,7 @@ public class Ship implements Runnable {
 	 * @throws InterruptedException If exception occurred  at the sea
 	 */
 	private void atSea() throws InterruptedException {
-		Thread.sleep(1600); // ship thread pause while at the sea
+		clock.sleep(VOYAGE_TIME); // ship thread pause while at the sea
 	}
 
 	/**
@@ -108,17 +236,17 @@ public class Ship implements Runnable {
 	 */
 	private void inPort() throws PortException, InterruptedException {
 		
-		/** Flag that indicate that berth is engaged by this ship */
-		boolean isLockedBerth = false;
+		/** Lease of the berth engaged by this ship */
+		BerthLease lease = null;
+		
+		/** Flag that indicate that this ship is cut off its loading */
+		boolean interrupted = false;
 		
-		Berth berth = null;
 		port.shipIsWaiting(this); // Adding this ship to the collection of ships waiting their turn
 		
-		Random importanceRandom = new Random();
-		boolean important = importanceRandom.nextBoolean(); // Calculating the importance of cargo
-		Random urgentRandom = new Random();
-		boolean urgent = urgentRandom.nextBoolean(); // Calculating the urgency of loading
-		int prior = shipPriority - port.getViolations(this); // Calculating ship priority
+		boolean important = random.nextBoolean(); // Calculating the importance of cargo
+		boolean urgent = random.nextBoolean(); // Calculating the urgency of loading
+		int prior = shipPriority - (int) Math.round(port.getViolationScore(this)); // Calculating ship priority by recent violations
 		if(important) prior = prior + 2;
 		if(urgent) prior = prior + 2;
 		if(prior < 1) prior = 1;
@@ -127,24 +255,43 @@ public class Ship implements Runnable {
 		Thread.currentThread().setPriority(prior); //Assigning priority to the ship thread
 
 		try {
-			isLockedBerth = port.lockBerth(this); // allocation of berth for the ship
+			lease = port.lockBerth(this); // allocation of berth for the ship
 			port.shipIsNotWaiting(this); // Removing this ship from the collection of ships waiting their turn
 			
-			if (isLockedBerth) {
+			if (lease != null) {
 				
-				berth = port.getBerth(this); // Getting the berth
-				Thread.sleep(500);
-				logger.debug(" " + name + "    " + berth.getId());
+				clock.sleep(500);
+				logger.debug("Корабль " + name + " пришвартовался к причалу " + lease.getBerthId());
 				ShipAction action = getNextAction(); //Getting the ship mission
-				executeAction(action, berth); // Executing the ship mission 
+				try {
+					executeAction(action, lease); // Executing the ship mission
+				} catch (PortException e) {
+					if (lease.isValid()) {
+						throw e;
+					}
+					logger.debug("Корабль " + name + " потерял причал " + lease.getBerthId() + ": " + e.getMessage());
+				}
 			} else {
-				logger.debug(" " + name + "      ");
+				logger.debug("Кораблю " + name + " отказано в швартовке к причалу ");
 			}
+		} catch (InterruptedException e) {
+			interrupted = true;
+			throw e;
 		} finally {
-			if (isLockedBerth){
-				Thread.sleep(500);
-				port.unlockBerth(this);
-				logger.debug(" " + name + "    " + berth.getId());
+			if (lease != null){
+				try {
+					if (!interrupted) {
+						clock.sleep(500);
+					}
+				} finally {
+					// an interrupted ship leaves the berth at once
+					if (lease.release()) {
+						logger.debug("Корабль " + name + " отошел от причала " + lease.getBerthId());
+					} else {
+						logger.debug("Корабль " + name + " отошел от причала " + lease.getBerthId()
+								+ ", аренда которого уже закончилась");
+					}
+				}
 			}
 		}
 		
@@ -153,58 +300,61 @@ public class Ship implements Runnable {
 	/**
 	 * Causes the ship mission: Load to port or Load from port
 	 * @param action the instance of ShipAction enumeration to choose the ship mission
-	 * @param berth the instance of Berth class
+	 * @param lease the lease of the berth
 	 * @throws InterruptedException If exception occurred  in the port
+	 * @throws PortException If the lease has ended before the mission
 	 */
-	private void executeAction(ShipAction action, Berth berth) throws InterruptedException {
+	private void executeAction(ShipAction action, BerthLease lease) throws InterruptedException, PortException {
 		switch (action) {
 		case LOAD_TO_PORT:
- 				loadToPort(berth);
+ 				loadToPort(lease);
 			break;
 		case LOAD_FROM_PORT:
-				loadFromPort(berth);
+				loadFromPort(lease);
 			break;
 		}
 	}
 	
 	/**
 	 * Loads containers from this ship to the port
-	 * @param berth the instance of Berth class
+	 * @param lease the lease of the berth
 	 * @return result <b>true</b> if mission is fulfilled successfully and <b>false</b> if isn't
 	 * @throws InterruptedException If exception occurred  in the port
+	 * @throws PortException If the lease has ended before the transfer
 	 */
-	private boolean loadToPort(Berth berth) throws InterruptedException {
+	private boolean loadToPort(BerthLease lease) throws InterruptedException, PortException {
 
 		int containersNumberToMove = containersCount(); // Container quantity to move
 		if(containersNumberToMove > shipWarehouse.getRealSize())containersNumberToMove = shipWarehouse.getRealSize();
 		int loadingDurationLimit = containersNumberToMove*containerTimeLimit; // Calculating offered loading duration
 		boolean result = false;
 
-		logger.debug(" " + name + "   " + containersNumberToMove
-				+ "      " + loadingDurationLimit + ".");
+		logger.debug("Корабль " + name + " хочет загрузить " + containersNumberToMove
+				+ " контейнеров на склад порта за " + loadingDurationLimit + "мс.");
 
-		result = berth.add(shipWarehouse, containersNumberToMove);
+		Berth berth = lease.renew(loadingDurationLimit + port.getLeaseTerm()); // the lease covers the offered loading duration
+		result = berth.add(lease, shipWarehouse, containersNumberToMove);
 
 		if (!result) {
-			Thread.sleep(400);
-			logger.debug("        "
-					+ name + " " + containersNumberToMove + " .");
+			clock.sleep(400);
+			logger.debug("Недостаточно места на складе порта для выгрузки кораблем "
+					+ name + " " + containersNumberToMove + " контейнеров.");
 		} else {
 			// Calculating real loading duration
-			Date beginDate = new Date();
-			long loadingStartAt = beginDate.getTime();
-			Random random = new Random();
-			Thread.sleep(containersNumberToMove*(random.nextInt(120) + 240));
-			Date finishDate = new Date();
-			long loadingFinishAt = finishDate.getTime();
+			long loadingStartAt = clock.currentTimeMillis();
+			port.startLoading(this, loadingDurationLimit); // the port watches the offered loading duration
+			moveContainers(lease, berth, containersNumberToMove);
+			long loadingFinishAt = clock.currentTimeMillis();
+			port.finishLoading(this);
+			lease.renew(port.getLeaseTerm()); // for leaving the berth, throws if the berth has been lost
 			long realLoadingDuration = loadingFinishAt - loadingStartAt;
 
-			logger.debug(" " + name + "  " + containersNumberToMove
-					+ "     " + realLoadingDuration + ".");
+			logger.debug("Корабль " + name + " выгрузил " + containersNumberToMove
+					+ " контейнеров в порт за " + realLoadingDuration + "мс.");
 			
 			if(realLoadingDuration > loadingDurationLimit) {
-				port.addViolation(this); // add violation for this ship in violation collection
-				shipLogger.info(" " + name + "     " + (realLoadingDuration - loadingDurationLimit) + ".");
+				// the violation is recorded by the port when the limit is crossed
+				shipLogger.info("Корабль " + name + " превысил время выгрузки на " + (realLoadingDuration - loadingDurationLimit) + "мс.");
 			}
 			
 		}
@@ -213,53 +363,112 @@ public class Ship implements Runnable {
 	
 	/**
 	 * Loads containers from the port to this ship
-	 * @param berth the instance of Berth class
+	 * @param lease the lease of the berth
 	 * @return result <b>true</b> if mission is fulfilled successfully and <b>false</b> if isn't
 	 * @throws InterruptedException If exception occurred  in the port
+	 * @throws PortException If the lease has ended before the transfer
 	 */
-	private boolean loadFromPort(Berth berth) throws InterruptedException {
+	private boolean loadFromPort(BerthLease lease) throws InterruptedException, PortException {
 		
 		int containersNumberToMove = containersCount(); // Container quantity to move
 		if(containersNumberToMove > shipWarehouse.getFreeSize())containersNumberToMove = shipWarehouse.getFreeSize();
+		StowagePlanner planner = port.getStowagePlanner();
+		StowagePlan plan = null;
+		if (planner != null && !getRoute().isEmpty()) {
+			// the heaviest balanced cargo for the ports of its route
+			plan = planner.plan(port.getPortWarehouse(), containersNumberToMove,
+					deadweight - shipWarehouse.getWeight(), getRoute());
+			containersNumberToMove = plan.size();
+		}
 		int loadingDurationLimit = containersNumberToMove*containerTimeLimit; // Calculating offered loading duration
 		boolean result = false;
 
-		logger.debug(" " + name + "   " + containersNumberToMove
-				+ "      " + loadingDurationLimit + ".");
+		logger.debug("Корабль " + name + " хочет загрузить " + containersNumberToMove
+				+ " контейнеров со склада порта за " + loadingDurationLimit + "мс.");
 		
-		result = berth.get(shipWarehouse, containersNumberToMove);
+		Berth berth = lease.renew(loadingDurationLimit + port.getLeaseTerm()); // the lease covers the offered loading duration
+		if (plan != null) {
+			result = containersNumberToMove > 0 && berth.get(lease, shipWarehouse, plan);
+			if (!result && containersNumberToMove > 0) {
+				// another ship has taken some planned container, the rest is planned once more
+				plan = planner.plan(port.getPortWarehouse(), containersNumberToMove,
+						deadweight - shipWarehouse.getWeight(), getRoute());
+				containersNumberToMove = plan.size();
+				loadingDurationLimit = containersNumberToMove*containerTimeLimit;
+				result = containersNumberToMove > 0 && berth.get(lease, shipWarehouse, plan);
+			}
+		} else {
+			result = berth.get(lease, shipWarehouse, destination, containersNumberToMove); // only the cargo bound for its destination
+		}
 		
 		if (result) {
 			// Calculating real loading duration
-			Date beginDate = new Date();
-			long loadingStartAt = beginDate.getTime();
-			Random random = new Random();
-			Thread.sleep(containersNumberToMove*(random.nextInt(120) + 240));
-			Date finishDate = new Date();
-			long loadingFinishAt = finishDate.getTime();
+			long loadingStartAt = clock.currentTimeMillis();
+			port.startLoading(this, loadingDurationLimit); // the port watches the offered loading duration
+			moveContainers(lease, berth, containersNumberToMove);
+			long loadingFinishAt = clock.currentTimeMillis();
+			port.finishLoading(this);
+			lease.renew(port.getLeaseTerm()); // for leaving the berth, throws if the berth has been lost
 			long realLoadingDuration = loadingFinishAt - loadingStartAt;
 			
-			logger.debug(" " + name + "  " + containersNumberToMove
-					+ "     " + realLoadingDuration + ".");
+			logger.debug("Корабль " + name + " загрузил " + containersNumberToMove
+					+ " контейнеров из порта за " + realLoadingDuration + "мс.");
 			
 			if(realLoadingDuration > loadingDurationLimit) {
-				port.addViolation(this); // add violation for this ship in violation collection
-				shipLogger.info(" " + name + "     " + (realLoadingDuration - loadingDurationLimit) + ".");
+				// the violation is recorded by the port when the limit is crossed
+				shipLogger.info("Корабль " + name + " превысил время загрузки на " + (realLoadingDuration - loadingDurationLimit) + "мс.");
 			}
 		} else {
-			Thread.sleep(400);
-			logger.debug("     "
-					+ "   " + containersNumberToMove + "    " + name);
+			clock.sleep(400);
+			logger.debug("Недостаточно товаров на складе порта "
+					+ " для погрузки " + containersNumberToMove + " контейнеров на корабль " + name);
 		}
 		return result;
 	}
 	
+	/**
+	 * Waits until the containers are moved: by the port crane pool if the port has one,
+	 * 	otherwise by the cranes of the berth. The warehouses have already been changed by
+	 * 	the transfer, made under the lease, so this is the crane time only: it is cut short
+	 * 	once the lease has ended and the transfer stays as it is.
+	 * @param lease the lease of the berth
+	 * @param berth the instance of Berth class
+	 * @param containersNumberToMove quantity of containers
+	 * @throws InterruptedException If exception occurred  in the port
+	 */
+	private void moveContainers(final BerthLease lease, Berth berth, int containersNumberToMove)
+			throws InterruptedException {
+		CranePool cranePool = port.getCranePool();
+		if (cranePool != null) {
+			cranePool.move(berth, containersNumberToMove, random, new BooleanSupplier() {
+				@Override
+				public boolean getAsBoolean() {
+					return lease.isValid();
+				}
+			});
+		} else {
+			long craneTime = craneTime(containersNumberToMove);
+			for (int i = 0; i < containersNumberToMove && lease.isValid(); i++) {
+				// the same total time as one crane sleep, split between the containers
+				clock.sleep(craneTime * (i + 1) / containersNumberToMove - craneTime * i / containersNumberToMove);
+			}
+		}
+	}
+	
+	/**
+	 * Calculates the time the cranes of the port move the containers in
+	 * @param containersNumberToMove quantity of containers
+	 * @return the time in milliseconds
+	 */
+	private long craneTime(int containersNumberToMove) {
+		return (long) (containersNumberToMove*(random.nextInt(120) + 240) / port.getCraneSpeed());
+	}
+	
 	/**
 	 * Calculates number of containers to load
 	 * @return number of containers
 	 */
 	private int containersCount() {
-		Random random = new Random();
 		return random.nextInt(20) + 1;
 	}
 	
@@ -268,7 +477,6 @@ public class Ship implements Runnable {
 	 * @return the ship mission
 	 */
 	private ShipAction getNextAction() {
-		Random random = new Random();
 		boolean value = random.nextBoolean();
 		if (value && shipWarehouse.getRealSize() != 0) {
 			return ShipAction.LOAD_TO_PORT;
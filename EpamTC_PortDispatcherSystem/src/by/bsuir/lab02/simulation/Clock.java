@@ -0,0 +1,38 @@
+package by.bsuir.lab02.simulation;
+
+/**
+ * Clock is the interface of the time source ships and port measure
+ *  and spend their time with
+ *
+ * @version 1.0
+ * @author Sytau
+ */
+public interface Clock {
+
+	/** The clock of the real time */
+	Clock SYSTEM = new Clock() {
+
+		@Override
+		public long currentTimeMillis() {
+			return System.currentTimeMillis();
+		}
+
+		@Override
+		public void sleep(long millis) throws InterruptedException {
+			Thread.sleep(millis);
+		}
+	};
+
+	/**
+	 * Gets the current time
+	 * @return the current time in milliseconds
+	 */
+	long currentTimeMillis();
+
+	/**
+	 * Pauses the current thread
+	 * @param millis the pause duration in milliseconds
+	 * @throws InterruptedException If the thread is interrupted while sleeping
+	 */
+	void sleep(long millis) throws InterruptedException;
+}
@@ -0,0 +1,341 @@
+package by.bsuir.lab02.simulation;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * DeterministicScheduler is the virtual time clock that runs its threads one at a time.
+ * A thread runs until it sleeps or waits, then the thread with the earliest wake-up
+ *  time continues. Ties are broken by thread priority and by registration order,
+ *  so the same threads with the same random streams repeat the same run.
+ *
+ * @version 1.0
+ * @author Sytau
+ */
+public class DeterministicScheduler implements Clock {
+
+	/** Order of wake-ups: time, higher priority first, registration order */
+	private static final Comparator<Participant> WAKE_UP_ORDER = new Comparator<Participant>() {
+		@Override
+		public int compare(Participant a, Participant b) {
+			if (a.wakeAt != b.wakeAt) {
+				return a.wakeAt < b.wakeAt ? -1 : 1;
+			}
+			if (a.priority != b.priority) {
+				return b.priority - a.priority;
+			}
+			return a.order - b.order;
+		}
+	};
+
+	private Lock lock = new ReentrantLock();
+	private Condition done = lock.newCondition();
+
+	/** Threads ready to run */
+	private PriorityQueue<Participant> ready = new PriorityQueue<Participant>(16, WAKE_UP_ORDER);
+
+	/** Threads waiting for a signal: condition - waiting threads */
+	private Map<Object, List<Participant>> waiting = new HashMap<Object, List<Participant>>();
+
+	private ThreadLocal<Participant> current = new ThreadLocal<Participant>();
+
+	/** The thread which is running now */
+	private Participant running;
+
+	/** Virtual time */
+	private long now;
+
+	/** Virtual time the run ends at */
+	private long horizon;
+
+	private boolean started;
+
+	/** Flag that indicates that the horizon is reached, threads stay suspended */
+	private boolean finished;
+
+	/** Flag that indicates that suspended threads are released with InterruptedException */
+	private boolean shutdown;
+	private int participantCount;
+
+	/**
+	 * Creates a thread which runs under this scheduler. Threads start running
+	 *  in the order of their creation when {@link DeterministicScheduler#runUntil(long)} is called.
+	 * @param task the task of the thread
+	 * @param name the name of the thread
+	 * @return the thread to start
+	 */
+	public Thread newThread(final Runnable task, String name) {
+		final Participant participant = new Participant();
+		lock.lock();
+		try {
+			participant.order = participantCount++;
+			participant.turn = lock.newCondition();
+			ready.add(participant);
+		} finally {
+			lock.unlock();
+		}
+		return new Thread(new Runnable() {
+			@Override
+			public void run() {
+				current.set(participant);
+				try {
+					lock.lock();
+					try {
+						awaitTurn(participant);
+					} finally {
+						lock.unlock();
+					}
+					task.run();
+				} catch (InterruptedException e) {
+					// the run is over before the thread started
+				} finally {
+					leave(participant);
+				}
+			}
+		}, name);
+	}
+
+	/**
+	 * Runs the started threads until the virtual time reaches the horizon
+	 *  or no thread can continue
+	 * @param duration the duration of the run in virtual milliseconds
+	 * @throws InterruptedException If the calling thread is interrupted
+	 */
+	public void runUntil(long duration) throws InterruptedException {
+		lock.lock();
+		try {
+			horizon = now + duration;
+			started = true;
+			dispatch();
+			while (!finished) {
+				done.await();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Ends the run: all threads of this scheduler get InterruptedException
+	 *  from their next or current sleep or wait
+	 */
+	public void shutdown() {
+		lock.lock();
+		try {
+			finish();
+			shutdown = true;
+			for (Participant participant : ready) {
+				participant.turn.signal();
+			}
+			for (List<Participant> list : waiting.values()) {
+				for (Participant participant : list) {
+					participant.turn.signal();
+				}
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public long currentTimeMillis() {
+		lock.lock();
+		try {
+			return now;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void sleep(long millis) throws InterruptedException {
+		Participant participant = currentParticipant();
+		lock.lock();
+		try {
+			if (shutdown) {
+				throw new InterruptedException();
+			}
+			participant.wakeAt = now + millis;
+			participant.priority = Thread.currentThread().getPriority();
+			ready.add(participant);
+			dispatch();
+			awaitTurn(participant);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Suspends the current thread until the condition is signalled
+	 * @param condition the object identifying the condition
+	 * @throws InterruptedException If the run is over
+	 */
+	public void await(Object condition) throws InterruptedException {
+		Participant participant = currentParticipant();
+		lock.lock();
+		try {
+			if (shutdown) {
+				throw new InterruptedException();
+			}
+			participant.priority = Thread.currentThread().getPriority();
+			List<Participant> list = waiting.get(condition);
+			if (list == null) {
+				list = new ArrayList<Participant>();
+				waiting.put(condition, list);
+			}
+			list.add(participant);
+			dispatch();
+			awaitTurn(participant);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Suspends the current thread until the condition is signalled or the virtual time passes
+	 * @param condition the object identifying the condition
+	 * @param millis the longest wait in milliseconds of virtual time
+	 * @return <b>true</b> if the condition has been signalled and <b>false</b> if the time has passed
+	 * @throws InterruptedException If the run is over
+	 */
+	public boolean await(Object condition, long millis) throws InterruptedException {
+		Participant participant = currentParticipant();
+		lock.lock();
+		try {
+			if (shutdown) {
+				throw new InterruptedException();
+			}
+			participant.priority = Thread.currentThread().getPriority();
+			participant.signalled = false;
+			List<Participant> list = waiting.get(condition);
+			if (list == null) {
+				list = new ArrayList<Participant>();
+				waiting.put(condition, list);
+			}
+			list.add(participant);
+			participant.wakeAt = now + Math.max(0, millis);
+			ready.add(participant); // the wake-up of the time limit
+			dispatch();
+			awaitTurn(participant);
+			if (!participant.signalled) {
+				list = waiting.get(condition);
+				if (list != null && list.remove(participant) && list.isEmpty()) {
+					waiting.remove(condition);
+				}
+			}
+			return participant.signalled;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Makes all threads waiting for the condition ready to run at the current time.
+	 *  The current thread keeps running.
+	 * @param condition the object identifying the condition
+	 */
+	public void signalAll(Object condition) {
+		lock.lock();
+		try {
+			List<Participant> list = waiting.remove(condition);
+			if (list != null) {
+				for (Participant participant : list) {
+					ready.remove(participant); // a thread waiting with a time limit is woken earlier
+					participant.signalled = true;
+					participant.wakeAt = now;
+					ready.add(participant);
+				}
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Gets the state of the current thread
+	 * @return the participant of the current thread
+	 */
+	private Participant currentParticipant() {
+		Participant participant = current.get();
+		if (participant == null) {
+			throw new IllegalStateException(Thread.currentThread().getName() + " is not run by the scheduler.");
+		}
+		return participant;
+	}
+
+	/**
+	 * Removes the finished thread and passes the run to the next one
+	 * @param participant the finished thread
+	 */
+	private void leave(Participant participant) {
+		lock.lock();
+		try {
+			ready.remove(participant);
+			if (running == participant) {
+				dispatch();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Passes the run to the thread with the earliest wake-up. Must be called under the lock.
+	 */
+	private void dispatch() {
+		if (!started || finished) {
+			return;
+		}
+		Participant next = ready.peek();
+		if (next == null || next.wakeAt > horizon) {
+			finish();
+			return;
+		}
+		running = ready.poll();
+		now = Math.max(now, running.wakeAt);
+		running.turn.signal();
+	}
+
+	/**
+	 * Waits until this thread is chosen to run. Must be called under the lock.
+	 * @param participant the current thread
+	 * @throws InterruptedException If the run is over
+	 */
+	private void awaitTurn(Participant participant) throws InterruptedException {
+		while (running != participant || !started) {
+			if (shutdown) {
+				throw new InterruptedException();
+			}
+			participant.turn.awaitUninterruptibly();
+		}
+	}
+
+	/**
+	 * Stops passing the run, all threads stay suspended. Must be called under the lock.
+	 */
+	private void finish() {
+		finished = true;
+		running = null;
+		done.signalAll();
+	}
+
+	/**
+	 * State of a thread run by the scheduler
+	 */
+	private static class Participant {
+		int order;
+		int priority;
+		long wakeAt;
+		Condition turn;
+
+		/** Flag that indicates that the awaited condition has been signalled */
+		boolean signalled;
+	}
+}
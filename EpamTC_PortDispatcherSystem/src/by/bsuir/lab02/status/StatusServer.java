@@ -0,0 +1,373 @@
+package by.bsuir.lab02.status;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import by.bsuir.lab02.booking.BookingOffice;
+import by.bsuir.lab02.crane.Crane;
+import by.bsuir.lab02.crane.CranePool;
+import by.bsuir.lab02.port.Berth;
+import by.bsuir.lab02.port.BerthLease;
+import by.bsuir.lab02.port.Port;
+import by.bsuir.lab02.ship.Ship;
+import by.bsuir.lab02.warehouse.InventorySummary;
+import by.bsuir.lab02.warehouse.Warehouse;
+
+/**
+ * StatusServer is the embedded HTTP server answering <code>GET /status</code>
+ *  with the port status in JSON. The status is serialized by one thread every
+ *  refresh interval and every request gets the same bytes, so polling clients
+ *  never read the port themselves.
+ *
+ * @version 1.0
+ * @author Sytau
+ */
+public class StatusServer {
+	private final static Logger logger = Logger.getRootLogger();
+
+	/** Order of ships in the status */
+	private static final Comparator<Ship> NAME_ORDER = new Comparator<Ship>() {
+		@Override
+		public int compare(Ship a, Ship b) {
+			return a.getName().compareTo(b.getName());
+		}
+	};
+
+	private Port port;
+	private InetSocketAddress address;
+
+	/** Interval between status refreshes in milliseconds */
+	private long refreshMillis;
+
+	private HttpServer server;
+	private ScheduledExecutorService refresher;
+	private ExecutorService handlers;
+
+	/** The serialized status given to every request */
+	private volatile byte[] snapshot = "{}".getBytes(StandardCharsets.UTF_8);
+
+	/** Time the server has been started at */
+	private long startedAt;
+
+	/**
+	 * Constructor builds a new instance of StatusServer with preset values
+	 * @param port the instance of Port class
+	 * @param address the address to listen at
+	 * @param refreshMillis the interval between status refreshes in milliseconds
+	 */
+	public StatusServer(Port port, InetSocketAddress address, long refreshMillis) {
+		this.port = port;
+		this.address = address;
+		this.refreshMillis = refreshMillis;
+	}
+
+	/**
+	 * Starts refreshing the status and answering requests
+	 * @throws IOException If the address can't be bound
+	 */
+	public void start() throws IOException {
+		startedAt = System.currentTimeMillis();
+		refresh();
+		server = HttpServer.create(address, 0);
+		server.createContext("/status", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				respond(exchange);
+			}
+		});
+		handlers = Executors.newFixedThreadPool(2, daemonThreads("Status-server"));
+		server.setExecutor(handlers);
+		refresher = Executors.newSingleThreadScheduledExecutor(daemonThreads("Status-refresher"));
+		refresher.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					refresh();
+				} catch (RuntimeException e) {
+					logger.error("Port status is not refreshed.", e);
+				}
+			}
+		}, refreshMillis, refreshMillis, TimeUnit.MILLISECONDS);
+		server.start();
+		logger.debug("Port status is served at http://" + server.getAddress().getHostString() + ":"
+				+ server.getAddress().getPort() + "/status");
+	}
+
+	/**
+	 * Stops the server, requests in progress are given a second to finish
+	 */
+	public void stop() {
+		if (server != null) {
+			refresher.shutdownNow();
+			server.stop(1);
+			handlers.shutdownNow();
+		}
+	}
+
+	/**
+	 * Gets the address the server listens at
+	 * @return the bound address
+	 */
+	public InetSocketAddress getAddress() {
+		return server != null ? server.getAddress() : address;
+	}
+
+	/**
+	 * Sends the last serialized status
+	 * @param exchange the HTTP exchange
+	 * @throws IOException If the response can't be sent
+	 */
+	private void respond(HttpExchange exchange) throws IOException {
+		try {
+			if (!"GET".equals(exchange.getRequestMethod())) {
+				exchange.getResponseHeaders().set("Allow", "GET");
+				exchange.sendResponseHeaders(405, -1);
+				return;
+			}
+			byte[] body = snapshot;
+			exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+			exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+			exchange.sendResponseHeaders(200, body.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(body);
+			}
+		} finally {
+			exchange.close();
+		}
+	}
+
+	/**
+	 * Serializes the current port status
+	 */
+	private void refresh() {
+		long now = System.currentTimeMillis();
+		StringBuilder json = new StringBuilder(1024);
+		Warehouse portWarehouse = port.getPortWarehouse();
+		json.append("{\"time\":").append(now);
+
+		json.append(",\"warehouses\":[");
+		appendWarehouse(json, portWarehouse);
+		List<Ship> ships = port.getShips();
+		Collections.sort(ships, NAME_ORDER);
+		for (Ship ship : ships) {
+			json.append(',');
+			appendWarehouse(json, ship.getWarehouse());
+		}
+
+		CranePool cranePool = port.getCranePool();
+		long transfers = 0;
+		long rejected = 0;
+		long containers = 0;
+		long rehandles = 0;
+		json.append("],\"berths\":[");
+		boolean first = true;
+		for (Berth berth : port.getBerths()) {
+			Ship ship = berth.getMooredShip();
+			BerthLease lease = ship != null ? port.getLease(ship) : null;
+			if (!first) {
+				json.append(',');
+			}
+			first = false;
+			json.append("{\"id\":").append(berth.getId()).append(",\"ship\":");
+			if (ship != null) {
+				appendString(json, ship.getName());
+			} else {
+				json.append("null");
+			}
+			json.append(",\"capacity\":").append(berth.getCapacity())
+					.append(",\"cranes\":").append(berth.getCraneCount())
+					.append(",\"craneUtilization\":").append(cranePool != null
+							? Math.round(cranePool.getUtilization(berth) * 1000) / 1000.0 : 0)
+					.append(",\"occupiedTime\":").append(berth.getOccupiedTime())
+					.append(",\"leaseExpiresAt\":").append(lease != null ? String.valueOf(lease.getExpiresAt()) : "null")
+					.append(",\"transfers\":").append(berth.getCompletedTransfers())
+					.append(",\"rehandles\":").append(berth.getRehandledContainers()).append('}');
+			transfers += berth.getCompletedTransfers();
+			rejected += berth.getRejectedTransfers();
+			containers += berth.getMovedContainers();
+			rehandles += berth.getRehandledContainers();
+		}
+
+		json.append("],\"cranes\":[");
+		first = true;
+		if (cranePool != null) {
+			for (Crane crane : cranePool.getCranes()) {
+				if (!first) {
+					json.append(',');
+				}
+				first = false;
+				json.append("{\"name\":");
+				appendString(json, crane.getName());
+				json.append(",\"berth\":").append(crane.getHomeBerthId())
+						.append(",\"utilization\":").append(Math.round(cranePool.getUtilization(crane) * 1000) / 1000.0)
+						.append(",\"moved\":").append(crane.getMovedContainers())
+						.append(",\"stolen\":").append(crane.getStolenMoves()).append('}');
+			}
+		}
+
+		json.append("],\"waiting\":[");
+		first = true;
+		for (Ship ship : port.getWaitingShips()) {
+			if (!first) {
+				json.append(',');
+			}
+			first = false;
+			appendString(json, ship.getName());
+		}
+
+		json.append("],\"expectedWait\":{");
+		for (int priority = Thread.MIN_PRIORITY; priority <= Thread.MAX_PRIORITY; priority++) {
+			if (priority > Thread.MIN_PRIORITY) {
+				json.append(',');
+			}
+			json.append('"').append(priority).append("\":").append(port.getExpectedWait(priority));
+		}
+
+		json.append("},\"leases\":{\"expired\":").append(port.getExpiredLeaseCount())
+				.append(",\"revoked\":").append(port.getRevokedLeaseCount());
+
+		BookingOffice bookingOffice = port.getBookingOffice();
+		json.append("},\"bookings\":");
+		if (bookingOffice != null) {
+			json.append("{\"booked\":").append(bookingOffice.getBookedCount())
+					.append(",\"honoured\":").append(bookingOffice.getHonouredCount())
+					.append(",\"onTime\":").append(bookingOffice.getOnTimeCount())
+					.append(",\"lapsed\":").append(bookingOffice.getLapsedCount()).append('}');
+		} else {
+			json.append("null");
+		}
+
+		json.append(",\"violations\":{");
+		first = true;
+		for (Ship ship : ships) {
+			if (!first) {
+				json.append(',');
+			}
+			first = false;
+			appendString(json, ship.getName());
+			json.append(':').append(port.getViolations(ship));
+		}
+
+		json.append("},\"violationRates\":{");
+		first = true;
+		for (Ship ship : ships) {
+			if (!first) {
+				json.append(',');
+			}
+			first = false;
+			appendString(json, ship.getName());
+			json.append(':').append(Math.round(port.getViolationRate(ship) * 1000) / 1000.0);
+		}
+
+		long uptime = Math.max(1, now - startedAt);
+		json.append("},\"throughput\":{\"transfers\":").append(transfers)
+				.append(",\"rejectedTransfers\":").append(rejected)
+				.append(",\"containers\":").append(containers)
+				.append(",\"containersPerMinute\":").append(containers * 60000 / uptime)
+				.append(",\"rehandles\":").append(rehandles)
+				.append(",\"craneEfficiency\":").append(containers == 0 ? 100 : containers * 100 / (containers + rehandles))
+				.append("},\"inventory\":");
+		appendInventory(json, portWarehouse.getStore().getColumns().summarize(null, port.getClock().currentTimeMillis()));
+		json.append('}');
+		snapshot = json.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Appends the aggregates of the containers of the port and all ships
+	 * @param json the status being built
+	 * @param summary the instance of InventorySummary class
+	 */
+	private static void appendInventory(StringBuilder json, InventorySummary summary) {
+		json.append("{\"containers\":").append(summary.getContainerCount())
+				.append(",\"weight\":").append(summary.getTotalWeight())
+				.append(",\"hazardous\":").append(summary.getHazardousCount())
+				.append(",\"averageDwell\":").append(summary.getAverageDwellTime())
+				.append(",\"owners\":{");
+		boolean first = true;
+		for (Map.Entry<String, Long> entry : summary.getOwnerCounts().entrySet()) {
+			if (!first) {
+				json.append(',');
+			}
+			first = false;
+			appendString(json, entry.getKey());
+			json.append(':').append(entry.getValue());
+		}
+		json.append("}}");
+	}
+
+	/**
+	 * Appends the warehouse level and its containers by destination
+	 * @param json the status being built
+	 * @param warehouse the instance of Warehouse class
+	 */
+	private static void appendWarehouse(StringBuilder json, Warehouse warehouse) {
+		json.append("{\"name\":");
+		appendString(json, warehouse.getName());
+		json.append(",\"containers\":").append(warehouse.getRealSize())
+				.append(",\"capacity\":").append(warehouse.getSize())
+				.append(",\"overflowed\":").append(warehouse.getOverflowSize()).append(",\"destinations\":{");
+		boolean first = true;
+		for (Map.Entry<String, Integer> entry : warehouse.getDestinationCounts().entrySet()) {
+			if (!first) {
+				json.append(',');
+			}
+			first = false;
+			appendString(json, entry.getKey());
+			json.append(':').append(entry.getValue());
+		}
+		json.append("}}");
+	}
+
+	/**
+	 * Appends the JSON string literal
+	 * @param json the status being built
+	 * @param value the string value
+	 */
+	private static void appendString(StringBuilder json, String value) {
+		json.append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '"' || c == '\\') {
+				json.append('\\').append(c);
+			} else if (c < 0x20) {
+				json.append(String.format("\\u%04x", (int) c));
+			} else {
+				json.append(c);
+			}
+		}
+		json.append('"');
+	}
+
+	/**
+	 * Creates the factory of named daemon threads
+	 * @param name the thread name
+	 * @return the thread factory
+	 */
+	private static ThreadFactory daemonThreads(final String name) {
+		return new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable task) {
+				Thread thread = new Thread(task, name);
+				thread.setDaemon(true);
+				return thread;
+			}
+		};
+	}
+}
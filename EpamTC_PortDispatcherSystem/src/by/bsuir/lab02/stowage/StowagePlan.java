@@ -0,0 +1,105 @@
+package by.bsuir.lab02.stowage;
+
+/**
+ * StowagePlan is the entity class that describes the containers chosen for a ship
+ *  in the order of their loading: the cargo for the last port of the route first,
+ *  heavier containers below lighter ones
+ *
+ * @version 1.0
+ * @author Sytau
+ */
+public class StowagePlan {
+
+	/** handles of the chosen port containers in the order of loading, tier slots of the overflowed ones */
+	private int[] handles;
+
+	/** ids of the chosen containers, a handle is valid while it holds this id */
+	private int[] containerIds;
+
+	/** flags of the chosen containers kept in the overflow tier of the port warehouse */
+	private boolean[] overflowed;
+
+	/** total gross weight of the chosen containers in kilograms */
+	private long totalWeight;
+
+	/** difference of the weights stowed on the two sides of the ship in kilograms */
+	private long imbalance;
+
+	/** quantity of candidate plans compared */
+	private int searchedPlans;
+
+	/**
+	 * Constructor builds a new instance of StowagePlan with preset values
+	 * @param handles the handles of the containers in the order of loading
+	 * @param containerIds the ids of the containers
+	 * @param overflowed the flags of the overflowed containers
+	 * @param totalWeight the total gross weight in kilograms
+	 * @param imbalance the difference of the side weights in kilograms
+	 * @param searchedPlans the quantity of candidate plans compared
+	 */
+	public StowagePlan(int[] handles, int[] containerIds, boolean[] overflowed, long totalWeight, long imbalance,
+			int searchedPlans) {
+		this.handles = handles;
+		this.containerIds = containerIds;
+		this.overflowed = overflowed;
+		this.totalWeight = totalWeight;
+		this.imbalance = imbalance;
+		this.searchedPlans = searchedPlans;
+	}
+
+	/**
+	 * Getter for the field {@link StowagePlan#handles}
+	 * @return the <b>handles</b> of the containers in the order of loading
+	 */
+	public int[] getHandles() {
+		return handles;
+	}
+
+	/**
+	 * Getter for the field {@link StowagePlan#containerIds}
+	 * @return the container <b>ids</b>
+	 */
+	public int[] getContainerIds() {
+		return containerIds;
+	}
+
+	/**
+	 * Getter for the field {@link StowagePlan#overflowed}
+	 * @return the flags of the containers planned in the overflow tier
+	 */
+	public boolean[] getOverflowed() {
+		return overflowed;
+	}
+
+	/**
+	 * Gets the quantity of planned containers
+	 * @return the quantity of containers
+	 */
+	public int size() {
+		return handles.length;
+	}
+
+	/**
+	 * Getter for the field {@link StowagePlan#totalWeight}
+	 * @return the total gross <b>weight</b> in kilograms
+	 */
+	public long getTotalWeight() {
+		return totalWeight;
+	}
+
+	/**
+	 * Getter for the field {@link StowagePlan#imbalance}
+	 * @return the <b>imbalance</b> of the sides in kilograms
+	 */
+	public long getImbalance() {
+		return imbalance;
+	}
+
+	/**
+	 * Getter for the field {@link StowagePlan#searchedPlans}
+	 * @return the quantity of candidate plans compared
+	 */
+	public int getSearchedPlans() {
+		return searchedPlans;
+	}
+}
@@ -0,0 +1,370 @@
+package by.bsuir.lab02.stowage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+import by.bsuir.lab02.warehouse.ContainerStore;
+import by.bsuir.lab02.warehouse.Warehouse;
+
+/**
+ * StowagePlanner chooses the port containers a ship loads: the cargo for the ports of
+ *  its route, as many containers as the free places and deadweight of the ship allow and
+ *  the heaviest such cargo, spread over the two sides of the ship so that their weights
+ *  differ by no more than the allowed imbalance.
+ * Candidate plans are searched in parallel on a ForkJoinPool, each task filling the ship
+ *  greedily in its own order and improving the fill by swaps until the time budget is spent.
+ *  The tasks are seeded by their number and the best plan wins by quantity, weight, imbalance
+ *  and task number. A time budget cuts the swaps by the speed of the host and the quantity
+ *  of tasks follows its cores, so a reproducible run plans without a time budget and with
+ *  {@link StowagePlanner#REPRODUCIBLE_SEARCHES} tasks: then the plan depends only on the cargo.
+ *
+ * @version 1.0
+ * @author Sytau
+ */
+public class StowagePlanner {
+
+	/** Quantity of swaps tried by one task */
+	private static final int SWAP_ATTEMPTS = 50000;
+
+	/** Quantity of candidate plans searched at once in a reproducible run */
+	public static final int REPRODUCIBLE_SEARCHES = 4;
+
+	/** Spread of the weights the greedy fill of a task orders containers by */
+	private static final double ORDER_NOISE = 0.3;
+
+	private ForkJoinPool pool;
+
+	/** Quantity of candidate plans searched at once */
+	private int searches;
+
+	/** The largest allowed difference of the side weights in kilograms */
+	private long maxImbalance;
+
+	/** Time budget of a plan in milliseconds, 0 if the tasks try all their swaps */
+	private long budgetMillis;
+
+	/**
+	 * Constructor builds a new instance of StowagePlanner searching on the common pool
+	 * @param maxImbalance the largest allowed difference of the side weights in kilograms
+	 * @param budgetMillis the time budget of a plan in milliseconds
+	 */
+	public StowagePlanner(long maxImbalance, long budgetMillis) {
+		this(ForkJoinPool.commonPool(), maxImbalance, budgetMillis);
+	}
+
+	/**
+	 * Constructor builds a new instance of StowagePlanner searching on this pool
+	 * @param pool the pool of the search tasks
+	 * @param maxImbalance the largest allowed difference of the side weights in kilograms
+	 * @param budgetMillis the time budget of a plan in milliseconds
+	 */
+	public StowagePlanner(ForkJoinPool pool, long maxImbalance, long budgetMillis) {
+		this(pool, Math.max(2, pool.getParallelism()), maxImbalance, budgetMillis);
+	}
+
+	/**
+	 * Constructor builds a new instance of StowagePlanner searching this quantity of plans on this pool
+	 * @param pool the pool of the search tasks
+	 * @param searches the quantity of candidate plans searched at once
+	 * @param maxImbalance the largest allowed difference of the side weights in kilograms
+	 * @param budgetMillis the time budget of a plan in milliseconds, 0 for no time budget
+	 */
+	public StowagePlanner(ForkJoinPool pool, int searches, long maxImbalance, long budgetMillis) {
+		if (searches <= 0 || budgetMillis < 0) {
+			throw new IllegalArgumentException("Stowage planner needs searches and a non-negative budget: "
+					+ searches + ", " + budgetMillis);
+		}
+		this.pool = pool;
+		this.searches = searches;
+		this.maxImbalance = maxImbalance;
+		this.budgetMillis = budgetMillis;
+	}
+
+	/**
+	 * Plans the loading of a ship from the warehouse. The plan is a snapshot: its containers
+	 * 	may be taken by another ship before it is loaded.
+	 * @param warehouse the port warehouse
+	 * @param slots the quantity of containers the ship can take
+	 * @param weightLimit the weight the ship can take in kilograms
+	 * @param route the ports of the ship route in the order of calling
+	 * @return the instance of StowagePlan class, empty if there is no cargo for the route
+	 */
+	public StowagePlan plan(Warehouse warehouse, int slots, long weightLimit, List<String> route) {
+		long deadline = budgetMillis > 0 ? System.nanoTime() + budgetMillis * 1000000 : Long.MAX_VALUE;
+		ContainerStore store = warehouse.getStore();
+		List<int[]> legHandles = new ArrayList<int[]>(route.size());
+		List<int[]> legSlots = new ArrayList<int[]>(route.size());
+		int count = 0;
+		for (String destination : route) {
+			int[] handles = warehouse.getHandles(destination);
+			int[] overflowSlots = warehouse.getOverflowSlots(destination);
+			legHandles.add(handles);
+			legSlots.add(overflowSlots);
+			count += handles.length + overflowSlots.length;
+		}
+
+		Cargo cargo = new Cargo(count);
+		int i = 0;
+		for (int leg = 0; leg < route.size(); leg++) {
+			for (int handle : legHandles.get(leg)) {
+				cargo.handles[i] = handle;
+				cargo.ids[i] = store.getId(handle);
+				cargo.weights[i] = store.getWeight(handle);
+				cargo.legs[i] = leg;
+				i++;
+			}
+			for (int slot : legSlots.get(leg)) {
+				cargo.handles[i] = slot;
+				cargo.ids[i] = warehouse.getOverflowId(slot);
+				cargo.weights[i] = warehouse.getOverflowWeight(slot);
+				cargo.overflowed[i] = true;
+				cargo.legs[i] = leg;
+				i++;
+			}
+		}
+		if (count == 0 || slots <= 0) {
+			return new StowagePlan(new int[0], new int[0], new boolean[0], 0, 0, 0);
+		}
+
+		List<Search> tasks = new ArrayList<Search>(searches);
+		for (int task = 0; task < searches; task++) {
+			tasks.add(new Search(cargo, task, slots, weightLimit, deadline));
+		}
+		Candidate best = pool.invoke(new Portfolio(tasks));
+		return best.toPlan(cargo, searches);
+	}
+
+	/**
+	 * Cargo is the columns of the containers the plans are chosen from,
+	 * 	the quayside ones by their handles and the overflowed ones by their tier slots
+	 */
+	private static class Cargo {
+		int[] handles;
+		int[] ids;
+		int[] weights;
+		int[] legs;
+		boolean[] overflowed;
+
+		Cargo(int count) {
+			handles = new int[count];
+			ids = new int[count];
+			weights = new int[count];
+			legs = new int[count];
+			overflowed = new boolean[count];
+		}
+	}
+
+	/**
+	 * Candidate is the plan found by one search: the chosen cargo indexes and their sides
+	 */
+	private static class Candidate {
+		int task;
+		int[] chosen;
+		long weight;
+		long imbalance;
+
+		boolean isBetterThan(Candidate other) {
+			if (chosen.length != other.chosen.length) {
+				return chosen.length > other.chosen.length;
+			}
+			if (weight != other.weight) {
+				return weight > other.weight;
+			}
+			if (imbalance != other.imbalance) {
+				return imbalance < other.imbalance;
+			}
+			return task < other.task;
+		}
+
+		/**
+		 * Orders the chosen containers for loading: the last port of the route first,
+		 * 	heavier containers first within a port
+		 * @param cargo the cargo the plan is chosen from
+		 * @param searchedPlans the quantity of candidate plans compared
+		 * @return the instance of StowagePlan class
+		 */
+		StowagePlan toPlan(final Cargo cargo, int searchedPlans) {
+			Integer[] order = new Integer[chosen.length];
+			for (int i = 0; i < chosen.length; i++) {
+				order[i] = chosen[i];
+			}
+			Arrays.sort(order, new Comparator<Integer>() {
+				@Override
+				public int compare(Integer a, Integer b) {
+					if (cargo.legs[a] != cargo.legs[b]) {
+						return cargo.legs[b] - cargo.legs[a];
+					}
+					if (cargo.weights[a] != cargo.weights[b]) {
+						return cargo.weights[b] - cargo.weights[a];
+					}
+					return a - b;
+				}
+			});
+			int[] handles = new int[order.length];
+			int[] ids = new int[order.length];
+			boolean[] overflowed = new boolean[order.length];
+			for (int i = 0; i < order.length; i++) {
+				handles[i] = cargo.handles[order[i]];
+				ids[i] = cargo.ids[order[i]];
+				overflowed[i] = cargo.overflowed[order[i]];
+			}
+			return new StowagePlan(handles, ids, overflowed, weight, imbalance, searchedPlans);
+		}
+	}
+
+	/**
+	 * Portfolio is the task running all searches and keeping the best plan
+	 */
+	@SuppressWarnings("serial")
+	private static class Portfolio extends RecursiveTask<Candidate> {
+		private List<Search> searches;
+
+		Portfolio(List<Search> searches) {
+			this.searches = searches;
+		}
+
+		@Override
+		protected Candidate compute() {
+			Candidate best = null;
+			for (Search search : ForkJoinTask.invokeAll(searches)) {
+				Candidate candidate = search.join();
+				if (best == null || candidate.isBetterThan(best)) {
+					best = candidate;
+				}
+			}
+			return best;
+		}
+	}
+
+	/**
+	 * Search is the task filling the ship in its own order and improving the fill by swaps
+	 */
+	@SuppressWarnings("serial")
+	private class Search extends RecursiveTask<Candidate> {
+		private Cargo cargo;
+		private int task;
+		private int slots;
+		private long weightLimit;
+		private long deadline;
+
+		Search(Cargo cargo, int task, int slots, long weightLimit, long deadline) {
+			this.cargo = cargo;
+			this.task = task;
+			this.slots = slots;
+			this.weightLimit = weightLimit;
+			this.deadline = deadline;
+		}
+
+		@Override
+		protected Candidate compute() {
+			int[] weights = cargo.weights;
+			int count = weights.length;
+			SplittableRandom random = new SplittableRandom(task);
+
+			// the first task fills lightest first, the others in shuffled orders near it
+			long[] keys = new long[count];
+			for (int i = 0; i < count; i++) {
+				double noise = task == 0 ? 1 : 1 + ORDER_NOISE * (random.nextDouble() - 0.5);
+				keys[i] = ((long) (weights[i] * noise) << 32) | i;
+			}
+			Arrays.sort(keys);
+
+			boolean[] taken = new boolean[count];
+			int[] chosen = new int[Math.min(slots, count)];
+			int size = 0;
+			long weight = 0;
+			for (int k = 0; k < count && size < chosen.length; k++) {
+				int i = (int) keys[k];
+				if (weight + weights[i] <= weightLimit) {
+					taken[i] = true;
+					chosen[size++] = i;
+					weight += weights[i];
+				}
+			}
+
+			// swap a chosen container for a heavier one left ashore while it fits
+			for (int attempt = 0; attempt < SWAP_ATTEMPTS && size < count; attempt++) {
+				if ((attempt & 255) == 0 && System.nanoTime() > deadline) {
+					break;
+				}
+				int in = random.nextInt(count);
+				if (taken[in]) {
+					continue;
+				}
+				if (size < chosen.length) {
+					if (weight + weights[in] <= weightLimit) {
+						taken[in] = true;
+						chosen[size++] = in;
+						weight += weights[in];
+					}
+					continue;
+				}
+				int slot = random.nextInt(size);
+				int out = chosen[slot];
+				long gain = weights[in] - weights[out];
+				if (gain > 0 && weight + gain <= weightLimit) {
+					taken[out] = false;
+					taken[in] = true;
+					chosen[slot] = in;
+					weight += gain;
+				}
+			}
+			return balance(Arrays.copyOf(chosen, size));
+		}
+
+		/**
+		 * Puts each container, heaviest first, on the lighter side with room and
+		 * 	leaves ashore the containers that keep the sides too far apart
+		 * @param chosen the chosen cargo indexes
+		 * @return the instance of Candidate class
+		 */
+		private Candidate balance(int[] chosen) {
+			int[] weights = cargo.weights;
+			long[] keys = new long[chosen.length];
+			for (int i = 0; i < chosen.length; i++) {
+				keys[i] = ((long) weights[chosen[i]] << 32) | chosen[i];
+			}
+			Arrays.sort(keys);
+			int sideSlots = (slots + 1) / 2;
+			int[][] sides = new int[2][sideSlots];
+			int[] sizes = new int[2];
+			long[] sideWeights = new long[2];
+			for (int k = keys.length - 1; k >= 0; k--) {
+				int i = (int) keys[k];
+				int side = sideWeights[0] <= sideWeights[1] ? 0 : 1;
+				if (sizes[side] == sideSlots) {
+					side = 1 - side;
+				}
+				sides[side][sizes[side]++] = i;
+				sideWeights[side] += weights[i];
+			}
+			while (Math.abs(sideWeights[0] - sideWeights[1]) > maxImbalance) {
+				int heavier = sideWeights[0] > sideWeights[1] ? 0 : 1;
+				long excess = sideWeights[heavier] - sideWeights[1 - heavier];
+				// the container closest to the excess brings the sides nearest
+				int closest = 0;
+				for (int j = 1; j < sizes[heavier]; j++) {
+					if (Math.abs(excess - weights[sides[heavier][j]]) < Math.abs(excess - weights[sides[heavier][closest]])) {
+						closest = j;
+					}
+				}
+				sideWeights[heavier] -= weights[sides[heavier][closest]];
+				sides[heavier][closest] = sides[heavier][--sizes[heavier]];
+			}
+			Candidate candidate = new Candidate();
+			candidate.task = task;
+			candidate.chosen = new int[sizes[0] + sizes[1]];
+			System.arraycopy(sides[0], 0, candidate.chosen, 0, sizes[0]);
+			System.arraycopy(sides[1], 0, candidate.chosen, sizes[0], sizes[1]);
+			candidate.weight = sideWeights[0] + sideWeights[1];
+			candidate.imbalance = Math.abs(sideWeights[0] - sideWeights[1]);
+			return candidate;
+		}
+	}
+}
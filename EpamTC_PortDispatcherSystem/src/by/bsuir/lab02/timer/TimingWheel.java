@@ -0,0 +1,239 @@
+package by.bsuir.lab02.timer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * TimingWheel is the hierarchical timing wheel of deadlines.
+ * Each level has 64 slots, a slot of a level spans all slots of the level below.
+ *  A deadline is put into the slot of the lowest level that covers it and moves
+ *  down a level when the wheel turns to its slot, so scheduling and cancelling
+ *  are O(1) whatever the quantity of deadlines.
+ * The wheel doesn't run by itself, it is turned by {@link TimingWheel#advance(long)}.
+ *
+ * @version 1.0
+ * @author Sytau
+ */
+public class TimingWheel {
+
+	private static final int SLOT_BITS = 6;
+	private static final int SLOTS = 1 << SLOT_BITS;
+	private static final int SLOT_MASK = SLOTS - 1;
+	private static final int LEVELS = 4;
+
+	/** Duration of one tick in milliseconds */
+	private long tickMillis;
+
+	/** Time of the tick 0 */
+	private long startMillis;
+
+	/** The last processed tick */
+	private long currentTick;
+
+	/** Slot lists of every level, each list starts with an empty head */
+	private Timeout[][] slots = new Timeout[LEVELS][SLOTS];
+
+	private Lock lock = new ReentrantLock();
+
+	/** Quantity of scheduled deadlines */
+	private int size;
+
+	/**
+	 * Constructor builds a new instance of TimingWheel
+	 * @param tickMillis the duration of one tick in milliseconds
+	 * @param startMillis the current time in milliseconds
+	 */
+	public TimingWheel(long tickMillis, long startMillis) {
+		this.tickMillis = tickMillis;
+		this.startMillis = startMillis;
+		for (int level = 0; level < LEVELS; level++) {
+			for (int slot = 0; slot < SLOTS; slot++) {
+				Timeout head = new Timeout(null, 0, 0);
+				head.next = head;
+				head.prev = head;
+				slots[level][slot] = head;
+			}
+		}
+	}
+
+	/**
+	 * Schedules the task to run when the time passes the deadline
+	 * @param deadlineMillis the deadline in milliseconds
+	 * @param task the task run by the thread turning the wheel
+	 * @return the scheduled deadline to cancel
+	 */
+	public Timeout schedule(long deadlineMillis, Runnable task) {
+		// the first tick that ends after the deadline
+		long deadlineTick = Math.max(0, deadlineMillis - startMillis) / tickMillis + 1;
+		Timeout timeout = new Timeout(task, deadlineMillis, deadlineTick);
+		lock.lock();
+		try {
+			insert(timeout, currentTick + 1);
+			size++;
+		} finally {
+			lock.unlock();
+		}
+		return timeout;
+	}
+
+	/**
+	 * Cancels the deadline
+	 * @param timeout the scheduled deadline
+	 * @return <b>true</b> if the deadline is cancelled and <b>false</b> if it has fired or been cancelled before
+	 */
+	public boolean cancel(Timeout timeout) {
+		lock.lock();
+		try {
+			if (timeout.prev == null) {
+				return false;
+			}
+			unlink(timeout);
+			size--;
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Turns the wheel up to this time and runs the tasks of passed deadlines
+	 *  in the calling thread
+	 * @param nowMillis the current time in milliseconds
+	 */
+	public void advance(long nowMillis) {
+		long targetTick = (nowMillis - startMillis) / tickMillis;
+		List<Timeout> expired = new ArrayList<Timeout>();
+		lock.lock();
+		try {
+			while (currentTick < targetTick) {
+				currentTick++;
+				for (int level = 1; level < LEVELS; level++) {
+					// the level turns a slot when all levels below have wrapped
+					if ((currentTick & ((1L << (SLOT_BITS * level)) - 1)) != 0) {
+						break;
+					}
+					cascade(level, (int) (currentTick >>> (SLOT_BITS * level)) & SLOT_MASK);
+				}
+				Timeout head = slots[0][(int) currentTick & SLOT_MASK];
+				while (head.next != head) {
+					Timeout timeout = head.next;
+					unlink(timeout);
+					if (timeout.deadlineTick <= currentTick) {
+						size--;
+						expired.add(timeout);
+					} else {
+						insert(timeout, currentTick + 1);
+					}
+				}
+			}
+		} finally {
+			lock.unlock();
+		}
+		for (Timeout timeout : expired) {
+			timeout.task.run();
+		}
+	}
+
+	/**
+	 * Gets the quantity of scheduled deadlines
+	 * @return the quantity of deadlines
+	 */
+	public int size() {
+		lock.lock();
+		try {
+			return size;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Moves the deadlines of the slot to the levels below. Must be called under the lock.
+	 * @param level the level of the slot
+	 * @param slot the slot index
+	 */
+	private void cascade(int level, int slot) {
+		Timeout head = slots[level][slot];
+		while (head.next != head) {
+			Timeout timeout = head.next;
+			unlink(timeout);
+			// the slot of the current tick is processed after cascading
+			insert(timeout, currentTick);
+		}
+	}
+
+	/**
+	 * Puts the deadline to the slot of the lowest level covering it. Must be called under the lock.
+	 * @param timeout the deadline
+	 * @param earliestTick the earliest tick which slot is not processed yet
+	 */
+	private void insert(Timeout timeout, long earliestTick) {
+		long tick = Math.max(timeout.deadlineTick, earliestTick);
+		long delta = tick - currentTick;
+		int level = 0;
+		while (level < LEVELS - 1 && delta >= (1L << (SLOT_BITS * (level + 1)))) {
+			level++;
+		}
+		if (delta >= (1L << (SLOT_BITS * LEVELS))) {
+			// beyond the wheel: park in the farthest slot and reinsert when it turns
+			tick = currentTick + (1L << (SLOT_BITS * LEVELS)) - 1;
+		}
+		Timeout head = slots[level][(int) (tick >>> (SLOT_BITS * level)) & SLOT_MASK];
+		timeout.prev = head.prev;
+		timeout.next = head;
+		head.prev.next = timeout;
+		head.prev = timeout;
+	}
+
+	/**
+	 * Removes the deadline from its slot. Must be called under the lock.
+	 * @param timeout the deadline
+	 */
+	private void unlink(Timeout timeout) {
+		timeout.prev.next = timeout.next;
+		timeout.next.prev = timeout.prev;
+		timeout.prev = null;
+		timeout.next = null;
+	}
+
+	/**
+	 * Timeout is the deadline scheduled in the wheel
+	 */
+	public static class Timeout {
+		private Runnable task;
+		private long deadlineMillis;
+		private long deadlineTick;
+		private Timeout prev;
+		private Timeout next;
+
+		/**
+		 * Constructor builds a new instance of Timeout
+		 * @param task the task to run at the deadline
+		 * @param deadlineMillis the deadline in milliseconds
+		 * @param deadlineTick the tick to run the task at
+		 */
+		private Timeout(Runnable task, long deadlineMillis, long deadlineTick) {
+			this.task = task;
+			this.deadlineMillis = deadlineMillis;
+			this.deadlineTick = deadlineTick;
+		}
+
+		/**
+		 * Getter for the field {@link Timeout#task}
+		 * @return the <b>task</b> to run at the deadline
+		 */
+		public Runnable getTask() {
+			return task;
+		}
+
+		/**
+		 * Getter for the field {@link Timeout#deadlineMillis}
+		 * @return the deadline in milliseconds
+		 */
+		public long getDeadline() {
+			return deadlineMillis;
+		}
+	}
+}
@@ -0,0 +1,108 @@
+package by.bsuir.lab02.violation;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * SlidingWindowCounter counts events of the last window of time in a ring of buckets,
+ *  for example the last hour in one-minute buckets. A bucket keeps its period number
+ *  in the high half of a long and its count in the low half, so an event is counted by
+ *  one compare-and-set that also clears a bucket left from an old turn of the ring.
+ *  Counting never blocks and the sum reads a fixed quantity of buckets.
+ *
+ * @version 1.0
+ * @author Sytau
+ */
+public class SlidingWindowCounter {
+
+	private static final long COUNT_MASK = 0xFFFFFFFFL;
+
+	/** Period numbers and counts of the buckets */
+	private AtomicLongArray buckets;
+
+	/** Duration of a bucket in milliseconds */
+	private long bucketMillis;
+
+	/**
+	 * Constructor builds a new instance of SlidingWindowCounter
+	 * @param bucketCount the quantity of buckets in the window
+	 * @param bucketMillis the duration of a bucket in milliseconds
+	 */
+	public SlidingWindowCounter(int bucketCount, long bucketMillis) {
+		if (bucketCount <= 0 || bucketMillis <= 0) {
+			throw new IllegalArgumentException("Window must have positive buckets: " + bucketCount + "x" + bucketMillis);
+		}
+		buckets = new AtomicLongArray(bucketCount);
+		this.bucketMillis = bucketMillis;
+	}
+
+	/**
+	 * Counts an event
+	 * @param now the time of the event in milliseconds
+	 */
+	public void increment(long now) {
+		long period = period(now);
+		int index = (int) (period % buckets.length());
+		while (true) {
+			long bucket = buckets.get(index);
+			long bucketPeriod = bucket >>> 32;
+			long updated;
+			if (bucketPeriod == (period & COUNT_MASK)) {
+				updated = bucket + 1;
+			} else if (isNewer(bucketPeriod, period)) {
+				return; // a late event of a period the ring has already left
+			} else {
+				updated = (period & COUNT_MASK) << 32 | 1;
+			}
+			if (buckets.compareAndSet(index, bucket, updated)) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Sums the events of the window ending now
+	 * @param now the current time in milliseconds
+	 * @return the quantity of events
+	 */
+	public long sum(long now) {
+		long period = period(now);
+		int length = buckets.length();
+		long sum = 0;
+		for (int index = 0; index < length; index++) {
+			long bucket = buckets.get(index);
+			long age = ((period & COUNT_MASK) - (bucket >>> 32)) & COUNT_MASK;
+			if (bucket != 0 && age < length) {
+				sum += bucket & COUNT_MASK;
+			}
+		}
+		return sum;
+	}
+
+	/**
+	 * Gets the duration of the window
+	 * @return the window in milliseconds
+	 */
+	public long getWindowMillis() {
+		return bucketMillis * buckets.length();
+	}
+
+	/**
+	 * Gets the number of the bucket period of this time
+	 * @param time the time in milliseconds
+	 * @return the period number
+	 */
+	private long period(long time) {
+		return Math.max(0, time) / bucketMillis;
+	}
+
+	/**
+	 * Checks whether the bucket holds a period later than this one
+	 * @param bucketPeriod the period number kept in the bucket
+	 * @param period the period number of the event
+	 * @return <b>true</b> if the bucket has moved on
+	 */
+	private static boolean isNewer(long bucketPeriod, long period) {
+		long ahead = (bucketPeriod - (period & COUNT_MASK)) & COUNT_MASK;
+		return ahead != 0 && ahead < (COUNT_MASK >>> 1);
+	}
+}
@@ -0,0 +1,78 @@
+package by.bsuir.lab02.violation;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ViolationCounters is the class that counts the visits and loading violations of one ship:
+ *  all of them and those of the last window. Every counter is lock-free, so recording
+ *  a violation of one ship never delays another and the rate is read without contention.
+ *
+ * @version 1.0
+ * @author Sytau
+ */
+public class ViolationCounters {
+
+	/** Quantity of buckets in the window by default: an hour of minutes */
+	public static final int WINDOW_BUCKETS = 60;
+
+	/** Duration of a bucket by default: one minute */
+	public static final long BUCKET_MILLIS = 60 * 1000;
+
+	/** Quantity of violations since the port has started */
+	private AtomicInteger total = new AtomicInteger();
+
+	private SlidingWindowCounter violations;
+	private SlidingWindowCounter visits;
+
+	/**
+	 * Constructor builds a new instance of ViolationCounters over the last hour
+	 */
+	public ViolationCounters() {
+		this(WINDOW_BUCKETS, BUCKET_MILLIS);
+	}
+
+	/**
+	 * Constructor builds a new instance of ViolationCounters over the window of these buckets
+	 * @param bucketCount the quantity of buckets in the window
+	 * @param bucketMillis the duration of a bucket in milliseconds
+	 */
+	public ViolationCounters(int bucketCount, long bucketMillis) {
+		violations = new SlidingWindowCounter(bucketCount, bucketMillis);
+		visits = new SlidingWindowCounter(bucketCount, bucketMillis);
+	}
+
+	/**
+	 * Counts the violation
+	 * @param now the time of the violation in milliseconds
+	 */
+	public void recordViolation(long now) {
+		total.incrementAndGet();
+		violations.increment(now);
+	}
+
+	/**
+	 * Counts the visit of the ship to a berth
+	 * @param now the time of the visit in milliseconds
+	 */
+	public void recordVisit(long now) {
+		visits.increment(now);
+	}
+
+	/**
+	 * Gets the quantity of violations since the port has started
+	 * @return the quantity of violations
+	 */
+	public int getTotal() {
+		return total.get();
+	}
+
+	/**
+	 * Gets the violations per visit in the window ending now
+	 * @param now the current time in milliseconds
+	 * @return the rate, 0 if the ship hasn't visited in the window
+	 */
+	public double getRate(long now) {
+		long visitCount = visits.sum(now);
+		return visitCount == 0 ? 0 : (double) violations.sum(now) / visitCount;
+	}
+}
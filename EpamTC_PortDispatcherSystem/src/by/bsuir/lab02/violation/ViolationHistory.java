@@ -0,0 +1,229 @@
+package by.bsuir.lab02.violation;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.log4j.Logger;
+
+/**
+ * ViolationHistory keeps the loading violations of every ship as a score that decays
+ *  with time: each violation adds 1 and the score halves every half-life, so a ship that
+ *  stops violating regains its priority.
+ * A persistent history appends the time of each violation as 8 bytes to the file of
+ *  the ship and reads all files in bulk when it is opened, so the scores survive restarts.
+ *  The times are those of the port clock, so a port on a virtual clock must keep its
+ *  history in memory only.
+ *
+ * @version 1.0
+ * @author Sytau
+ */
+public class ViolationHistory implements Closeable {
+	private final static Logger logger = Logger.getRootLogger();
+
+	/** Extension of the violation file of a ship */
+	static final String FILE_SUFFIX = ".violations";
+
+	/** Size of a violation record: its time in milliseconds */
+	private static final int RECORD_SIZE = 8;
+
+	/** Directory of the ship files, <b>null</b> if the history isn't persisted */
+	private Path directory;
+
+	/** Time the score halves in milliseconds */
+	private long halfLifeMillis;
+
+	/** A map of ship name - its score */
+	private ConcurrentMap<String, Score> scores = new ConcurrentHashMap<String, Score>();
+
+	/**
+	 * Constructor builds a new instance of ViolationHistory kept in memory only
+	 * @param halfLifeMillis the time the score halves in milliseconds
+	 */
+	public ViolationHistory(long halfLifeMillis) {
+		if (halfLifeMillis <= 0) {
+			throw new IllegalArgumentException("Half-life must be positive: " + halfLifeMillis);
+		}
+		this.halfLifeMillis = halfLifeMillis;
+	}
+
+	/**
+	 * Constructor builds a new instance of ViolationHistory persisted in this directory
+	 *  and loads the violations recorded before
+	 * @param directory the directory of the ship files
+	 * @param halfLifeMillis the time the score halves in milliseconds
+	 * @throws IOException If the history can't be read
+	 */
+	public ViolationHistory(Path directory, long halfLifeMillis) throws IOException {
+		this(halfLifeMillis);
+		this.directory = directory;
+		Files.createDirectories(directory);
+		int loaded = 0;
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + FILE_SUFFIX)) {
+			for (Path file : files) {
+				String name = file.getFileName().toString();
+				loaded += load(name.substring(0, name.length() - FILE_SUFFIX.length()), file);
+			}
+		}
+		logger.debug("Violation history loaded " + loaded + " violations of " + scores.size() + " ships.");
+	}
+
+	/**
+	 * Records the violation of the ship
+	 * @param shipName the name of the ship
+	 * @param time the time of the violation in milliseconds
+	 */
+	public void record(String shipName, long time) {
+		Score score = score(shipName);
+		synchronized (score) {
+			score.add(time, halfLifeMillis);
+			if (directory == null) {
+				return;
+			}
+			try {
+				if (score.channel == null) {
+					score.channel = FileChannel.open(directory.resolve(shipName + FILE_SUFFIX),
+							StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+				}
+				ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE).putLong(0, time);
+				while (record.hasRemaining()) {
+					score.channel.write(record);
+				}
+			} catch (IOException e) {
+				logger.error("Violation of " + shipName + " is not persisted.", e);
+			}
+		}
+	}
+
+	/**
+	 * Gets the decayed score of the ship
+	 * @param shipName the name of the ship
+	 * @param now the current time in milliseconds
+	 * @return the score, 0 if the ship has never violated
+	 */
+	public double getScore(String shipName, long now) {
+		Score score = scores.get(shipName);
+		if (score == null) {
+			return 0;
+		}
+		synchronized (score) {
+			return score.valueAt(now, halfLifeMillis);
+		}
+	}
+
+	/**
+	 * Gets the quantity of violations recorded for the ship, also before restarts
+	 * @param shipName the name of the ship
+	 * @return the quantity of violations
+	 */
+	public int getCount(String shipName) {
+		Score score = scores.get(shipName);
+		if (score == null) {
+			return 0;
+		}
+		synchronized (score) {
+			return score.count;
+		}
+	}
+
+	/**
+	 * Forces the ship files and closes them, a later violation opens its file again
+	 */
+	@Override
+	public void close() throws IOException {
+		IOException failure = null;
+		for (Score score : scores.values()) {
+			synchronized (score) {
+				if (score.channel == null) {
+					continue;
+				}
+				try {
+					score.channel.force(false);
+					score.channel.close();
+				} catch (IOException e) {
+					failure = e;
+				}
+				score.channel = null;
+			}
+		}
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	/**
+	 * Reads all violations of the ship at once, a torn record at the file end is cut off
+	 * @param shipName the name of the ship
+	 * @param file the violation file of the ship
+	 * @return the quantity of loaded violations
+	 * @throws IOException If the file can't be read
+	 */
+	private int load(String shipName, Path file) throws IOException {
+		byte[] bytes = Files.readAllBytes(file);
+		int count = bytes.length / RECORD_SIZE;
+		if (count * RECORD_SIZE < bytes.length) {
+			logger.warn("Violation file " + file + " is cut at " + count * RECORD_SIZE + " of " + bytes.length + " bytes.");
+			try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+				channel.truncate(count * RECORD_SIZE);
+			}
+		}
+		LongBuffer times = ByteBuffer.wrap(bytes, 0, count * RECORD_SIZE).asLongBuffer();
+		Score score = score(shipName);
+		synchronized (score) {
+			while (times.hasRemaining()) {
+				score.add(times.get(), halfLifeMillis);
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Gets the score of the ship, creates it on the first use
+	 * @param shipName the name of the ship
+	 * @return the score
+	 */
+	private Score score(String shipName) {
+		Score score = scores.get(shipName);
+		if (score == null) {
+			Score created = new Score();
+			score = scores.putIfAbsent(shipName, created);
+			if (score == null) {
+				score = created;
+			}
+		}
+		return score;
+	}
+
+	/**
+	 * Score is the decayed violation score of a ship as of the time of its last change.
+	 *  It is read and changed under its own monitor.
+	 */
+	private static class Score {
+		double value;
+		long at = Long.MIN_VALUE;
+		int count;
+		FileChannel channel;
+
+		void add(long time, long halfLifeMillis) {
+			value = valueAt(time, halfLifeMillis) + 1;
+			at = Math.max(at, time);
+			count++;
+		}
+
+		double valueAt(long time, long halfLifeMillis) {
+			if (count == 0 || time <= at) {
+				// a clock that has been restarted doesn't make violations younger
+				return value;
+			}
+			return value * Math.pow(0.5, (double) (time - at) / halfLifeMillis);
+		}
+	}
+}
@@ -2,22 +2,77 @@ package by.bsuir.lab02.warehouse;
 
 /**
  * Container is the entity class that responsible for storage instances
- *  of containers with field id
+ *  of containers with fields id, destination, weight, type, hazard class, owner
+ *  and arrival time. Warehouses keep containers as records of a {@link ContainerStore},
+ *  a Container object is only a copy of a record made to put or take a container.
  * 
  * @version 1.0
  * @author Sytau
  */
 public class Container {
 	
+	/** Destination of containers that may be carried anywhere */
+	public static final String ANY_DESTINATION = "";
+	
 	/** id of container */
 	private int id;
 	
+	/** port the container is bound for */
+	private String destination;
+	
+	/** gross weight in kilograms */
+	private int weight;
+	
+	private Type type;
+	
+	/** IMDG hazard class, 0 if the cargo is not dangerous */
+	private int hazardClass;
+	
+	/** line operator the container belongs to */
+	private String owner;
+	
+	/** time the container has arrived to its warehouse in milliseconds, 0 if unknown */
+	private long arrivalTime;
+	
 	/**
 	 * Constructor builds a new instance of Container with preset value id
 	 * @param id the id of the container
 	 */
 	public Container(int id){
+		this(id, ANY_DESTINATION);
+	}
+	
+	/**
+	 * Constructor builds a new instance of Container bound for the destination
+	 * @param id the id of the container
+	 * @param destination the port the container is bound for
+	 */
+	public Container(int id, String destination){
+		this(id, destination, 0, Type.DRY, 0, "", 0);
+	}
+	
+	/**
+	 * Constructor builds a new instance of Container with preset values
+	 * @param id the id of the container
+	 * @param destination the port the container is bound for
+	 * @param weight the gross weight in kilograms
+	 * @param type the type of the container
+	 * @param hazardClass the hazard class from 0 to 9
+	 * @param owner the line operator the container belongs to
+	 * @param arrivalTime the time the container has arrived in milliseconds
+	 */
+	public Container(int id, String destination, int weight, Type type, int hazardClass, String owner,
+			long arrivalTime){
+		if (hazardClass < 0 || hazardClass > 9) {
+			throw new IllegalArgumentException("Hazard class must be from 0 to 9: " + hazardClass);
+		}
 		this.id = id;
+		this.destination = destination;
+		this.weight = weight;
+		this.type = type;
+		this.hazardClass = hazardClass;
+		this.owner = owner;
+		this.arrivalTime = arrivalTime;
 	}
 	
 	/**
@@ -27,4 +82,61 @@ public class Container {
 	public int getId(){
 		return id;
 	}
+	
+	/**
+	 * Getter for the field {@link Container#destination}
+	 * @return the container <b>destination</b>
+	 */
+	public String getDestination(){
+		return destination;
+	}
+	
+	/**
+	 * Getter for the field {@link Container#weight}
+	 * @return the gross <b>weight</b> in kilograms
+	 */
+	public int getWeight(){
+		return weight;
+	}
+	
+	/**
+	 * Getter for the field {@link Container#type}
+	 * @return the container <b>type</b>
+	 */
+	public Type getType(){
+		return type;
+	}
+	
+	/**
+	 * Getter for the field {@link Container#hazardClass}
+	 * @return the <b>hazard class</b>, 0 if the cargo is not dangerous
+	 */
+	public int getHazardClass(){
+		return hazardClass;
+	}
+	
+	/**
+	 * Getter for the field {@link Container#owner}
+	 * @return the container <b>owner</b>
+	 */
+	public String getOwner(){
+		return owner;
+	}
+	
+	/**
+	 * Getter for the field {@link Container#arrivalTime}
+	 * @return the <b>arrival time</b> in milliseconds
+	 */
+	public long getArrivalTime(){
+		return arrivalTime;
+	}
+	
+	/**
+	 * Enumeration of container types
+	 * @author Sytau
+	 *
+	 */
+	public enum Type {
+		DRY, REEFER, TANK, OPEN_TOP, FLAT_RACK
+	}
 }
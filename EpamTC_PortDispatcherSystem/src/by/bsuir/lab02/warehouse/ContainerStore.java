@@ -0,0 +1,488 @@
+package by.bsuir.lab02.warehouse;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * ContainerStore keeps container records of a fixed layout in direct memory, out of
+ *  the garbage collected heap. A container is known by its int handle, the index of its
+ *  record. Besides the container data a record holds the links of the lists of the
+ *  warehouse the container is in, so warehouses hold no object per container.
+ * Records are allocated in chunks, a released handle is reused. The first chunk holds
+ *  {@link ContainerStore#FIRST_CHUNK_RECORDS} records and every next one twice as many up to
+ *  {@link ContainerStore#MAX_CHUNK_RECORDS}, so a small port reserves kilobytes, not megabytes,
+ *  and a large one still reaches its chunk size in a few steps.
+ *  A record is changed only by the holder of its warehouse.
+ *
+ * @version 1.0
+ * @author Sytau
+ */
+public class ContainerStore {
+
+	/** Handle of no container, the end of a list */
+	public static final int NONE = -1;
+
+	/** Bits of the record number in the first chunk */
+	private static final int FIRST_CHUNK_BITS = 10;
+
+	/** Bits of the record number in the largest chunk */
+	private static final int MAX_CHUNK_BITS = 20;
+
+	/** Quantity of records in the first chunk */
+	public static final int FIRST_CHUNK_RECORDS = 1 << FIRST_CHUNK_BITS;
+
+	/** Quantity of records in the largest chunk */
+	public static final int MAX_CHUNK_RECORDS = 1 << MAX_CHUNK_BITS;
+
+	/** Quantity of chunks that double in size, the next chunks are the largest */
+	private static final int GROWING_CHUNKS = MAX_CHUNK_BITS - FIRST_CHUNK_BITS + 1;
+
+	/** Handle the first chunk after the growing ones starts at */
+	private static final int GROWN_BASE = (MAX_CHUNK_RECORDS << 1) - FIRST_CHUNK_RECORDS;
+
+	// record layout
+	private static final int ID = 0;
+	private static final int WEIGHT = 4;
+	private static final int TYPE = 8;
+	private static final int HAZARD_CLASS = 9;
+	private static final int OWNER = 12;
+	private static final int ARRIVAL = 16;
+	private static final int DESTINATION = 24;
+	private static final int PREVIOUS = 28;
+	private static final int NEXT = 32;
+	private static final int PREVIOUS_IN_BUCKET = 36;
+	private static final int NEXT_IN_BUCKET = 40;
+	private static final int STACK = 44;
+
+	/** Size of a record in bytes */
+	public static final int RECORD_SIZE = 48;
+
+	private static volatile ContainerStore defaultStore;
+
+	/** Chunks of records, a chunk is never moved once allocated */
+	private volatile ByteBuffer[] chunks = new ByteBuffer[0];
+
+	private Lock lock = new ReentrantLock();
+
+	/** Handle after the last ever allocated */
+	private int allocated;
+
+	/** Released handles to reuse */
+	private int[] freeHandles = new int[64];
+	private int freeCount;
+
+	private Dictionary owners = new Dictionary();
+	private Dictionary destinations = new Dictionary();
+
+	/** Columnar copy of the records for aggregate queries */
+	private InventoryColumns columns = new InventoryColumns(this);
+
+	/**
+	 * Gets the store shared by warehouses built without their own store,
+	 * 	containers can only move between warehouses of one store
+	 * @return the default instance of ContainerStore class
+	 */
+	public static ContainerStore getDefault() {
+		ContainerStore store = defaultStore;
+		if (store == null) {
+			synchronized (ContainerStore.class) {
+				store = defaultStore;
+				if (store == null) {
+					store = new ContainerStore();
+					defaultStore = store;
+				}
+			}
+		}
+		return store;
+	}
+
+	/**
+	 * Writes the container to a new record
+	 * @param container the instance of Container class
+	 * @return the handle of the record
+	 */
+	public int allocate(Container container) {
+		int handle;
+		lock.lock();
+		try {
+			if (freeCount > 0) {
+				handle = freeHandles[--freeCount];
+			} else {
+				if (allocated == Integer.MAX_VALUE) {
+					throw new IllegalStateException("Container store is full.");
+				}
+				handle = allocated++;
+				if (chunkOf(handle) == chunks.length) {
+					ByteBuffer[] grown = Arrays.copyOf(chunks, chunks.length + 1);
+					grown[chunks.length] = ByteBuffer.allocateDirect(chunkSize(chunks.length) * RECORD_SIZE)
+							.order(ByteOrder.nativeOrder());
+					chunks = grown;
+				}
+				columns.grow(allocated);
+			}
+		} finally {
+			lock.unlock();
+		}
+		ByteBuffer chunk = chunk(handle);
+		int offset = offset(handle);
+		chunk.putInt(offset + ID, container.getId());
+		chunk.putInt(offset + WEIGHT, container.getWeight());
+		chunk.put(offset + TYPE, (byte) container.getType().ordinal());
+		chunk.put(offset + HAZARD_CLASS, (byte) container.getHazardClass());
+		int owner = owners.code(container.getOwner());
+		int destination = destinations.code(container.getDestination());
+		chunk.putInt(offset + OWNER, owner);
+		chunk.putLong(offset + ARRIVAL, container.getArrivalTime());
+		chunk.putInt(offset + DESTINATION, destination);
+		chunk.putInt(offset + PREVIOUS, NONE);
+		chunk.putInt(offset + NEXT, NONE);
+		chunk.putInt(offset + PREVIOUS_IN_BUCKET, NONE);
+		chunk.putInt(offset + NEXT_IN_BUCKET, NONE);
+		chunk.putInt(offset + STACK, NONE);
+		columns.write(handle, container, owner);
+		return handle;
+	}
+
+	/**
+	 * Reads the record and releases it
+	 * @param handle the handle of the record
+	 * @return the instance of Container class
+	 */
+	public Container release(int handle) {
+		Container container = read(handle);
+		lock.lock();
+		try {
+			if (freeCount == freeHandles.length) {
+				freeHandles = Arrays.copyOf(freeHandles, freeCount * 2);
+			}
+			freeHandles[freeCount++] = handle;
+		} finally {
+			lock.unlock();
+		}
+		return container;
+	}
+
+	/**
+	 * Reads the record into a new Container object
+	 * @param handle the handle of the record
+	 * @return the instance of Container class
+	 */
+	public Container read(int handle) {
+		return new Container(getId(handle), getDestination(handle), getWeight(handle), getType(handle),
+				getHazardClass(handle), getOwner(handle), getArrivalTime(handle));
+	}
+
+	/**
+	 * Gets the quantity of records in use
+	 * @return the quantity of stored containers
+	 */
+	public int size() {
+		lock.lock();
+		try {
+			return allocated - freeCount;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Getter for the field {@link ContainerStore#columns}
+	 * @return the columnar copy of the records
+	 */
+	public InventoryColumns getColumns() {
+		return columns;
+	}
+
+	/**
+	 * Gets the direct memory taken by the records
+	 * @return the size of allocated chunks in bytes
+	 */
+	public long getReservedBytes() {
+		long bytes = 0;
+		for (ByteBuffer chunk : chunks) {
+			bytes += chunk.capacity();
+		}
+		return bytes;
+	}
+
+	/**
+	 * Reads the container id
+	 * @param handle the handle of the record
+	 * @return the container <b>id</b>
+	 */
+	public int getId(int handle) {
+		return chunk(handle).getInt(offset(handle) + ID);
+	}
+
+	/**
+	 * Reads the container weight
+	 * @param handle the handle of the record
+	 * @return the gross <b>weight</b> in kilograms
+	 */
+	public int getWeight(int handle) {
+		return chunk(handle).getInt(offset(handle) + WEIGHT);
+	}
+
+	/**
+	 * Reads the container type
+	 * @param handle the handle of the record
+	 * @return the container <b>type</b>
+	 */
+	public Container.Type getType(int handle) {
+		return Container.Type.values()[chunk(handle).get(offset(handle) + TYPE)];
+	}
+
+	/**
+	 * Reads the container hazard class
+	 * @param handle the handle of the record
+	 * @return the <b>hazard class</b>, 0 if the cargo is not dangerous
+	 */
+	public int getHazardClass(int handle) {
+		return chunk(handle).get(offset(handle) + HAZARD_CLASS);
+	}
+
+	/**
+	 * Reads the container owner
+	 * @param handle the handle of the record
+	 * @return the container <b>owner</b>
+	 */
+	public String getOwner(int handle) {
+		return owners.name(getOwnerCode(handle));
+	}
+
+	/**
+	 * Reads the time the container has arrived to its warehouse
+	 * @param handle the handle of the record
+	 * @return the <b>arrival time</b> in milliseconds
+	 */
+	public long getArrivalTime(int handle) {
+		return chunk(handle).getLong(offset(handle) + ARRIVAL);
+	}
+
+	/**
+	 * Sets the time the container has arrived to its warehouse
+	 * @param handle the handle of the record
+	 * @param arrivalTime the time in milliseconds
+	 */
+	public void setArrivalTime(int handle, long arrivalTime) {
+		chunk(handle).putLong(offset(handle) + ARRIVAL, arrivalTime);
+		columns.setArrivalTime(handle, arrivalTime);
+	}
+
+	/**
+	 * Reads the container destination
+	 * @param handle the handle of the record
+	 * @return the container <b>destination</b>
+	 */
+	public String getDestination(int handle) {
+		return destinations.name(getDestinationCode(handle));
+	}
+
+	/**
+	 * Gets the code of the container destination, equal destinations have equal codes
+	 * @param handle the handle of the record
+	 * @return the destination code
+	 */
+	int getDestinationCode(int handle) {
+		return chunk(handle).getInt(offset(handle) + DESTINATION);
+	}
+
+	/**
+	 * Gets the code of the destination
+	 * @param destination the destination name
+	 * @return the destination code
+	 */
+	int destinationCode(String destination) {
+		return destinations.code(destination);
+	}
+
+	/**
+	 * Gets the code of the container owner
+	 * @param handle the handle of the record
+	 * @return the owner code
+	 */
+	int getOwnerCode(int handle) {
+		return chunk(handle).getInt(offset(handle) + OWNER);
+	}
+
+	/**
+	 * Gets the code of the owner
+	 * @param owner the owner name
+	 * @return the owner code
+	 */
+	int ownerCode(String owner) {
+		return owners.code(owner);
+	}
+
+	/**
+	 * Gets the name of the owner
+	 * @param code the owner code
+	 * @return the owner name
+	 */
+	String ownerName(int code) {
+		return owners.name(code);
+	}
+
+	/**
+	 * Gets the quantity of owner codes given
+	 * @return the quantity of owners
+	 */
+	int ownerCount() {
+		return owners.size();
+	}
+
+	/**
+	 * Gets the name of the destination
+	 * @param code the destination code
+	 * @return the destination name
+	 */
+	String destinationName(int code) {
+		return destinations.name(code);
+	}
+
+	// links of the warehouse lists, changed by the holder of the warehouse write stamp
+
+	int getPrevious(int handle) {
+		return chunk(handle).getInt(offset(handle) + PREVIOUS);
+	}
+
+	void setPrevious(int handle, int previous) {
+		chunk(handle).putInt(offset(handle) + PREVIOUS, previous);
+	}
+
+	int getNext(int handle) {
+		return chunk(handle).getInt(offset(handle) + NEXT);
+	}
+
+	void setNext(int handle, int next) {
+		chunk(handle).putInt(offset(handle) + NEXT, next);
+	}
+
+	int getPreviousInBucket(int handle) {
+		return chunk(handle).getInt(offset(handle) + PREVIOUS_IN_BUCKET);
+	}
+
+	void setPreviousInBucket(int handle, int previous) {
+		chunk(handle).putInt(offset(handle) + PREVIOUS_IN_BUCKET, previous);
+	}
+
+	int getNextInBucket(int handle) {
+		return chunk(handle).getInt(offset(handle) + NEXT_IN_BUCKET);
+	}
+
+	void setNextInBucket(int handle, int next) {
+		chunk(handle).putInt(offset(handle) + NEXT_IN_BUCKET, next);
+	}
+
+	int getStack(int handle) {
+		return chunk(handle).getInt(offset(handle) + STACK);
+	}
+
+	void setStack(int handle, int stack) {
+		chunk(handle).putInt(offset(handle) + STACK, stack);
+	}
+
+	/**
+	 * Gets the chunk holding the record
+	 * @param handle the handle of the record
+	 * @return the chunk buffer
+	 */
+	private ByteBuffer chunk(int handle) {
+		return chunks[chunkOf(handle)];
+	}
+
+	/**
+	 * Gets the position of the record in its chunk
+	 * @param handle the handle of the record
+	 * @return the offset in bytes
+	 */
+	private static int offset(int handle) {
+		return indexOf(handle) * RECORD_SIZE;
+	}
+
+	/**
+	 * Gets the number of the chunk holding the handle
+	 * @param handle the handle of the record
+	 * @return the chunk number
+	 */
+	static int chunkOf(int handle) {
+		if (handle < GROWN_BASE) {
+			return 31 - Integer.numberOfLeadingZeros(handle + FIRST_CHUNK_RECORDS) - FIRST_CHUNK_BITS;
+		}
+		return GROWING_CHUNKS + ((handle - GROWN_BASE) >>> MAX_CHUNK_BITS);
+	}
+
+	/**
+	 * Gets the number of the record in its chunk
+	 * @param handle the handle of the record
+	 * @return the index of the record in the chunk
+	 */
+	static int indexOf(int handle) {
+		if (handle < GROWN_BASE) {
+			int shifted = handle + FIRST_CHUNK_RECORDS;
+			return shifted - Integer.highestOneBit(shifted);
+		}
+		return (handle - GROWN_BASE) & (MAX_CHUNK_RECORDS - 1);
+	}
+
+	/**
+	 * Gets the first handle of the chunk
+	 * @param chunk the chunk number
+	 * @return the handle, may be past the largest int for chunks never allocated
+	 */
+	static long chunkStart(int chunk) {
+		if (chunk < GROWING_CHUNKS) {
+			return (FIRST_CHUNK_RECORDS << chunk) - FIRST_CHUNK_RECORDS;
+		}
+		return GROWN_BASE + ((long) (chunk - GROWING_CHUNKS) << MAX_CHUNK_BITS);
+	}
+
+	/**
+	 * Gets the quantity of records of the chunk
+	 * @param chunk the chunk number
+	 * @return the chunk size in records
+	 */
+	static int chunkSize(int chunk) {
+		return chunk < GROWING_CHUNKS ? FIRST_CHUNK_RECORDS << chunk : MAX_CHUNK_RECORDS;
+	}
+
+	/**
+	 * Dictionary is the table of strings shared by many records, a record holds the code
+	 */
+	private static class Dictionary {
+		private ConcurrentMap<String, Integer> codes = new ConcurrentHashMap<String, Integer>();
+		private volatile List<String> names = new ArrayList<String>();
+
+		int code(String name) {
+			Integer code = codes.get(name);
+			if (code == null) {
+				synchronized (this) {
+					code = codes.get(name);
+					if (code == null) {
+						List<String> grown = new ArrayList<String>(names);
+						grown.add(name);
+						code = grown.size() - 1;
+						names = grown;
+						codes.put(name, code);
+					}
+				}
+			}
+			return code;
+		}
+
+		String name(int code) {
+			return names.get(code);
+		}
+
+		int size() {
+			return names.size();
+		}
+	}
+}
@@ -0,0 +1,293 @@
+package by.bsuir.lab02.warehouse;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * InventoryColumns is the columnar copy of the container records of a {@link ContainerStore}:
+ *  one primitive column per aggregated field, indexed by the container handle and chunked
+ *  like the records, and one more column with the warehouse the container is in. The field
+ *  columns are separate direct buffers, so a scan reads each field sequentially and they
+ *  add no heap; only the location column, written on every put and take, is a heap array
+ *  of 4 bytes a record. Columns are written by the warehouse holder, aggregates read them
+ *  without any lock, so a scan never delays a transfer and may miss only the containers
+ *  moving while it runs.
+ * Containers moved to an {@link OverflowTier} have no record in the store, their aggregates
+ *  are taken from the running totals of the tier and added to the scan of its warehouse.
+ * Large scans are split among the threads of a ForkJoinPool.
+ *
+ * @version 1.0
+ * @author Sytau
+ */
+public class InventoryColumns {
+
+	/** Location of a container that is in no warehouse */
+	static final int NOWHERE = -1;
+
+	/** Quantity of handles scanned by one task without splitting */
+	private static final int SCAN_THRESHOLD = 1 << 16;
+
+	private ContainerStore store;
+
+	/** Columns split into the chunks of the store records */
+	private volatile int[][] locations = new int[0][];
+	private volatile IntBuffer[] weights = new IntBuffer[0];
+	private volatile IntBuffer[] owners = new IntBuffer[0];
+	private volatile ByteBuffer[] hazardClasses = new ByteBuffer[0];
+	private volatile LongBuffer[] arrivals = new LongBuffer[0];
+
+	/** Handle after the last ever allocated, scans stop at it */
+	private volatile int limit;
+
+	/** Quantity of warehouses given a location code */
+	private int locationCount;
+
+	/** A map of location code - the overflow tier of its warehouse */
+	private Map<Integer, OverflowTier> overflows = new ConcurrentHashMap<Integer, OverflowTier>();
+
+	private ForkJoinPool pool;
+
+	/**
+	 * Constructor builds a new instance of InventoryColumns scanned by the common pool
+	 * @param store the store of the container records
+	 */
+	InventoryColumns(ContainerStore store) {
+		this.store = store;
+		pool = ForkJoinPool.commonPool();
+	}
+
+	/**
+	 * Summarizes the containers of the warehouse, overflowed ones included
+	 * @param warehouse the instance of Warehouse class, <b>null</b> for all warehouses of the store
+	 * @param now the current time in milliseconds to measure dwell times
+	 * @return the instance of InventorySummary class
+	 */
+	public InventorySummary summarize(Warehouse warehouse, long now) {
+		int location = warehouse != null ? warehouse.getLocation() : NOWHERE;
+		int end = limit;
+		Scan scan = new Scan(location, now, 0, end);
+		long[] totals = end <= SCAN_THRESHOLD ? scan.compute() : pool.invoke(scan);
+		for (Map.Entry<Integer, OverflowTier> entry : overflows.entrySet()) {
+			if (location == NOWHERE || entry.getKey() == location) {
+				totals = addOverflow(totals, entry.getValue(), now);
+			}
+		}
+		String[] ownerNames = new String[totals.length - Scan.OWNER_COUNTS];
+		for (int code = 0; code < ownerNames.length; code++) {
+			ownerNames[code] = store.ownerName(code);
+		}
+		return new InventorySummary(totals[Scan.COUNT], totals[Scan.WEIGHT], totals[Scan.HAZARDOUS],
+				totals[Scan.DWELL_COUNT] == 0 ? 0 : totals[Scan.DWELL] / totals[Scan.DWELL_COUNT],
+				ownerNames, Arrays.copyOfRange(totals, Scan.OWNER_COUNTS, totals.length));
+	}
+
+	/**
+	 * Gives the warehouse its location code
+	 * @return the location code
+	 */
+	synchronized int register() {
+		return locationCount++;
+	}
+
+	/**
+	 * Adds the containers of the overflow tier to the aggregates of its warehouse
+	 * @param location the location code of the warehouse
+	 * @param overflow the instance of OverflowTier class
+	 */
+	void addOverflow(int location, OverflowTier overflow) {
+		overflows.put(location, overflow);
+	}
+
+	/**
+	 * Adds the running totals of the tier to the scan totals
+	 * @param totals the totals of the scan
+	 * @param overflow the instance of OverflowTier class
+	 * @param now the current time in milliseconds to measure dwell times
+	 * @return the totals, grown if the tier knows more owners
+	 */
+	private static long[] addOverflow(long[] totals, OverflowTier overflow, long now) {
+		int[] owners = overflow.getOwnerCounts();
+		if (Scan.OWNER_COUNTS + owners.length > totals.length) {
+			totals = Arrays.copyOf(totals, Scan.OWNER_COUNTS + owners.length);
+		}
+		totals[Scan.COUNT] += overflow.size();
+		totals[Scan.WEIGHT] += overflow.getWeight();
+		totals[Scan.HAZARDOUS] += overflow.getHazardousCount();
+		totals[Scan.DWELL] += overflow.getDwellSum(now);
+		totals[Scan.DWELL_COUNT] += overflow.getArrivedCount();
+		for (int owner = 0; owner < owners.length; owner++) {
+			totals[Scan.OWNER_COUNTS + owner] += owners[owner];
+		}
+		return totals;
+	}
+
+	/**
+	 * Adds a chunk to every column once the records have a new chunk.
+	 * 	Must be called under the store lock.
+	 * @param handleLimit the handle after the last allocated one
+	 */
+	void grow(int handleLimit) {
+		int chunk = locations.length;
+		if (ContainerStore.chunkStart(chunk) < handleLimit) {
+			int size = ContainerStore.chunkSize(chunk);
+			weights = append(weights, column(size * 4).asIntBuffer());
+			owners = append(owners, column(size * 4).asIntBuffer());
+			hazardClasses = append(hazardClasses, column(size));
+			arrivals = append(arrivals, column(size * 8).asLongBuffer());
+			int[] chunkLocations = new int[size];
+			Arrays.fill(chunkLocations, NOWHERE);
+			// the location column is published last, a scan reads it first
+			locations = append(locations, chunkLocations);
+		}
+		limit = handleLimit;
+	}
+
+	/**
+	 * Copies the aggregated fields of the container to the columns of its handle
+	 * @param handle the handle of the record
+	 * @param container the instance of Container class
+	 * @param owner the owner code
+	 */
+	void write(int handle, Container container, int owner) {
+		int chunk = ContainerStore.chunkOf(handle);
+		int index = ContainerStore.indexOf(handle);
+		weights[chunk].put(index, container.getWeight());
+		owners[chunk].put(index, owner);
+		hazardClasses[chunk].put(index, (byte) container.getHazardClass());
+		arrivals[chunk].put(index, container.getArrivalTime());
+	}
+
+	/**
+	 * Sets the arrival time column of the container
+	 * @param handle the handle of the record
+	 * @param arrivalTime the time in milliseconds
+	 */
+	void setArrivalTime(int handle, long arrivalTime) {
+		arrivals[ContainerStore.chunkOf(handle)].put(ContainerStore.indexOf(handle), arrivalTime);
+	}
+
+	/**
+	 * Sets the location column of the container
+	 * @param handle the handle of the record
+	 * @param location the location code of the warehouse or {@link InventoryColumns#NOWHERE}
+	 */
+	void setLocation(int handle, int location) {
+		locations[ContainerStore.chunkOf(handle)][ContainerStore.indexOf(handle)] = location;
+	}
+
+	/**
+	 * Gets the location column of the container
+	 * @param handle the handle of the record
+	 * @return the location code of the warehouse or {@link InventoryColumns#NOWHERE}
+	 */
+	int getLocation(int handle) {
+		return locations[ContainerStore.chunkOf(handle)][ContainerStore.indexOf(handle)];
+	}
+
+	private static <T> T[] append(T[] chunks, T chunk) {
+		T[] grown = Arrays.copyOf(chunks, chunks.length + 1);
+		grown[chunks.length] = chunk;
+		return grown;
+	}
+
+	/**
+	 * Allocates the direct memory of a column chunk
+	 * @param bytes the size of the chunk in bytes
+	 * @return the buffer in the native byte order
+	 */
+	private static ByteBuffer column(int bytes) {
+		return ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+	}
+
+	/**
+	 * Scan is the task summing the columns of a range of handles into an array of totals:
+	 *  count, weight, hazardous count, dwell sum, dwell count, then the count of each owner
+	 */
+	@SuppressWarnings("serial")
+	private class Scan extends RecursiveTask<long[]> {
+		static final int COUNT = 0;
+		static final int WEIGHT = 1;
+		static final int HAZARDOUS = 2;
+		static final int DWELL = 3;
+		static final int DWELL_COUNT = 4;
+		static final int OWNER_COUNTS = 5;
+
+		private int location;
+		private long now;
+		private int from;
+		private int to;
+
+		Scan(int location, long now, int from, int to) {
+			this.location = location;
+			this.now = now;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected long[] compute() {
+			if (to - from > SCAN_THRESHOLD) {
+				int middle = (from + to) >>> 1;
+				Scan left = new Scan(location, now, from, middle);
+				left.fork();
+				long[] right = new Scan(location, now, middle, to).compute();
+				return merge(left.join(), right);
+			}
+			long[] totals = new long[OWNER_COUNTS + store.ownerCount()];
+			int[][] locationChunks = locations; // read first, the other columns have its chunks
+			IntBuffer[] weightChunks = weights;
+			IntBuffer[] ownerChunks = owners;
+			ByteBuffer[] hazardChunks = hazardClasses;
+			LongBuffer[] arrivalChunks = arrivals;
+			for (int handle = from; handle < to; ) {
+				int chunk = ContainerStore.chunkOf(handle);
+				int index = ContainerStore.indexOf(handle);
+				int base = handle - index;
+				int end = (int) Math.min((long) to - base, ContainerStore.chunkSize(chunk));
+				int[] locationColumn = locationChunks[chunk];
+				IntBuffer weightColumn = weightChunks[chunk];
+				IntBuffer ownerColumn = ownerChunks[chunk];
+				ByteBuffer hazardColumn = hazardChunks[chunk];
+				LongBuffer arrivalColumn = arrivalChunks[chunk];
+				for (; index < end; index++) {
+					int at = locationColumn[index];
+					if (at == NOWHERE || (location != NOWHERE && at != location)) {
+						continue;
+					}
+					totals[COUNT]++;
+					totals[WEIGHT] += weightColumn.get(index);
+					if (hazardColumn.get(index) != 0) {
+						totals[HAZARDOUS]++;
+					}
+					long arrival = arrivalColumn.get(index);
+					if (arrival > 0) {
+						totals[DWELL] += now - arrival;
+						totals[DWELL_COUNT]++;
+					}
+					int owner = ownerColumn.get(index);
+					if (OWNER_COUNTS + owner < totals.length) {
+						totals[OWNER_COUNTS + owner]++;
+					}
+				}
+				handle = base + end;
+			}
+			return totals;
+		}
+
+		private long[] merge(long[] a, long[] b) {
+			long[] merged = a.length >= b.length ? a : b;
+			long[] other = merged == a ? b : a;
+			for (int i = 0; i < other.length; i++) {
+				merged[i] += other[i];
+			}
+			return merged;
+		}
+	}
+}
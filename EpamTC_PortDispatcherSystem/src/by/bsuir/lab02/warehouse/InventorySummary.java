@@ -0,0 +1,92 @@
+package by.bsuir.lab02.warehouse;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * InventorySummary is the entity class that describes the aggregates of the containers
+ *  of a warehouse or of all warehouses at the time of the scan
+ *
+ * @version 1.0
+ * @author Sytau
+ */
+public class InventorySummary {
+
+	/** quantity of containers */
+	private long containerCount;
+
+	/** total gross weight in kilograms */
+	private long totalWeight;
+
+	/** quantity of containers with dangerous cargo */
+	private long hazardousCount;
+
+	/** average time the containers with known arrival have been stored in milliseconds */
+	private long averageDwellTime;
+
+	/** A map of owner - quantity of its containers */
+	private Map<String, Long> ownerCounts = new TreeMap<String, Long>();
+
+	/**
+	 * Constructor builds a new instance of InventorySummary with preset values
+	 * @param containerCount the quantity of containers
+	 * @param totalWeight the total gross weight in kilograms
+	 * @param hazardousCount the quantity of containers with dangerous cargo
+	 * @param averageDwellTime the average dwell time in milliseconds
+	 * @param owners the owner names by owner code
+	 * @param counts the quantities of containers by owner code
+	 */
+	InventorySummary(long containerCount, long totalWeight, long hazardousCount, long averageDwellTime,
+			String[] owners, long[] counts) {
+		this.containerCount = containerCount;
+		this.totalWeight = totalWeight;
+		this.hazardousCount = hazardousCount;
+		this.averageDwellTime = averageDwellTime;
+		for (int code = 0; code < owners.length; code++) {
+			if (counts[code] > 0) {
+				ownerCounts.put(owners[code], counts[code]);
+			}
+		}
+	}
+
+	/**
+	 * Getter for the field {@link InventorySummary#containerCount}
+	 * @return the quantity of containers
+	 */
+	public long getContainerCount() {
+		return containerCount;
+	}
+
+	/**
+	 * Getter for the field {@link InventorySummary#totalWeight}
+	 * @return the total gross weight in kilograms
+	 */
+	public long getTotalWeight() {
+		return totalWeight;
+	}
+
+	/**
+	 * Getter for the field {@link InventorySummary#hazardousCount}
+	 * @return the quantity of containers with dangerous cargo
+	 */
+	public long getHazardousCount() {
+		return hazardousCount;
+	}
+
+	/**
+	 * Getter for the field {@link InventorySummary#averageDwellTime}
+	 * @return the average dwell time in milliseconds, 0 if no arrival is known
+	 */
+	public long getAverageDwellTime() {
+		return averageDwellTime;
+	}
+
+	/**
+	 * Getter for the field {@link InventorySummary#ownerCounts}
+	 * @return the map of owner - quantity of its containers
+	 */
+	public Map<String, Long> getOwnerCounts() {
+		return Collections.unmodifiableMap(ownerCounts);
+	}
+}
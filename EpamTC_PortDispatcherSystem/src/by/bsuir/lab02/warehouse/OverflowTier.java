@@ -0,0 +1,474 @@
+package by.bsuir.lab02.warehouse;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * OverflowTier is the off-dock yard of a warehouse: containers that don't fit
+ *  the warehouse are kept as records of a memory-mapped file, so they take neither heap
+ *  nor direct memory of the {@link ContainerStore} and the operating system pages them out.
+ * Records are linked in the order they have come and by destination, like the lists
+ *  of a warehouse. Free slots are linked through the file as well.
+ * The tier is changed by the holder of its warehouse write stamp. It keeps running totals
+ *  of its containers for the inventory aggregates, so a summary doesn't page the file in.
+ *  Its file is scratch space, the inventory is kept across runs by the transfer journal.
+ *
+ * @version 1.0
+ * @author Sytau
+ */
+public class OverflowTier implements Closeable {
+
+	/** Bits of a slot number that number the slot in its mapping */
+	private static final int MAPPING_BITS = 20;
+	private static final int MAPPING_SLOTS = 1 << MAPPING_BITS;
+	private static final int MAPPING_MASK = MAPPING_SLOTS - 1;
+
+	// slot layout, the container fields as in the store
+	private static final int ID = 0;
+	private static final int WEIGHT = 4;
+	private static final int TYPE = 8;
+	private static final int HAZARD_CLASS = 9;
+	private static final int OWNER = 12;
+	private static final int ARRIVAL = 16;
+	private static final int DESTINATION = 24;
+	private static final int PREVIOUS = 28;
+	private static final int NEXT = 32;
+	private static final int PREVIOUS_IN_BUCKET = 36;
+	private static final int NEXT_IN_BUCKET = 40;
+
+	/** Size of a slot in bytes, padded to keep the arrival time aligned */
+	private static final int SLOT_SIZE = 48;
+
+	private FileChannel channel;
+	private ContainerStore store;
+	private int capacity;
+
+	/** Mappings of the file, mapped when a slot of them is used first */
+	private MappedByteBuffer[] mappings;
+
+	/** Slot after the last ever used */
+	private int used;
+
+	/** The first free slot, free slots are linked by their next field */
+	private int free = ContainerStore.NONE;
+
+	/** The oldest and the newest container */
+	private int head = ContainerStore.NONE;
+	private int tail = ContainerStore.NONE;
+
+	/** The oldest and the newest container of each destination code, and their quantities */
+	private int[] bucketHeads = new int[0];
+	private int[] bucketTails = new int[0];
+	private int[] bucketCounts = new int[0];
+
+	private volatile int count;
+	private volatile long weight;
+
+	/** Running totals for the inventory aggregates: dangerous containers, arrival times and owners */
+	private volatile long hazardousCount;
+	private volatile long arrivalSum;
+	private volatile long arrivedCount;
+	private volatile int[] ownerCounts = new int[0];
+
+	/** Flag that indicates that a warehouse overflows into this tier */
+	private boolean bound;
+
+	/**
+	 * Constructor builds a new instance of OverflowTier in this file, its former content is dropped
+	 * @param file the file of the tier
+	 * @param capacity the quantity of container places
+	 * @param store the store of the warehouse the tier is given to
+	 * @throws IOException If the file can't be opened
+	 */
+	public OverflowTier(Path file, int capacity, ContainerStore store) throws IOException {
+		if (capacity < 0) {
+			throw new IllegalArgumentException("Overflow capacity must not be negative: " + capacity);
+		}
+		this.capacity = capacity;
+		this.store = store;
+		mappings = new MappedByteBuffer[(int) (((long) capacity + MAPPING_SLOTS - 1) >>> MAPPING_BITS)];
+		channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+	}
+
+	/**
+	 * Getter for the field {@link OverflowTier#capacity}
+	 * @return the quantity of container places
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Gets the quantity of containers in the tier
+	 * @return the quantity of containers
+	 */
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * Getter for the field {@link OverflowTier#weight}
+	 * @return the total gross weight of the containers in kilograms
+	 */
+	public long getWeight() {
+		return weight;
+	}
+
+	/**
+	 * Closes the file of the tier
+	 * @throws IOException If the file can't be closed
+	 */
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	/**
+	 * Gives the tier to the warehouse keeping containers in this store
+	 * @param warehouseStore the store of the warehouse
+	 */
+	void bind(ContainerStore warehouseStore) {
+		if (warehouseStore != store) {
+			throw new IllegalArgumentException("Overflow tier is built for another container store.");
+		}
+		if (bound) {
+			throw new IllegalStateException("Overflow tier is used by another warehouse.");
+		}
+		bound = true;
+	}
+
+	/**
+	 * Gets the quantity of free places
+	 * @return the quantity of containers that can be put
+	 */
+	int getFreeSize() {
+		return capacity - count;
+	}
+
+	/**
+	 * Getter for the field {@link OverflowTier#hazardousCount}
+	 * @return the quantity of containers with dangerous cargo
+	 */
+	long getHazardousCount() {
+		return hazardousCount;
+	}
+
+	/**
+	 * Gets the total time the containers with known arrival have been stored
+	 * @param now the current time in milliseconds
+	 * @return the sum of dwell times in milliseconds
+	 */
+	long getDwellSum(long now) {
+		return arrivedCount * now - arrivalSum;
+	}
+
+	/**
+	 * Getter for the field {@link OverflowTier#arrivedCount}
+	 * @return the quantity of containers with known arrival
+	 */
+	long getArrivedCount() {
+		return arrivedCount;
+	}
+
+	/**
+	 * Gets the quantity of containers of each owner code
+	 * @return the counts indexed by owner code, not to be changed
+	 */
+	int[] getOwnerCounts() {
+		return ownerCounts;
+	}
+
+	/**
+	 * Gets the quantity of containers bound for the destination
+	 * @param destination the code of the destination
+	 * @return the quantity of containers
+	 */
+	int size(int destination) {
+		int[] counts = bucketCounts;
+		return destination < counts.length ? counts[destination] : 0;
+	}
+
+	/**
+	 * Moves the container out of the store to the newest slot and releases its record.
+	 * 	The container must be newer than all containers of the tier.
+	 * @param handle the handle of the container taken out of the warehouse
+	 */
+	void push(int handle) {
+		int slot = allocate();
+		MappedByteBuffer mapping = mapping(slot);
+		int offset = offset(slot);
+		int destination = store.getDestinationCode(handle);
+		mapping.putInt(offset + ID, store.getId(handle));
+		mapping.putInt(offset + WEIGHT, store.getWeight(handle));
+		mapping.put(offset + TYPE, (byte) store.getType(handle).ordinal());
+		mapping.put(offset + HAZARD_CLASS, (byte) store.getHazardClass(handle));
+		mapping.putInt(offset + OWNER, store.getOwnerCode(handle));
+		mapping.putLong(offset + ARRIVAL, store.getArrivalTime(handle));
+		mapping.putInt(offset + DESTINATION, destination);
+		link(slot, destination);
+		weight += store.getWeight(handle);
+		count(store.getHazardClass(handle), store.getArrivalTime(handle), store.getOwnerCode(handle), 1);
+		store.release(handle);
+	}
+
+	/**
+	 * Moves the oldest container back to the store
+	 * @return the handle of the new record or {@link ContainerStore#NONE} if the tier is empty
+	 */
+	int takeOldest() {
+		return head != ContainerStore.NONE ? take(head) : ContainerStore.NONE;
+	}
+
+	/**
+	 * Moves the newest container back to the store
+	 * @return the handle of the new record or {@link ContainerStore#NONE} if the tier is empty
+	 */
+	int takeNewest() {
+		return tail != ContainerStore.NONE ? take(tail) : ContainerStore.NONE;
+	}
+
+	/**
+	 * Moves the oldest container bound for the destination back to the store
+	 * @param destination the code of the destination
+	 * @return the handle of the new record or {@link ContainerStore#NONE} if there is no such container
+	 */
+	int takeOldest(int destination) {
+		return size(destination) > 0 ? take(bucketHeads[destination]) : ContainerStore.NONE;
+	}
+
+	/**
+	 * Reads the container of the slot
+	 * @param slot the slot of the container
+	 * @return the instance of Container class
+	 */
+	Container read(int slot) {
+		MappedByteBuffer mapping = mapping(slot);
+		int offset = offset(slot);
+		Container.Type[] types = Container.Type.values();
+		return new Container(mapping.getInt(offset + ID), store.destinationName(mapping.getInt(offset + DESTINATION)),
+				mapping.getInt(offset + WEIGHT), types[mapping.get(offset + TYPE)], mapping.get(offset + HAZARD_CLASS),
+				store.ownerName(mapping.getInt(offset + OWNER)), mapping.getLong(offset + ARRIVAL));
+	}
+
+	/**
+	 * Gets the oldest container slot to walk the tier by {@link OverflowTier#getNext(int)}
+	 * @return the slot or {@link ContainerStore#NONE} if the tier is empty
+	 */
+	int getHead() {
+		return head;
+	}
+
+	int getNext(int slot) {
+		return mapping(slot).getInt(offset(slot) + NEXT);
+	}
+
+	int getId(int slot) {
+		return mapping(slot).getInt(offset(slot) + ID);
+	}
+
+	int getWeight(int slot) {
+		return mapping(slot).getInt(offset(slot) + WEIGHT);
+	}
+
+	/**
+	 * Gets the oldest container slot bound for the destination to walk by {@link OverflowTier#getNextInBucket(int)}
+	 * @param destination the code of the destination
+	 * @return the slot or {@link ContainerStore#NONE} if there is no such container
+	 */
+	int getHead(int destination) {
+		int[] heads = bucketHeads;
+		return destination < heads.length ? heads[destination] : ContainerStore.NONE;
+	}
+
+	int getNextInBucket(int slot) {
+		return mapping(slot).getInt(offset(slot) + NEXT_IN_BUCKET);
+	}
+
+	/**
+	 * Checks that the slot still keeps the container, a free slot keeps none
+	 * @param slot the slot number
+	 * @param id the id of the container
+	 * @return <b>true</b> if the container is in the slot
+	 */
+	boolean holds(int slot, int id) {
+		return slot >= 0 && slot < used && mapping(slot).getInt(offset(slot) + DESTINATION) != ContainerStore.NONE
+				&& getId(slot) == id;
+	}
+
+	/**
+	 * Gets the quantity of containers of each destination code
+	 * @return the copy of the counts indexed by destination code
+	 */
+	int[] getDestinationCounts() {
+		return Arrays.copyOf(bucketCounts, bucketCounts.length);
+	}
+
+	/**
+	 * Unlinks the container from the tier and writes it to a new record of the store
+	 * @param slot the slot of the container
+	 * @return the handle of the record
+	 */
+	int take(int slot) {
+		Container container = read(slot);
+		MappedByteBuffer mapping = mapping(slot);
+		int owner = mapping.getInt(offset(slot) + OWNER);
+		unlink(slot, mapping.getInt(offset(slot) + DESTINATION));
+		mapping.putInt(offset(slot) + DESTINATION, ContainerStore.NONE);
+		mapping.putInt(offset(slot) + NEXT, free);
+		free = slot;
+		weight -= container.getWeight();
+		count(container.getHazardClass(), container.getArrivalTime(), owner, -1);
+		return store.allocate(container);
+	}
+
+	/**
+	 * Adds the container to the running totals or takes it away from them
+	 * @param hazardClass the hazard class of the container
+	 * @param arrival the arrival time of the container, 0 if it is unknown
+	 * @param owner the owner code of the container
+	 * @param sign 1 for a container put, -1 for a container taken
+	 */
+	private void count(int hazardClass, long arrival, int owner, int sign) {
+		if (hazardClass != 0) {
+			hazardousCount += sign;
+		}
+		if (arrival > 0) {
+			arrivalSum += sign * arrival;
+			arrivedCount += sign;
+		}
+		if (owner >= ownerCounts.length) {
+			ownerCounts = Arrays.copyOf(ownerCounts, owner + 1);
+		}
+		ownerCounts[owner] += sign;
+	}
+
+	/**
+	 * Gets a free slot, the file grows by a mapping when the mapped slots are used up
+	 * @return the slot number
+	 */
+	private int allocate() {
+		if (free != ContainerStore.NONE) {
+			int slot = free;
+			free = getNext(slot);
+			return slot;
+		}
+		if (used == capacity) {
+			throw new IllegalStateException("Overflow tier is full.");
+		}
+		int slot = used++;
+		int index = slot >>> MAPPING_BITS;
+		if (mappings[index] == null) {
+			long slots = Math.min(MAPPING_SLOTS, capacity - ((long) index << MAPPING_BITS));
+			try {
+				mappings[index] = channel.map(FileChannel.MapMode.READ_WRITE,
+						((long) index << MAPPING_BITS) * SLOT_SIZE, slots * SLOT_SIZE);
+			} catch (IOException e) {
+				used--;
+				throw new IllegalStateException("Overflow tier can't be mapped.", e);
+			}
+			mappings[index].order(ByteOrder.nativeOrder());
+		}
+		return slot;
+	}
+
+	/**
+	 * Links the slot to the end of the tier list and of its destination list
+	 * @param slot the slot of the container
+	 * @param destination the code of the container destination
+	 */
+	private void link(int slot, int destination) {
+		if (destination >= bucketCounts.length) {
+			int length = destination + 1;
+			int oldLength = bucketCounts.length;
+			bucketHeads = Arrays.copyOf(bucketHeads, length);
+			bucketTails = Arrays.copyOf(bucketTails, length);
+			Arrays.fill(bucketHeads, oldLength, length, ContainerStore.NONE);
+			Arrays.fill(bucketTails, oldLength, length, ContainerStore.NONE);
+			bucketCounts = Arrays.copyOf(bucketCounts, length);
+		}
+		MappedByteBuffer mapping = mapping(slot);
+		int offset = offset(slot);
+		mapping.putInt(offset + PREVIOUS, tail);
+		mapping.putInt(offset + NEXT, ContainerStore.NONE);
+		if (tail != ContainerStore.NONE) {
+			mapping(tail).putInt(offset(tail) + NEXT, slot);
+		} else {
+			head = slot;
+		}
+		tail = slot;
+
+		int bucketTail = bucketTails[destination];
+		mapping.putInt(offset + PREVIOUS_IN_BUCKET, bucketTail);
+		mapping.putInt(offset + NEXT_IN_BUCKET, ContainerStore.NONE);
+		if (bucketTail != ContainerStore.NONE) {
+			mapping(bucketTail).putInt(offset(bucketTail) + NEXT_IN_BUCKET, slot);
+		} else {
+			bucketHeads[destination] = slot;
+		}
+		bucketTails[destination] = slot;
+		bucketCounts[destination]++;
+		count++;
+	}
+
+	/**
+	 * Unlinks the slot from the tier list and from its destination list
+	 * @param slot the slot of the container
+	 * @param destination the code of the container destination
+	 */
+	private void unlink(int slot, int destination) {
+		MappedByteBuffer mapping = mapping(slot);
+		int offset = offset(slot);
+		int previous = mapping.getInt(offset + PREVIOUS);
+		int next = mapping.getInt(offset + NEXT);
+		if (previous != ContainerStore.NONE) {
+			mapping(previous).putInt(offset(previous) + NEXT, next);
+		} else {
+			head = next;
+		}
+		if (next != ContainerStore.NONE) {
+			mapping(next).putInt(offset(next) + PREVIOUS, previous);
+		} else {
+			tail = previous;
+		}
+
+		previous = mapping.getInt(offset + PREVIOUS_IN_BUCKET);
+		next = mapping.getInt(offset + NEXT_IN_BUCKET);
+		if (previous != ContainerStore.NONE) {
+			mapping(previous).putInt(offset(previous) + NEXT_IN_BUCKET, next);
+		} else {
+			bucketHeads[destination] = next;
+		}
+		if (next != ContainerStore.NONE) {
+			mapping(next).putInt(offset(next) + PREVIOUS_IN_BUCKET, previous);
+		} else {
+			bucketTails[destination] = previous;
+		}
+		bucketCounts[destination]--;
+		count--;
+	}
+
+	/**
+	 * Gets the mapping holding the slot
+	 * @param slot the slot number
+	 * @return the mapped buffer
+	 */
+	private MappedByteBuffer mapping(int slot) {
+		return mappings[slot >>> MAPPING_BITS];
+	}
+
+	/**
+	 * Gets the position of the slot in its mapping
+	 * @param slot the slot number
+	 * @return the offset in bytes
+	 */
+	private static int offset(int slot) {
+		return (slot & MAPPING_MASK) * SLOT_SIZE;
+	}
+}
@@ -2,28 +2,102 @@ package by.bsuir.lab02.warehouse;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
 
 /**
- * Warehouse is the class that is responsible for storage of containers and their motion
+ * Warehouse is the class that is responsible for storage of containers and their motion.
+ * Containers are moved by the holder of the warehouse lock. Every change of the container
+ *  list also takes a write stamp, so occupancy is read by optimistic stamps that never
+ *  block a transfer and are retried under a read stamp only if a change has run meanwhile.
+ * Containers are also kept in buckets by destination, so the cargo for a port is taken
+ *  and counted without scanning the warehouse. A warehouse may be stacked in a {@link Yard},
+ *  then taking a container rehandles the containers above it.
+ * The warehouse holds no object per container: containers are records of a {@link ContainerStore}
+ *  linked into the warehouse list and the bucket lists by their int handles. Containers move
+ *  between warehouses as handles, a {@link Container} is made only to put a new one or to take one out.
+ * A warehouse may overflow into an {@link OverflowTier}: when arrived containers don't fit,
+ *  the oldest ones are moved there, and they are brought back oldest last as soon as there is
+ *  room again. So the tier always holds the oldest containers and they are taken out first.
  * 
  * @version 1.0
  * @author Sytau
  */
 public class Warehouse {
-	private List<Container> containerList;
+
+	/** Name of the port warehouse */
+	public static final String PORT_WAREHOUSE_NAME = "Port";
+
+	private String name;
+	
+	/** Store of the container records, shared by the warehouses containers move between */
+	private ContainerStore store;
+	
+	/** Code of this warehouse in the location column of the store */
+	private int location;
+	
+	/** The first and the last handle of the containers in the order they have been put */
+	private int head = ContainerStore.NONE;
+	private int tail = ContainerStore.NONE;
+	
+	/** Quantity of containers, read by optimistic stamps */
+	private int count;
+	
+	/** Total gross weight of the containers in kilograms */
+	private volatile long weight;
+	
+	/** A map of destination - containers bound for it */
+	private ConcurrentMap<String, Bucket> buckets = new ConcurrentHashMap<String, Bucket>();
+	
 	private int size;
 	private Lock lock;
 	
+	/** A stacked yard the containers are placed in, <b>null</b> if the warehouse is flat */
+	private volatile Yard yard;
+	
+	/** An off-dock tier of the oldest containers, <b>null</b> if the warehouse doesn't overflow */
+	private volatile OverflowTier overflow;
+	
+	/** Stamps of the container list changes */
+	private StampedLock stamps = new StampedLock();
+	
 	/**
 	 * Constructor builds a new instance of Warehouse with preset values
+	 * @param name the name of the warehouse owner
 	 * @param size the capacity of the warehouse
 	 */
-	public Warehouse(int size) {
-		containerList = new ArrayList<Container>(size);
-		lock = new ReentrantLock();
+	public Warehouse(String name, int size) {
+		this(name, size, new ReentrantLock());
+	}
+	
+	/**
+	 * Constructor builds a new instance of Warehouse held with this lock during transfers
+	 * @param name the name of the warehouse owner
+	 * @param size the capacity of the warehouse
+	 * @param lock the exclusive lock of the warehouse
+	 */
+	public Warehouse(String name, int size, Lock lock) {
+		this(name, size, lock, ContainerStore.getDefault());
+	}
+	
+	/**
+	 * Constructor builds a new instance of Warehouse keeping its containers in this store
+	 * @param name the name of the warehouse owner
+	 * @param size the capacity of the warehouse
+	 * @param lock the exclusive lock of the warehouse
+	 * @param store the store of the container records
+	 */
+	public Warehouse(String name, int size, Lock lock, ContainerStore store) {
+		this.name = name;
+		this.lock = lock;
 		this.size = size;
+		this.store = store;
+		location = store.getColumns().register();
 	}
 	
 	/**
@@ -32,7 +106,13 @@ public class Warehouse {
 	 * @return <b>true</b> if the container is added successfully
 	 */
 	public boolean addContainer(Container container) {	
-		return containerList.add(container);
+		long stamp = stamps.writeLock();
+		try {
+			accept(store.allocate(container));
+			return true;
+		} finally {
+			stamps.unlockWrite(stamp);
+		}
 	}
 	
 	/**
@@ -41,11 +121,38 @@ public class Warehouse {
 	 * @return <b>true</b> if all containers is added successfully
 	 */
 	public boolean addContainer(List<Container> containers) {
-		boolean result = false;
-		if(containerList.size() + containers.size() <= size){
-			result = containerList.addAll(containers);
+		long stamp = stamps.writeLock();
+		try {
+			if(hasRoom(containers.size())){
+				for (Container container : containers) {
+					accept(store.allocate(container));
+				}
+				return !containers.isEmpty();
+			}
+		} finally {
+			stamps.unlockWrite(stamp);
 		}
-		return result;
+		return false;
+	}
+	
+	/**
+	 * Adds containers moved from another warehouse of the same store
+	 * @param handles the handles of the containers taken out of the other warehouse
+	 * @return <b>true</b> if all containers are added and <b>false</b> if there is no room for them
+	 */
+	public boolean addHandles(int[] handles) {
+		long stamp = stamps.writeLock();
+		try {
+			if (hasRoom(handles.length)) {
+				for (int handle : handles) {
+					accept(handle);
+				}
+				return true;
+			}
+		} finally {
+			stamps.unlockWrite(stamp);
+		}
+		return false;
 	}
 	
 	/**
@@ -53,10 +160,8 @@ public class Warehouse {
 	 * @return the instance of Container class
 	 */
 	public Container getContainer() {
-		if (containerList.size() > 0) {
-			return containerList.remove(0);
-		}
-		return null;
+		List<Container> cargo = getContainer(1);
+		return cargo != null ? cargo.get(0) : null;
 	}
 	
 	/**
@@ -65,14 +170,263 @@ public class Warehouse {
 	 * @return the sublist of instances of Container class
 	 */
 	public List<Container> getContainer(int amount) {
-		if (containerList.size() >= amount) {			
-			List<Container> cargo = new ArrayList<Container>(containerList.subList(0, amount));
-			containerList.removeAll(cargo);
-			return cargo;
+		return release(removeHandles(amount));
+	}
+	
+	/**
+	 * Extracts containers bound for the destination in the order they have been put
+	 * @param destination the port the containers are bound for
+	 * @param amount the quantity of containers to extract
+	 * @return the list of instances of Container class or <b>null</b> if there are fewer containers
+	 */
+	public List<Container> getContainer(String destination, int amount) {
+		return release(removeHandles(destination, amount));
+	}
+	
+	/**
+	 * Takes containers out in the order they have been put, their records stay in the store
+	 *  to be added to another warehouse
+	 * @param amount the quantity of containers to take
+	 * @return the handles of the containers or <b>null</b> if there are fewer containers
+	 */
+	public int[] removeHandles(int amount) {
+		long stamp = stamps.writeLock();
+		try {
+			if (count + overflowSize() >= amount) {
+				int[] cargo = new int[amount];
+				for (int i = 0; i < amount; i++) {
+					if (overflowSize() > 0) {
+						cargo[i] = overflow.takeOldest();
+					} else {
+						cargo[i] = head;
+						// the oldest container of the warehouse is the oldest of its destination
+						unlink(cargo[i], bucket(store.getDestination(cargo[i])));
+					}
+				}
+				refill();
+				return cargo;
+			}
+		} finally {
+			stamps.unlockWrite(stamp);
 		}
 		return null;
 	}
 	
+	/**
+	 * Takes containers bound for the destination out in the order they have been put,
+	 * 	their records stay in the store to be added to another warehouse
+	 * @param destination the port the containers are bound for
+	 * @param amount the quantity of containers to take
+	 * @return the handles of the containers or <b>null</b> if there are fewer containers
+	 */
+	public int[] removeHandles(String destination, int amount) {
+		long stamp = stamps.writeLock();
+		try {
+			Bucket bucket = buckets.get(destination);
+			int overflowed = overflow != null ? overflow.size(store.destinationCode(destination)) : 0;
+			if ((bucket != null ? bucket.count : 0) + overflowed >= amount) {
+				int[] cargo = new int[amount];
+				for (int i = 0; i < amount; i++) {
+					if (i < overflowed) {
+						cargo[i] = overflow.takeOldest(store.destinationCode(destination));
+					} else {
+						cargo[i] = bucket.head;
+						unlink(cargo[i], bucket);
+					}
+				}
+				refill();
+				return cargo;
+			}
+		} finally {
+			stamps.unlockWrite(stamp);
+		}
+		return amount == 0 ? new int[0] : null;
+	}
+	
+	/**
+	 * Takes out the planned containers, their records stay in the store to be added
+	 * 	to another warehouse. Overflowed containers are moved back to the store first
+	 * @param handles the handles of the containers, the tier slots of the overflowed ones
+	 * @param ids the ids the records and slots must still hold
+	 * @param overflowed the flags of the containers planned in the overflow tier
+	 * @return the handles of the containers in the planned order or <b>null</b> if some
+	 * 	of them aren't in the warehouse any more, then nothing is taken
+	 */
+	public int[] removeHandles(int[] handles, int[] ids, boolean[] overflowed) {
+		long stamp = stamps.writeLock();
+		try {
+			InventoryColumns columns = store.getColumns();
+			OverflowTier current = overflow;
+			for (int i = 0; i < handles.length; i++) {
+				if (overflowed[i] ? current == null || !current.holds(handles[i], ids[i])
+						: columns.getLocation(handles[i]) != location || store.getId(handles[i]) != ids[i]) {
+					return null;
+				}
+			}
+			int[] cargo = new int[handles.length];
+			for (int i = 0; i < handles.length; i++) {
+				if (overflowed[i]) {
+					cargo[i] = current.take(handles[i]);
+				} else {
+					cargo[i] = handles[i];
+					unlink(handles[i], bucket(store.getDestination(handles[i])));
+				}
+			}
+			refill();
+			return cargo;
+		} finally {
+			stamps.unlockWrite(stamp);
+		}
+	}
+	
+	/**
+	 * Copies the handles of the containers bound for the destination
+	 * @param destination the port the containers are bound for
+	 * @return the array of handles in the order they have been put
+	 */
+	public int[] getHandles(String destination) {
+		long stamp = stamps.readLock();
+		try {
+			Bucket bucket = buckets.get(destination);
+			if (bucket == null) {
+				return new int[0];
+			}
+			int[] handles = new int[bucket.count];
+			int i = 0;
+			for (int handle = bucket.head; handle != ContainerStore.NONE; handle = store.getNextInBucket(handle)) {
+				handles[i++] = handle;
+			}
+			return handles;
+		} finally {
+			stamps.unlockRead(stamp);
+		}
+	}
+	
+	/**
+	 * Copies the overflow tier slots of the containers bound for the destination,
+	 * 	their containers are read by {@link Warehouse#getOverflowId(int)} and {@link Warehouse#getOverflowWeight(int)}
+	 * @param destination the port the containers are bound for
+	 * @return the array of slots in the order the containers have overflowed
+	 */
+	public int[] getOverflowSlots(String destination) {
+		long stamp = stamps.readLock();
+		try {
+			OverflowTier current = overflow;
+			if (current == null) {
+				return new int[0];
+			}
+			int code = store.destinationCode(destination);
+			int[] slots = new int[current.size(code)];
+			int i = 0;
+			for (int slot = current.getHead(code); slot != ContainerStore.NONE; slot = current.getNextInBucket(slot)) {
+				slots[i++] = slot;
+			}
+			return slots;
+		} finally {
+			stamps.unlockRead(stamp);
+		}
+	}
+	
+	/**
+	 * Reads the id of the overflowed container
+	 * @param slot the overflow tier slot of the container
+	 * @return the container <b>id</b>
+	 */
+	public int getOverflowId(int slot) {
+		return overflow.getId(slot);
+	}
+	
+	/**
+	 * Reads the gross weight of the overflowed container
+	 * @param slot the overflow tier slot of the container
+	 * @return the container <b>weight</b> in kilograms
+	 */
+	public int getOverflowWeight(int slot) {
+		return overflow.getWeight(slot);
+	}
+	
+	/**
+	 * Copies the container list
+	 * @return the list of containers in the order of their extraction
+	 */
+	public List<Container> getContainerList() {
+		long stamp = stamps.readLock();
+		try {
+			List<Container> containers = new ArrayList<Container>(count + overflowSize());
+			if (overflow != null) {
+				for (int slot = overflow.getHead(); slot != ContainerStore.NONE; slot = overflow.getNext(slot)) {
+					containers.add(overflow.read(slot));
+				}
+			}
+			for (int handle = head; handle != ContainerStore.NONE; handle = store.getNext(handle)) {
+				containers.add(store.read(handle));
+			}
+			return containers;
+		} finally {
+			stamps.unlockRead(stamp);
+		}
+	}
+	
+	/**
+	 * Copies the ids of the containers without making container objects
+	 * @return the array of ids in the order of extraction
+	 */
+	public int[] getContainerIds() {
+		long stamp = stamps.readLock();
+		try {
+			int[] ids = new int[count + overflowSize()];
+			int i = 0;
+			if (overflow != null) {
+				for (int slot = overflow.getHead(); slot != ContainerStore.NONE; slot = overflow.getNext(slot)) {
+					ids[i++] = overflow.getId(slot);
+				}
+			}
+			for (int handle = head; handle != ContainerStore.NONE; handle = store.getNext(handle)) {
+				ids[i++] = store.getId(handle);
+			}
+			return ids;
+		} finally {
+			stamps.unlockRead(stamp);
+		}
+	}
+	
+	/**
+	 * Gets the quantity of containers of each destination
+	 * @return the map of destination - quantity of containers
+	 */
+	public Map<String, Integer> getDestinationCounts() {
+		Map<String, Integer> counts = new TreeMap<String, Integer>();
+		for (Map.Entry<String, Bucket> entry : buckets.entrySet()) {
+			if (entry.getValue().count > 0) {
+				counts.put(entry.getKey(), entry.getValue().count);
+			}
+		}
+		if (overflow != null) {
+			long stamp = stamps.readLock();
+			try {
+				int[] overflowed = overflow.getDestinationCounts();
+				for (int code = 0; code < overflowed.length; code++) {
+					if (overflowed[code] > 0) {
+						String destination = store.destinationName(code);
+						Integer quayside = counts.get(destination);
+						counts.put(destination, overflowed[code] + (quayside != null ? quayside : 0));
+					}
+				}
+			} finally {
+				stamps.unlockRead(stamp);
+			}
+		}
+		return counts;
+	}
+	
+	/**
+	 * Getter for this field {@link Warehouse#name}
+	 * @return name the name of the warehouse owner
+	 */
+	public String getName(){
+		return name;
+	}
+	
 	/**
 	 * Getter for this field {@link Warehouse#size}
 	 * @return size the capacity of the warehouse
@@ -81,27 +435,334 @@ public class Warehouse {
 		return size;
 	}
 	
+	/**
+	 * Getter for this field {@link Warehouse#store}
+	 * @return store the store of the container records
+	 */
+	public ContainerStore getStore(){
+		return store;
+	}
+	
 	/**
 	 * Gets real quantity of containers in the warehouse
 	 * @return real quantity of containers in the warehouse
 	 */
 	public int getRealSize(){
-		return containerList.size();
+		long stamp = stamps.tryOptimisticRead();
+		int realSize = count + overflowSize();
+		if (!stamps.validate(stamp)) {
+			// a change has run meanwhile, read again behind it
+			stamp = stamps.readLock();
+			try {
+				realSize = count + overflowSize();
+			} finally {
+				stamps.unlockRead(stamp);
+			}
+		}
+		return realSize;
+	}
+	
+	/**
+	 * Gets the total gross weight of the containers, overflowed ones included
+	 * @return weight the total gross weight of the containers in kilograms
+	 */
+	public long getWeight(){
+		OverflowTier current = overflow;
+		return current != null ? weight + current.getWeight() : weight;
 	}
 	
 	/**
-	 * Gets empty space in the warehouse
+	 * Gets empty space in the warehouse and its overflow tier
 	 * @return quantity of containers that can be put in the warehouse
 	 */
 	public int getFreeSize(){
-		return size - containerList.size();
+		OverflowTier current = overflow;
+		return size + (current != null ? current.getCapacity() : 0) - getRealSize();
+	}
+	
+	/**
+	 * Gets quantity of containers moved to the overflow tier
+	 * @return quantity of overflowed containers, 0 if the warehouse doesn't overflow
+	 */
+	public int getOverflowSize(){
+		return overflowSize();
+	}
+	
+	/**
+	 * Gets quantity of containers bound for the destination, the count is kept
+	 * 	by every change so nothing is scanned
+	 * @param destination the port the containers are bound for
+	 * @return quantity of containers bound for the destination
+	 */
+	public int getRealSize(String destination){
+		Bucket bucket = buckets.get(destination);
+		OverflowTier current = overflow;
+		int overflowed = current != null ? current.size(store.destinationCode(destination)) : 0;
+		return (bucket != null ? bucket.count : 0) + overflowed;
+	}
+	
+	/**
+	 * Stacks the containers of this empty warehouse in the yard
+	 * @param yard the instance of Yard class with room for the warehouse and a stack of rehandles
+	 */
+	public void setYard(Yard yard) {
+		if (yard.getCapacity() < size + yard.getTiers() - 1) {
+			throw new IllegalArgumentException("Yard of " + yard.getCapacity() + " places is too small for warehouse of "
+					+ size + " containers.");
+		}
+		long stamp = stamps.writeLock();
+		try {
+			if (count != 0) {
+				throw new IllegalStateException("Yard must be set before containers are put.");
+			}
+			yard.bind(store);
+			this.yard = yard;
+		} finally {
+			stamps.unlockWrite(stamp);
+		}
+	}
+	
+	/**
+	 * Lets the warehouse overflow into the tier when its own places are taken
+	 * @param overflow the instance of OverflowTier class built for the store of the warehouse
+	 */
+	public void setOverflow(OverflowTier overflow) {
+		long stamp = stamps.writeLock();
+		try {
+			if (this.overflow != null) {
+				throw new IllegalStateException("Warehouse already overflows into a tier.");
+			}
+			overflow.bind(store);
+			this.overflow = overflow;
+			store.getColumns().addOverflow(location, overflow);
+		} finally {
+			stamps.unlockWrite(stamp);
+		}
+	}
+	
+	/**
+	 * Gets the quantity of containers rehandled to dig out containers
+	 * @return the quantity of rehandles, 0 if the warehouse is flat
+	 */
+	public long getRehandleCount() {
+		Yard current = yard;
+		return current != null ? current.getRehandleCount() : 0;
+	}
+	
+	/**
+	 * Getter for this field {@link Warehouse#location}
+	 * @return location the code of the warehouse in the inventory columns
+	 */
+	int getLocation(){
+		return location;
 	}
 	
 	/**
 	 * Getter for this field {@link Warehouse#lock}
-	 * @return lock the instance of ReentrantLock class
+	 * @return lock the exclusive lock of the warehouse
 	 */
 	public Lock getLock(){
 		return lock;
-	}	
-}
+	}
+	
+	/**
+	 * Links the container to the end of the list and of its bucket. Must be called under the write stamp.
+	 * @param handle the handle of the container
+	 */
+	private void put(int handle) {
+		store.setPrevious(handle, tail);
+		store.setNext(handle, ContainerStore.NONE);
+		if (tail != ContainerStore.NONE) {
+			store.setNext(tail, handle);
+		} else {
+			head = handle;
+		}
+		tail = handle;
+		count++;
+		weight += store.getWeight(handle);
+		store.getColumns().setLocation(handle, location);
+		bucket(store.getDestination(handle)).put(store, handle);
+		if (yard != null) {
+			yard.place(handle);
+		}
+	}
+	
+	/**
+	 * Links the container to the start of the list and of its bucket, so it is taken out
+	 * 	before the containers in the warehouse. Must be called under the write stamp.
+	 * @param handle the handle of the container
+	 */
+	private void putFirst(int handle) {
+		store.setPrevious(handle, ContainerStore.NONE);
+		store.setNext(handle, head);
+		if (head != ContainerStore.NONE) {
+			store.setPrevious(head, handle);
+		} else {
+			tail = handle;
+		}
+		head = handle;
+		count++;
+		weight += store.getWeight(handle);
+		store.getColumns().setLocation(handle, location);
+		bucket(store.getDestination(handle)).putFirst(store, handle);
+		if (yard != null) {
+			yard.placeFirst(handle);
+		}
+	}
+	
+	/**
+	 * Checks whether the arriving containers fit the warehouse and its overflow tier.
+	 * 	Must be called under the write stamp.
+	 * @param amount the quantity of arriving containers
+	 * @return <b>true</b> if there is room for all of them
+	 */
+	private boolean hasRoom(int amount) {
+		int overflowRoom = overflow != null ? overflow.getFreeSize() : 0;
+		return count + amount <= size + overflowRoom;
+	}
+	
+	/**
+	 * Puts the arrived container, moving the oldest container to the overflow tier
+	 * 	if the warehouse is full. Must be called under the write stamp.
+	 * @param handle the handle of the container
+	 */
+	private void accept(int handle) {
+		if (overflow != null && count >= size && overflow.getFreeSize() > 0) {
+			if (count == 0) {
+				overflow.push(handle); // the warehouse has no places of its own
+				return;
+			}
+			int oldest = head;
+			unlink(oldest, bucket(store.getDestination(oldest)));
+			overflow.push(oldest);
+		}
+		put(handle);
+	}
+	
+	/**
+	 * Brings the overflowed containers back while there is room, the newest first, so they
+	 * 	stay ahead of the containers in the warehouse. Must be called under the write stamp.
+	 */
+	private void refill() {
+		while (count < size && overflowSize() > 0) {
+			putFirst(overflow.takeNewest());
+		}
+	}
+	
+	/**
+	 * Gets the quantity of overflowed containers
+	 * @return the quantity, 0 if the warehouse doesn't overflow
+	 */
+	private int overflowSize() {
+		OverflowTier current = overflow;
+		return current != null ? current.size() : 0;
+	}
+	
+	/**
+	 * Unlinks the container from the list and from its bucket and takes it out of the yard
+	 * 	if the warehouse is stacked. Must be called under the write stamp.
+	 * @param handle the handle of the container
+	 * @param bucket the bucket of the container destination
+	 */
+	private void unlink(int handle, Bucket bucket) {
+		int previous = store.getPrevious(handle);
+		int next = store.getNext(handle);
+		if (previous != ContainerStore.NONE) {
+			store.setNext(previous, next);
+		} else {
+			head = next;
+		}
+		if (next != ContainerStore.NONE) {
+			store.setPrevious(next, previous);
+		} else {
+			tail = previous;
+		}
+		count--;
+		weight -= store.getWeight(handle);
+		store.getColumns().setLocation(handle, InventoryColumns.NOWHERE);
+		bucket.remove(store, handle);
+		if (yard != null) {
+			yard.retrieve(handle);
+		}
+	}
+	
+	/**
+	 * Frees the records of the taken containers
+	 * @param handles the handles of the containers, may be <b>null</b>
+	 * @return the list of instances of Container class or <b>null</b> if there are no handles
+	 */
+	private List<Container> release(int[] handles) {
+		if (handles == null) {
+			return null;
+		}
+		List<Container> cargo = new ArrayList<Container>(handles.length);
+		for (int handle : handles) {
+			cargo.add(store.release(handle));
+		}
+		return cargo;
+	}
+	
+	/**
+	 * Gets the bucket of the destination, creates it on the first use
+	 * @param destination the port the containers are bound for
+	 * @return the bucket
+	 */
+	private Bucket bucket(String destination) {
+		Bucket bucket = buckets.get(destination);
+		if (bucket == null) {
+			bucket = new Bucket();
+			buckets.put(destination, bucket);
+		}
+		return bucket;
+	}
+	
+	/**
+	 * Bucket is the list of containers bound for one destination, linked through
+	 *  their records. It is changed under the write stamp, its count is read without stamps.
+	 */
+	private static class Bucket {
+		private int head = ContainerStore.NONE;
+		private int tail = ContainerStore.NONE;
+		private volatile int count;
+		
+		void put(ContainerStore store, int handle) {
+			store.setPreviousInBucket(handle, tail);
+			store.setNextInBucket(handle, ContainerStore.NONE);
+			if (tail != ContainerStore.NONE) {
+				store.setNextInBucket(tail, handle);
+			} else {
+				head = handle;
+			}
+			tail = handle;
+			count++;
+		}
+		
+		void putFirst(ContainerStore store, int handle) {
+			store.setPreviousInBucket(handle, ContainerStore.NONE);
+			store.setNextInBucket(handle, head);
+			if (head != ContainerStore.NONE) {
+				store.setPreviousInBucket(head, handle);
+			} else {
+				tail = handle;
+			}
+			head = handle;
+			count++;
+		}
+		
+		void remove(ContainerStore store, int handle) {
+			int previous = store.getPreviousInBucket(handle);
+			int next = store.getNextInBucket(handle);
+			if (previous != ContainerStore.NONE) {
+				store.setNextInBucket(previous, next);
+			} else {
+				head = next;
+			}
+			if (next != ContainerStore.NONE) {
+				store.setPreviousInBucket(next, previous);
+			} else {
+				tail = previous;
+			}
+			count--;
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,252 @@
+package by.bsuir.lab02.warehouse;
+
+import java.util.Arrays;
+
+/**
+ * Yard is the stacked storage of a warehouse: bays by rows of stacks, each stack
+ *  up to the given quantity of tiers. Only the top container of a stack can be taken,
+ *  containers above the wanted one are rehandled to other stacks.
+ * A container is expected to be picked up in its turn among the containers of its
+ *  destination. It is placed on the stack whose containers are all picked up later,
+ *  choosing the closest such stack, so it blocks nothing; otherwise on an empty stack;
+ *  otherwise on the stack needed last.
+ * Stacks hold container handles of the {@link ContainerStore} of the warehouse, the stack
+ *  of a container is kept in its record.
+ *
+ * @version 1.0
+ * @author Sytau
+ */
+public class Yard {
+
+	private int bays;
+	private int rows;
+	private int tiers;
+
+	/** Container handles of each stack from the ground up */
+	private int[][] stacks;
+
+	/** Arrival numbers of the containers, parallel to {@link Yard#stacks} */
+	private long[][] arrivals;
+
+	private int[] heights;
+
+	/** Store of the containers, set when the yard is given to a warehouse */
+	private ContainerStore store;
+
+	/** Quantities of arrived and taken containers by destination code */
+	private long[][] turns = new long[0][];
+
+	/** Quantity of rehandles made since the yard was built */
+	private volatile long rehandleCount;
+
+	/**
+	 * Constructor builds a new instance of Yard with preset dimensions
+	 * @param bays the quantity of bays
+	 * @param rows the quantity of rows in a bay
+	 * @param tiers the highest stack
+	 */
+	public Yard(int bays, int rows, int tiers) {
+		if (bays <= 0 || rows <= 0 || tiers <= 0) {
+			throw new IllegalArgumentException("Yard dimensions must be positive: " + bays + "x" + rows + "x" + tiers);
+		}
+		this.bays = bays;
+		this.rows = rows;
+		this.tiers = tiers;
+		stacks = new int[bays * rows][tiers];
+		arrivals = new long[bays * rows][tiers];
+		heights = new int[bays * rows];
+	}
+
+	/**
+	 * Builds the yard described as bays x rows x tiers, for example <code>4x6x4</code>
+	 * @param dimensions the description of the yard
+	 * @return the instance of Yard class
+	 */
+	public static Yard parse(String dimensions) {
+		String[] parts = dimensions.trim().split("x");
+		if (parts.length != 3) {
+			throw new IllegalArgumentException("Yard must be described as bays x rows x tiers: " + dimensions);
+		}
+		return new Yard(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]), Integer.parseInt(parts[2]));
+	}
+
+	/**
+	 * Gets the quantity of container places
+	 * @return the capacity of the yard
+	 */
+	public int getCapacity() {
+		return bays * rows * tiers;
+	}
+
+	/**
+	 * Getter for the field {@link Yard#tiers}
+	 * @return the highest stack
+	 */
+	public int getTiers() {
+		return tiers;
+	}
+
+	/**
+	 * Gets the quantity of rehandles made since the yard was built
+	 * @return the quantity of rehandles
+	 */
+	public long getRehandleCount() {
+		return rehandleCount;
+	}
+
+	/**
+	 * Gives the yard to the warehouse keeping containers in this store
+	 * @param store the instance of ContainerStore class
+	 */
+	void bind(ContainerStore store) {
+		if (this.store != null && this.store != store) {
+			throw new IllegalStateException("Yard is used by another container store.");
+		}
+		this.store = store;
+	}
+
+	/**
+	 * Puts the arrived container on the stack chosen by the placement policy
+	 * @param container the handle of the container
+	 */
+	void place(int container) {
+		long[] turn = turn(store.getDestinationCode(container));
+		push(choose(turn[0] - turn[1], -1), container, turn[0]++);
+	}
+
+	/**
+	 * Puts the container brought back from the overflow tier on the stack chosen by
+	 * 	the placement policy. It is picked up before the containers of its destination
+	 * 	in the yard, and its move to the tier, counted as a pickup, is taken back.
+	 * @param container the handle of the container
+	 */
+	void placeFirst(int container) {
+		long[] turn = turn(store.getDestinationCode(container));
+		push(choose(0, -1), container, --turn[1]);
+	}
+
+	/**
+	 * Takes the container out of the yard, rehandling the containers above it
+	 * @param container the handle of the container
+	 * @return the quantity of rehandled containers
+	 */
+	int retrieve(int container) {
+		int stack = store.getStack(container);
+		if (stack == ContainerStore.NONE) {
+			return 0;
+		}
+		int rehandles = 0;
+		while (stacks[stack][heights[stack] - 1] != container) {
+			int top = heights[stack] - 1;
+			int blocking = stacks[stack][top];
+			long arrival = arrivals[stack][top];
+			pop(stack);
+			push(choose(rank(blocking, arrival), stack), blocking, arrival);
+			rehandles++;
+		}
+		pop(stack);
+		turn(store.getDestinationCode(container))[1]++;
+		rehandleCount += rehandles;
+		return rehandles;
+	}
+
+	/**
+	 * Chooses the stack for the container picked up in this turn
+	 * @param rank the quantity of containers of its destination to be picked up before it
+	 * @param excluded the stack the container mustn't be put on, -1 if there is none
+	 * @return the index of the stack
+	 */
+	private int choose(long rank, int excluded) {
+		int closest = -1;
+		long closestGap = Long.MAX_VALUE;
+		int empty = -1;
+		int latest = -1;
+		long latestRank = Long.MIN_VALUE;
+		for (int stack = 0; stack < heights.length; stack++) {
+			if (stack == excluded || heights[stack] == tiers) {
+				continue;
+			}
+			if (heights[stack] == 0) {
+				if (empty < 0) {
+					empty = stack;
+				}
+				continue;
+			}
+			long soonest = soonestRank(stack);
+			if (soonest >= rank && soonest - rank < closestGap) {
+				closest = stack;
+				closestGap = soonest - rank;
+			}
+			if (soonest > latestRank) {
+				latest = stack;
+				latestRank = soonest;
+			}
+		}
+		int stack = closest >= 0 ? closest : empty >= 0 ? empty : latest;
+		if (stack < 0) {
+			throw new IllegalStateException("Yard is full.");
+		}
+		return stack;
+	}
+
+	/**
+	 * Finds the earliest turn among the containers of the stack
+	 * @param stack the index of the stack
+	 * @return the smallest rank in the stack
+	 */
+	private long soonestRank(int stack) {
+		long soonest = Long.MAX_VALUE;
+		for (int tier = 0; tier < heights[stack]; tier++) {
+			soonest = Math.min(soonest, rank(stacks[stack][tier], arrivals[stack][tier]));
+		}
+		return soonest;
+	}
+
+	/**
+	 * Calculates the turn of the container among the containers of its destination
+	 * @param container the handle of the container
+	 * @param arrival the arrival number of the container
+	 * @return the quantity of containers of its destination to be picked up before it
+	 */
+	private long rank(int container, long arrival) {
+		return arrival - turn(store.getDestinationCode(container))[1];
+	}
+
+	/**
+	 * Gets the counters of the destination, creates them on the first use
+	 * @param destination the code of the destination
+	 * @return the array of arrived and taken quantities
+	 */
+	private long[] turn(int destination) {
+		if (destination >= turns.length) {
+			turns = Arrays.copyOf(turns, destination + 1);
+		}
+		if (turns[destination] == null) {
+			turns[destination] = new long[2];
+		}
+		return turns[destination];
+	}
+
+	/**
+	 * Puts the container on top of the stack
+	 * @param stack the index of the stack
+	 * @param container the handle of the container
+	 * @param arrival the arrival number of the container
+	 */
+	private void push(int stack, int container, long arrival) {
+		stacks[stack][heights[stack]] = container;
+		arrivals[stack][heights[stack]] = arrival;
+		heights[stack]++;
+		store.setStack(container, stack);
+	}
+
+	/**
+	 * Removes the top container of the stack
+	 * @param stack the index of the stack
+	 */
+	private void pop(int stack) {
+		heights[stack]--;
+		store.setStack(stacks[stack][heights[stack]], ContainerStore.NONE);
+		stacks[stack][heights[stack]] = ContainerStore.NONE;
+	}
+}